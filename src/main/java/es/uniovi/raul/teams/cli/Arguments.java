@@ -1,5 +1,14 @@
 package es.uniovi.raul.teams.cli;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.*;
+
+import es.uniovi.raul.teams.github.RepositoryPermission;
+import es.uniovi.raul.teams.organization.MembershipExport;
+import es.uniovi.raul.teams.organization.Shard;
+
 import picocli.CommandLine.*;
 
 // CHECKSTYLE:OFF
@@ -11,11 +20,17 @@ public class Arguments {
     public Exclusive exclusive = new Exclusive();
 
     public static class Exclusive {
-        @Parameters(index = "0", defaultValue = "classroom_roster.csv", description = "The roster CSV file downloaded from GitHub Classroom. Cannot be used together with '--clean'.")
-        public String rosterFile;
+        @Parameters(arity = "1..*", paramLabel = "<rosterFiles>", defaultValue = "classroom_roster.csv", description = "The roster CSV files downloaded from GitHub Classroom. Several rosters (e.g., of courses that share the organization) are merged into one update. Cannot be used together with '--clean'.")
+        public List<String> rosterFiles;
 
-        @Option(names = "--clean", description = "Remove all teams derived from groups and its members from the organization (other teams in the organization will be preserved). Cannot be used together with <rosterFile>.")
+        @Option(names = "--clean", description = "Remove all teams derived from groups and its members from the organization (other teams in the organization will be preserved). Cannot be used together with <rosterFiles>.")
         public boolean cleanTeams;
+
+        @Option(names = "--grant", paramLabel = "<regex>", converter = PatternConverter.class, description = "Give every group team access to the repositories of the organization whose whole name matches <regex> (e.g., 'lab-.*'), with the permission of '--permission'. Cannot be used together with <rosterFiles> or '--clean'.")
+        public Pattern grantPattern;
+
+        @Option(names = "--export", paramLabel = "<file>", description = "Do not perform any changes; write the members and pending invitations of every group team to <file>, with the columns of the roster (in NDJSON, also their state: member or invited). The teams are read at the same time (see '--concurrency'). Cannot be used together with <rosterFiles>, '--clean' or '--grant'.")
+        public String exportFile;
     }
 
     @Option(names = "-t", description = "GitHub API access token. If not provided, it will try to read from the GITHUB_TOKEN environment variable or from a '.env' file.")
@@ -24,9 +39,105 @@ public class Arguments {
     @Option(names = "-o", description = "GitHub organization name. If not provided, it will try to read from the GITHUB_ORG environment variable or from a '.env' file.")
     public String organization;
 
+    @Option(names = "--permission", paramLabel = "<permission>", converter = PermissionConverter.class, defaultValue = "pull", description = "With '--grant', permission given to the teams: pull (read), triage, push (write), maintain or admin.")
+    public RepositoryPermission permission;
+
+    @Option(names = "--export-format", paramLabel = "<format>", defaultValue = "csv", description = "With '--export', format of <file>: csv or ndjson (one JSON object per line).")
+    public MembershipExport.Format exportFormat;
+
+    @Option(names = "--parent-team", paramLabel = "<name>", description = "Create the group teams as children of this (course) team, which is created if needed. Existing group teams are moved under it and, with '--clean', it is deleted along with them.")
+    public String parentTeam;
+
+    @Option(names = "--only-groups", paramLabel = "<group>", split = ",", description = "Read and update only the teams of these groups (comma-separated, e.g., 'i01,i04'). The teams of other groups are neither read, changed nor deleted.")
+    public List<String> onlyGroups;
+
+    @Option(names = "--only-students", paramLabel = "<login>", split = ",", description = "Only make the changes of these students (comma-separated GitHub usernames): only the teams of their groups, and those where the saved state shows them, are read and updated, and no team is deleted.")
+    public List<String> onlyStudents;
+
+    @Option(names = "--resend-failed", description = "Instead of a full update, only invite again the students of <rosterFiles> whose invitation to their team failed (e.g., it expired after seven days without being accepted), reading the failed invitations of the organization at once.")
+    public boolean resendFailed;
+
     @Option(names = "--dry-run", description = "Do not perform any changes; only read and print the actions that would be performed.")
     public boolean dryRun;
 
+    @Option(names = "--status", description = "Do not perform any changes; print the state of the teams compared with <rosterFiles> (accepted and pending invitations, students not in GitHub and members not in the roster) using the state saved by previous runs. Cannot be used together with '--clean'.")
+    public boolean status;
+
+    @Option(names = "--refresh", paramLabel = "<age>", converter = AgeConverter.class, description = "With '--status', first read again from GitHub the teams whose saved state is older than <age> (e.g., 30m, 12h, 2d).")
+    public Duration refresh;
+
+    @Option(names = "--webhook-port", paramLabel = "<port>", description = "Keep running: receive the webhook events of the organization on this port (POST /webhook) to keep its state up to date, and update the organization each time one of <rosterFiles> changes.")
+    public Integer webhookPort;
+
+    @Option(names = "--webhook-secret", description = "Secret of the webhook, used to verify that the events come from GitHub. If not provided, it will try to read from the GITHUB_WEBHOOK_SECRET environment variable or from a '.env' file.")
+    public String webhookSecret;
+
+    @Option(names = "--login-ttl", paramLabel = "<age>", converter = AgeConverter.class, defaultValue = "1d", description = "Before making any change, the logins of the students are checked to exist in GitHub. What is known about each login is cached for <age> (e.g., 12h, 7d).")
+    public Duration loginTtl;
+
+    @Option(names = "--no-login-check", description = "Do not check that the logins of the students exist before making any change.")
+    public boolean noLoginCheck;
+
+    @Option(names = "--concurrency", paramLabel = "<n>", defaultValue = "1", description = "Make up to <n> changes at the same time. The actual number adapts to the latency and the throttling of GitHub. Invitations are always sent before removing members and teams.")
+    public int concurrency;
+
+    @Option(names = "--read-concurrency", paramLabel = "<n>", description = "Read up to <n> teams at the same time during a sync (default: the value of '--concurrency'). The changes of each team are made while the next teams are read.")
+    public Integer readConcurrency;
+
+    @Option(names = "--hedge", paramLabel = "<delay>", converter = DelayConverter.class, description = "If a read has not been answered after <delay> (e.g., 800ms, 2s), send it again and use the first response.")
+    public Duration hedgeDelay;
+
+    @Option(names = "--hedge-p95", description = "Like '--hedge', but waiting the 95th percentile of the latencies observed in the run.")
+    public boolean hedgeP95;
+
+    @Option(names = "--hedge-budget", paramLabel = "<percent>", defaultValue = "5", description = "With '--hedge' or '--hedge-p95', maximum percentage of the requests that can be sent twice.")
+    public int hedgeBudget;
+
+    @Option(names = "--cache-ttl", paramLabel = "<delay>", converter = DelayConverter.class, defaultValue = "30s", description = "Serve again the teams, members and invitations read from GitHub within <delay> (e.g., 30s, 500ms) instead of reading them again. Identical reads at the same time are always sent once.")
+    public Duration cacheTtl;
+
+    @Option(names = "--record", paramLabel = "<file>", description = "Write every call made to the GitHub API, with its response and the time it took, to <file> (one JSON object per line).")
+    public String recordFile;
+
+    @Option(names = "--jfr", paramLabel = "<file>", description = "Record the run with Java Flight Recorder, including an event for each call to GitHub and for each phase of the sync, and write it to <file> at exit (open it with JDK Mission Control or 'jfr print').")
+    public String jfrFile;
+
+    @Option(names = "--replay", paramLabel = "<file>", description = "Do not connect to GitHub: serve the responses recorded with '--record' in <file>. The state of the organization is not saved.")
+    public String replayFile;
+
+    @Option(names = "--replay-latency", description = "With '--replay', make each call take the time it took when it was recorded.")
+    public boolean replayLatency;
+
+    @Option(names = "--connect-timeout", paramLabel = "<seconds>", defaultValue = "10", description = "Maximum time to establish a connection with GitHub.")
+    public int connectTimeout;
+
+    @Option(names = "--request-timeout", paramLabel = "<seconds>", defaultValue = "60", description = "Maximum time to wait for the response of each call to GitHub.")
+    public int requestTimeout;
+
+    @Option(names = "--http1", description = "Use HTTP/1.1 instead of HTTP/2.")
+    public boolean http1;
+
+    @Option(names = "--no-compression", description = "Do not ask GitHub for compressed (gzip/deflate) responses.")
+    public boolean noCompression;
+
+    @Option(names = "--keep-alive", paramLabel = "<seconds>", description = "How long an idle connection with GitHub is kept open to be reused (default: the one of the JVM).")
+    public Integer keepAlive;
+
+    @Option(names = "--workers", paramLabel = "<n>", description = "Split the groups among <n> worker processes that sync them at the same time. Each one uses a token of the GITHUB_TOKENS environment variable (comma-separated, also read from a '.env' file), or the token of '-t' if there is none.")
+    public Integer workers;
+
+    @Option(names = "--shard", paramLabel = "<index/count>", converter = ShardConverter.class, hidden = true, description = "Sync only the groups of this shard (used by the workers of '--workers').")
+    public Shard shard;
+
+    @Option(names = "--api-url", paramLabel = "<url>", defaultValue = "https://api.github.com", description = "Root of the GitHub REST API (e.g., 'https://github.example.com/api/v3' for GitHub Enterprise Server).")
+    public URI apiUrl;
+
+    /** Tokens of the workers of '--workers' (from the environment). */
+    public List<String> workerTokens;
+
+    @Option(names = "--state-file", description = "File where the state of the organization seen in each run is saved (default: '.teams-<organization>.json').")
+    public String stateFile;
+
 }
 
 class Messages {
@@ -43,6 +154,61 @@ class Messages {
             """;
 }
 
+class AgeConverter implements ITypeConverter<Duration> {
+    public Duration convert(String value) {
+        if (!value.matches("\\d+[mhd]"))
+            throw new TypeConversionException("'" + value + "' is not a valid age. Use a number followed by 'm' (minutes), 'h' (hours) or 'd' (days), e.g., 30m, 12h, 2d.");
+
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+    }
+}
+
+class ShardConverter implements ITypeConverter<Shard> {
+    public Shard convert(String value) {
+        try {
+            return Shard.parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new TypeConversionException(e.getMessage());
+        }
+    }
+}
+
+class PatternConverter implements ITypeConverter<Pattern> {
+    public Pattern convert(String value) {
+        try {
+            return Pattern.compile(value);
+        } catch (PatternSyntaxException e) {
+            throw new TypeConversionException("'" + value + "' is not a valid regular expression: " + e.getDescription());
+        }
+    }
+}
+
+class PermissionConverter implements ITypeConverter<RepositoryPermission> {
+    public RepositoryPermission convert(String value) {
+        try {
+            return RepositoryPermission.parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new TypeConversionException(e.getMessage());
+        }
+    }
+}
+
+class DelayConverter implements ITypeConverter<Duration> {
+    public Duration convert(String value) {
+        if (value.matches("\\d+ms"))
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        if (value.matches("\\d+s"))
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+
+        throw new TypeConversionException("'" + value + "' is not a valid delay. Use a number followed by 'ms' or 's' (e.g., 800ms, 2s).");
+    }
+}
+
 class PomVersionReader implements IVersionProvider {
     public String[] getVersion() throws Exception {
         return new String[] { Arguments.class.getPackage().getImplementationVersion() };
@@ -3,7 +3,7 @@ package es.uniovi.raul.teams.cli;
 import static java.lang.String.*;
 
 import java.io.PrintStream;
-import java.util.Optional;
+import java.util.*;
 
 import io.github.cdimascio.dotenv.Dotenv;
 import picocli.CommandLine;
@@ -12,6 +12,9 @@ import picocli.CommandLine.ParameterException;
 /** Parses and validates command line arguments. */
 public class ArgumentsParser {
 
+    /** Environment variable with the token of a worker of '--workers'. */
+    public static final String WORKER_TOKEN = "TEAMS_WORKER_TOKEN";
+
     /**
      * Parses command line args.
      * Prints usage, version, or errors as needed.
@@ -45,6 +48,7 @@ public class ArgumentsParser {
                 return Optional.empty();
             }
 
+            ensureValidCombination(arguments, picocli);
             ensureRequiredEnvironment(arguments, picocli);
 
             return Optional.of(arguments);
@@ -58,24 +62,98 @@ public class ArgumentsParser {
 
     //#  -----------------------------------
 
+    private static void ensureValidCombination(Arguments arguments, final CommandLine picocli) {
+        if (arguments.status && arguments.exclusive.cleanTeams)
+            throw new ParameterException(picocli, "'--status' cannot be used together with '--clean'");
+        if (arguments.exclusive.grantPattern != null && (arguments.status || arguments.webhookPort != null))
+            throw new ParameterException(picocli, "'--grant' cannot be used together with '--status' or '--webhook-port'");
+        if (arguments.exclusive.exportFile != null && (arguments.status || arguments.webhookPort != null
+                || arguments.workers != null))
+            throw new ParameterException(picocli,
+                    "'--export' cannot be used together with '--status', '--webhook-port' or '--workers'");
+        if (arguments.resendFailed && (arguments.exclusive.rosterFiles == null || arguments.status
+                || arguments.webhookPort != null))
+            throw new ParameterException(picocli,
+                    "'--resend-failed' can only be used with <rosterFiles>, without '--status' or '--webhook-port'");
+        boolean selective = arguments.onlyGroups != null || arguments.onlyStudents != null;
+        if (selective && (arguments.exclusive.cleanTeams || arguments.status || arguments.webhookPort != null))
+            throw new ParameterException(picocli, "'--only-groups' and '--only-students' cannot be used together "
+                    + "with '--clean', '--status' or '--webhook-port'");
+        if (arguments.onlyStudents != null
+                && (arguments.exclusive.grantPattern != null || arguments.exclusive.exportFile != null))
+            throw new ParameterException(picocli,
+                    "'--only-students' cannot be used together with '--grant' or '--export'");
+        if (arguments.refresh != null && !arguments.status)
+            throw new ParameterException(picocli, "'--refresh' can only be used together with '--status'");
+        if (arguments.webhookPort != null && (arguments.status || arguments.exclusive.cleanTeams))
+            throw new ParameterException(picocli, "'--webhook-port' cannot be used together with '--status' or '--clean'");
+        if (arguments.connectTimeout <= 0 || arguments.requestTimeout <= 0
+                || (arguments.keepAlive != null && arguments.keepAlive <= 0))
+            throw new ParameterException(picocli,
+                    "'--connect-timeout', '--request-timeout' and '--keep-alive' must be positive");
+        if (arguments.concurrency <= 0 || (arguments.readConcurrency != null && arguments.readConcurrency <= 0))
+            throw new ParameterException(picocli, "'--concurrency' and '--read-concurrency' must be positive");
+        if (arguments.hedgeDelay != null && arguments.hedgeP95)
+            throw new ParameterException(picocli, "'--hedge' cannot be used together with '--hedge-p95'");
+        if (arguments.hedgeBudget <= 0 || arguments.hedgeBudget > 100)
+            throw new ParameterException(picocli, "'--hedge-budget' must be between 1 and 100");
+        if (arguments.recordFile != null && arguments.replayFile != null)
+            throw new ParameterException(picocli, "'--record' cannot be used together with '--replay'");
+        if (arguments.replayLatency && arguments.replayFile == null)
+            throw new ParameterException(picocli, "'--replay-latency' can only be used together with '--replay'");
+        if ((arguments.recordFile != null || arguments.replayFile != null)
+                && (arguments.status || arguments.webhookPort != null))
+            throw new ParameterException(picocli,
+                    "'--record' and '--replay' cannot be used together with '--status' or '--webhook-port'");
+        if (arguments.workers != null && arguments.workers <= 0)
+            throw new ParameterException(picocli, "'--workers' must be positive");
+        if (arguments.workers != null && (arguments.status || arguments.webhookPort != null
+                || arguments.exclusive.cleanTeams))
+            throw new ParameterException(picocli,
+                    "'--workers' cannot be used together with '--status', '--webhook-port' or '--clean'");
+        if (arguments.workers != null && (arguments.recordFile != null || arguments.replayFile != null
+                || arguments.shard != null))
+            throw new ParameterException(picocli,
+                    "'--workers' cannot be used together with '--record', '--replay' or '--shard'");
+    }
+
     private static void ensureRequiredEnvironment(Arguments arguments, final CommandLine picocli) {
-        arguments.token = ensureArgument(arguments.token, "GITHUB_TOKEN", picocli);
-        arguments.organization = ensureArgument(arguments.organization, "GITHUB_ORG", picocli);
+        // The '.env' file is read once, for all the variables
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+
+        // The status report is made from the saved state, so the token is only needed to refresh it
+        // Neither is it needed to replay a recorded run
+        // The coordinator gives each worker its token without showing it in the command line
+        if (arguments.shard != null && System.getenv(WORKER_TOKEN) != null)
+            arguments.token = System.getenv(WORKER_TOKEN);
+        if ((!arguments.status || arguments.refresh != null) && arguments.replayFile == null)
+            arguments.token = ensureArgument(arguments.token, "GITHUB_TOKEN", dotenv, picocli);
+        if (arguments.workers != null)
+            arguments.workerTokens = getEnvironmentVariable(dotenv, "GITHUB_TOKENS")
+                    .map(tokens -> Arrays.stream(tokens.split(","))
+                            .map(String::trim)
+                            .filter(token -> !token.isEmpty())
+                            .toList())
+                    .filter(tokens -> !tokens.isEmpty())
+                    .orElse(List.of(arguments.token));
+        arguments.organization = ensureArgument(arguments.organization, "GITHUB_ORG", dotenv, picocli);
+        if (arguments.webhookPort != null)
+            arguments.webhookSecret = ensureArgument(arguments.webhookSecret, "GITHUB_WEBHOOK_SECRET", dotenv,
+                    picocli);
     }
 
     // Helper methods for environment variables
-    private static String ensureArgument(String argValue, String envKey, final CommandLine picocli) {
+    private static String ensureArgument(String argValue, String envKey, Dotenv dotenv, final CommandLine picocli) {
         if (argValue != null)
             return argValue;
 
-        return getEnvironmentVariable(envKey)
+        return getEnvironmentVariable(dotenv, envKey)
                 .orElseThrow(() -> new ParameterException(picocli,
                         format("Missing required arguments: %s should be provided either via command line or in a '.env' file",
                                 envKey)));
     }
 
-    private static Optional<String> getEnvironmentVariable(String key) {
-        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+    private static Optional<String> getEnvironmentVariable(Dotenv dotenv, String key) {
         String value = dotenv.get(key);
         if (value == null)
             value = System.getenv(key);
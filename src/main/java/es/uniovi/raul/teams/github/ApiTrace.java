@@ -0,0 +1,163 @@
+package es.uniovi.raul.teams.github;
+
+import java.time.Instant;
+import java.util.*;
+
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.*;
+
+import es.uniovi.raul.teams.github.GithubApi.*;
+
+/**
+ * Format of the trace files written by {@link GithubApiRecordingDecorator} and read by {@link GithubApiReplayer}.
+ *
+ * A trace has one JSON object per line, one for each call to the API, in the order they were made:
+ * {"op":"getTeamMembers","args":["org","group-a"],"micros":183240,"result":{"alice":1001,"bob":1002}}
+ * {"op":"inviteStudentToTeam","args":["org","group-a","carol"],"micros":402113,"error":"rejected","message":"..."}
+ *
+ * where "micros" is the time the call took. Void operations have no "result".
+ */
+final class ApiTrace {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final String ERROR_REJECTED = "rejected";
+    static final String ERROR_INVITATION_LIMIT = "invitation-limit";
+    static final String ERROR_FORMAT = "format";
+    static final String ERROR_IO = "io";
+
+    /**
+     * Identifies a call by its operation and arguments, so that the replayer finds the response of each call.
+     */
+    static String key(String operation, List<String> args) {
+        return operation + args;
+    }
+
+    static ObjectNode call(String operation, List<String> args, long micros) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("op", operation);
+        args.forEach(node.putArray("args")::add);
+        node.put("micros", micros);
+        return node;
+    }
+
+    static String errorType(Exception e) {
+        if (e instanceof InvitationLimitException)
+            return ERROR_INVITATION_LIMIT;
+        if (e instanceof UnexpectedFormatException)
+            return ERROR_FORMAT;
+        if (e instanceof GithubApiException)
+            return ERROR_REJECTED;
+        return ERROR_IO;
+    }
+
+    //# Results to JSON -----------------------------------
+
+    static JsonNode fromTeams(List<Team> teams) {
+        ArrayNode array = MAPPER.createArrayNode();
+        for (Team team : teams) {
+            ObjectNode node = array.addObject();
+            node.put("name", team.displayName());
+            node.put("slug", team.slug());
+            node.put("id", team.id());
+            node.put("parent", team.parentSlug());
+        }
+        return array;
+    }
+
+    static JsonNode fromSlug(Optional<String> slug) {
+        return slug.<JsonNode>map(TextNode::valueOf).orElse(NullNode.getInstance());
+    }
+
+    static JsonNode fromStrings(List<String> strings) {
+        ArrayNode array = MAPPER.createArrayNode();
+        strings.forEach(array::add);
+        return array;
+    }
+
+    static JsonNode fromIds(Map<String, Long> ids) {
+        ObjectNode object = MAPPER.createObjectNode();
+        ids.forEach(object::put);
+        return object;
+    }
+
+    static JsonNode fromPermissions(Map<String, RepositoryPermission> permissions) {
+        ObjectNode object = MAPPER.createObjectNode();
+        permissions.forEach((repository, permission) -> object.put(repository, permission.apiName()));
+        return object;
+    }
+
+    static JsonNode fromInvitations(List<Invitation> invitations) {
+        ArrayNode array = MAPPER.createArrayNode();
+        for (Invitation invitation : invitations) {
+            ObjectNode node = array.addObject();
+            node.put("id", invitation.id());
+            node.put("login", invitation.login());
+            node.put("teamCount", invitation.teamCount());
+        }
+        return array;
+    }
+
+    static JsonNode fromFailedInvitations(List<FailedInvitation> invitations) {
+        ArrayNode array = MAPPER.createArrayNode();
+        for (FailedInvitation invitation : invitations) {
+            ObjectNode node = array.addObject();
+            node.put("id", invitation.id());
+            node.put("login", invitation.login());
+            node.put("failedAt", invitation.failedAt().toString());
+            node.put("reason", invitation.reason());
+        }
+        return array;
+    }
+
+    //# JSON to results -----------------------------------
+
+    static List<Team> toTeams(JsonNode array) {
+        List<Team> teams = new ArrayList<>();
+        for (JsonNode node : array) {
+            JsonNode parent = node.path("parent");
+            teams.add(new Team(node.path("name").asText(), node.path("slug").asText(), node.path("id").asLong(),
+                    parent.isTextual() ? parent.asText() : null));
+        }
+        return teams;
+    }
+
+    static Optional<String> toSlug(JsonNode node) {
+        return node.isTextual() ? Optional.of(node.asText()) : Optional.empty();
+    }
+
+    static List<String> toStrings(JsonNode array) {
+        List<String> strings = new ArrayList<>();
+        array.forEach(node -> strings.add(node.asText()));
+        return strings;
+    }
+
+    static Map<String, Long> toIds(JsonNode object) {
+        Map<String, Long> ids = new LinkedHashMap<>();
+        object.fields().forEachRemaining(field -> ids.put(field.getKey(), field.getValue().asLong()));
+        return ids;
+    }
+
+    static Map<String, RepositoryPermission> toPermissions(JsonNode object) {
+        Map<String, RepositoryPermission> permissions = new LinkedHashMap<>();
+        object.fields().forEachRemaining(
+                field -> permissions.put(field.getKey(), RepositoryPermission.parse(field.getValue().asText())));
+        return permissions;
+    }
+
+    static List<Invitation> toInvitations(JsonNode array) {
+        List<Invitation> invitations = new ArrayList<>();
+        for (JsonNode node : array)
+            invitations.add(new Invitation(node.path("id").asLong(), node.path("login").asText(),
+                    node.path("teamCount").asInt()));
+        return invitations;
+    }
+
+    static List<FailedInvitation> toFailedInvitations(JsonNode array) {
+        List<FailedInvitation> invitations = new ArrayList<>();
+        for (JsonNode node : array)
+            invitations.add(new FailedInvitation(node.path("id").asLong(), node.path("login").asText(),
+                    Instant.parse(node.path("failedAt").asText()), node.path("reason").asText()));
+        return invitations;
+    }
+}
@@ -0,0 +1,118 @@
+package es.uniovi.raul.teams.github;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Adaptive limit of the requests sent to GitHub at the same time (AIMD).
+ * <p>
+ * The limit starts at one and grows by one each time a whole limit of requests is answered at a stable latency. It is
+ * halved when GitHub throttles a request (secondary rate limit) and reduced by a quarter when the latency of a
+ * response is much higher than the average, which is the first sign of the server being saturated. This gets close
+ * to the best throughput of each organization without tuning the concurrency by hand.
+ * <p>
+ * Only one reduction is applied for the responses of the requests that were already in flight when the limit was
+ * reduced, so a burst of throttled responses does not collapse the limit to one.
+ */
+final class ConcurrencyLimiter {
+
+    private static final double LATENCY_SPIKE = 2.0; // Times the average latency
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final int MIN_SAMPLES = 10; // Before detecting latency spikes
+
+    private final int maxLimit;
+    private double limit = 1;
+    private int inFlight;
+    private double averageLatency; // Nanoseconds, exponentially weighted
+    private int samples;
+    private long lastReduction; // System.nanoTime() of the last reduction
+    private long pausedUntil; // System.nanoTime() until which no request is sent, honoring a 'Retry-After'
+
+    ConcurrencyLimiter(int maxLimit) {
+        if (maxLimit < 1)
+            throw new IllegalArgumentException("Maximum limit must be at least 1.");
+
+        this.maxLimit = maxLimit;
+        this.lastReduction = System.nanoTime();
+        this.pausedUntil = lastReduction;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Waits until a request can be sent and returns the time it was allowed, to be passed to {@link #release}.
+     */
+    synchronized long acquire() throws InterruptedException {
+        while (true) {
+            long pause = pausedUntil - System.nanoTime();
+            if (pause > 0)
+                wait(Math.max(1, pause / 1_000_000));
+            else if (inFlight >= (int) limit)
+                wait();
+            else
+                break;
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * As {@link #acquire}, but without waiting: empty if the limit is reached or the requests are paused.
+     */
+    synchronized OptionalLong tryAcquire() {
+        if (pausedUntil - System.nanoTime() > 0 || inFlight >= (int) limit)
+            return OptionalLong.empty();
+
+        inFlight++;
+        return OptionalLong.of(System.nanoTime());
+    }
+
+    /**
+     * Frees the place of a request without adapting the limit, as its response is accounted by another one (the
+     * request it hedged).
+     */
+    synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Adapts the limit with the response of a request.
+     *
+     * @param acquiredAt value returned by {@link #acquire} for this request
+     * @param throttled  whether GitHub rejected the request for sending too many
+     * @param retryAfter time GitHub asked to wait before sending more requests, or null
+     */
+    synchronized void release(long acquiredAt, boolean throttled, Duration retryAfter) {
+        long now = System.nanoTime();
+        long latency = now - acquiredAt;
+        inFlight--;
+
+        if (throttled) {
+            reduce(acquiredAt, now, 0.5);
+            if (retryAfter != null && now + retryAfter.toNanos() - pausedUntil > 0)
+                pausedUntil = now + retryAfter.toNanos();
+        } else if (samples >= MIN_SAMPLES && latency > LATENCY_SPIKE * averageLatency)
+            reduce(acquiredAt, now, 0.75);
+        else
+            limit = Math.min(maxLimit, limit + 1 / limit);
+
+        if (!throttled) {
+            averageLatency = samples == 0 ? latency : averageLatency + LATENCY_SMOOTHING * (latency - averageLatency);
+            samples++;
+        }
+        notifyAll();
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private void reduce(long acquiredAt, long now, double factor) {
+        if (acquiredAt - lastReduction < 0)
+            return; // Sent with the old limit, which has already been reduced
+
+        limit = Math.max(1, limit * factor);
+        lastReduction = now;
+    }
+}
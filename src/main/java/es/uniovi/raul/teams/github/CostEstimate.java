@@ -0,0 +1,38 @@
+package es.uniovi.raul.teams.github;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Cost of a sync simulated in dry-run (see {@link GithubApiDryRunDecorator#estimateCost}).
+ *
+ * @param callsPerEndpoint   calls that would be made to each endpoint (e.g., "POST /orgs/{org}/teams")
+ * @param calls              total of calls
+ * @param wallTime           predicted time to make them
+ * @param rateLimitRemaining requests left in the rate limit of GitHub, if known
+ */
+public record CostEstimate(SortedMap<String, Integer> callsPerEndpoint, int calls, Duration wallTime,
+        OptionalInt rateLimitRemaining) {
+
+    public CostEstimate {
+
+        if (callsPerEndpoint == null)
+            throw new IllegalArgumentException("Calls per endpoint cannot be null.");
+
+        if (wallTime == null)
+            throw new IllegalArgumentException("Wall time cannot be null.");
+
+        if (rateLimitRemaining == null)
+            throw new IllegalArgumentException("Rate limit remaining cannot be null (use OptionalInt.empty()).");
+
+        callsPerEndpoint = Collections.unmodifiableSortedMap(new TreeMap<>(callsPerEndpoint));
+    }
+
+    /**
+     * Whether the calls do not fit in the rate limit left, so the sync would have to wait for it to be reset (up to
+     * an hour).
+     */
+    public boolean exceedsRateLimit() {
+        return rateLimitRemaining.isPresent() && calls > rateLimitRemaining.getAsInt();
+    }
+}
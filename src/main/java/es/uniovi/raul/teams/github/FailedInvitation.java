@@ -0,0 +1,28 @@
+package es.uniovi.raul.teams.github;
+
+import java.time.Instant;
+
+/**
+ * Store for the information of an invitation to a GitHub organization that failed: it expired without being
+ * accepted (after seven days) or could not be delivered. A failed invitation no longer appears among the pending
+ * ones, so the invitee is neither a member nor invited.
+ *
+ * @param id       the identifier of the invitation
+ * @param login    the GitHub username of the invitee
+ * @param failedAt when the invitation failed
+ * @param reason   why it failed, as given by GitHub (e.g., "Invitation expired")
+ */
+public record FailedInvitation(long id, String login, Instant failedAt, String reason) {
+
+    public FailedInvitation {
+
+        if (login == null || login.isBlank())
+            throw new IllegalArgumentException("Login cannot be null or blank.");
+
+        if (failedAt == null)
+            throw new IllegalArgumentException("Failed at cannot be null.");
+
+        if (reason == null)
+            reason = "";
+    }
+}
@@ -32,12 +32,41 @@ public interface GithubApi {
     Optional<String> createTeam(String organization, String teamDisplayName)
             throws GithubApiException, IOException, InterruptedException;
 
+    /**
+     * Creates a new team in the specified organization as a child of another team. The child team inherits the
+     * repository permissions of its parent.
+     * If the team already exists, it returns an empty Optional.
+     *
+     * @param organization    Organization name
+     * @param teamDisplayName Display name for the new team
+     * @param parentTeamId    Id of the parent team (see {@link Team#id()})
+     * @return Optional containing the created team slug or empty if the team already exists
+     * @throws RejectedOperationException if the operation is rejected by GitHub API
+     * @throws UnexpectedFormatException if the response format is unexpected
+     */
+    Optional<String> createTeam(String organization, String teamDisplayName, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException;
+
+    /**
+     * Moves an existing team under another team.
+     *
+     * @param organization Organization name
+     * @param teamSlug     Slug of the team to move
+     * @param parentTeamId Id of the new parent team (see {@link Team#id()})
+     * @throws RejectedOperationException if the operation is rejected by GitHub API
+     * @throws IOException if a network error occurs
+     * @throws InterruptedException if the operation is interrupted
+     */
+    void setParentTeam(String organization, String teamSlug, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException;
+
     /**
      * Removes a team from the specified organization.
      * If the team already exists, it returns an empty Optional.
      *
      * Notes:
      * - Deleting a team does not remove its members from the organization account itself.
+     * - Deleting a parent team also deletes all its child teams.
      * - Any pending invitations to that team are effectively invalidated when the team no longer exists.
      *
      * @param organization   Organization name
@@ -87,18 +116,19 @@ public interface GithubApi {
             throws GithubApiException, IOException, InterruptedException;
 
     /**
-    * Returns a list of GitHub usernames (logins) for the accepted members of a given team in the specified organization.
-    * Pending team invitations are not included here.
+    * Returns the GitHub usernames (logins) of the accepted members of a given team in the specified organization,
+    * with the numeric id of each account. Unlike the login, the id never changes, so it identifies the same user
+    * after being renamed. Pending team invitations are not included here.
     *
     * @param organization Organization name
     * @param teamSlug     Slug of the team
-    * @return List of GitHub usernames (logins) in the team
+    * @return The id of each member of the team, by login (in the order given by GitHub)
     * @throws IOException if a network error occurs
     * @throws RejectedOperationException if the operation is rejected by GitHub API
     * @throws UnexpectedFormatException if the response format is unexpected
     * @throws InterruptedException if the operation is interrupted
     */
-    List<String> getTeamMembers(String organization, String teamSlug)
+    Map<String, Long> getTeamMembers(String organization, String teamSlug)
             throws GithubApiException, IOException, InterruptedException;
 
     /**
@@ -116,6 +146,107 @@ public interface GithubApi {
     List<String> getTeamInvitations(String organization, String teamSlug)
             throws GithubApiException, IOException, InterruptedException;
 
+    /**
+    * Returns all the pending invitations of the organization (team invitations included).
+    * Invitations sent by email to users without a GitHub account are not included.
+    * <p>
+    * GitHub does not include the invited teams in this list. Use {@link #getInvitationTeams(String, long)}
+    * for the invitations whose team count is not zero.
+    *
+    * @param organization Organization name
+    * @return List of pending invitations in the organization
+    * @throws IOException if a network error occurs
+    * @throws RejectedOperationException if the operation is rejected by GitHub API
+    * @throws UnexpectedFormatException if the response format is unexpected
+    * @throws InterruptedException if the operation is interrupted
+    */
+    List<Invitation> getOrganizationInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException;
+
+    /**
+    * Returns the invitations of the organization that failed: they expired without being accepted or could not be
+    * delivered. Invitations sent by email to users without a GitHub account are not included.
+    *
+    * @param organization Organization name
+    * @return List of failed invitations in the organization
+    * @throws IOException if a network error occurs
+    * @throws RejectedOperationException if the operation is rejected by GitHub API
+    * @throws UnexpectedFormatException if the response format is unexpected
+    * @throws InterruptedException if the operation is interrupted
+    */
+    List<FailedInvitation> getFailedInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException;
+
+    /**
+    * Returns the slugs of the teams targeted by a pending organization invitation.
+    *
+    * @param organization Organization name
+    * @param invitationId Identifier of the invitation (see {@link Invitation#id()})
+    * @return List of slugs of the teams the invitee will join when accepting the invitation
+    * @throws IOException if a network error occurs
+    * @throws RejectedOperationException if the operation is rejected by GitHub API
+    * @throws UnexpectedFormatException if the response format is unexpected
+    * @throws InterruptedException if the operation is interrupted
+    */
+    List<String> getInvitationTeams(String organization, long invitationId)
+            throws GithubApiException, IOException, InterruptedException;
+
+    /**
+    * Returns which of the given logins belong to a GitHub user. They are looked up in batches, so a whole roster
+    * takes a few calls.
+    *
+    * @param logins Logins to look up
+    * @return The logins (as given) of the users that exist
+    * @throws IOException if a network error occurs
+    * @throws RejectedOperationException if the operation is rejected by GitHub API
+    * @throws UnexpectedFormatException if the response format is unexpected
+    * @throws InterruptedException if the operation is interrupted
+    */
+    Set<String> findExistingUsers(Collection<String> logins)
+            throws GithubApiException, IOException, InterruptedException;
+
+    /**
+    * Returns the names of all the repositories of the organization.
+    *
+    * @param organization Organization name
+    * @return List of repository names
+    * @throws IOException if a network error occurs
+    * @throws RejectedOperationException if the operation is rejected by GitHub API
+    * @throws UnexpectedFormatException if the response format is unexpected
+    * @throws InterruptedException if the operation is interrupted
+    */
+    List<String> getRepositories(String organization)
+            throws GithubApiException, IOException, InterruptedException;
+
+    /**
+    * Returns the repositories a team has access to, with the permission of the team on each one.
+    *
+    * @param organization Organization name
+    * @param teamSlug Slug of the team
+    * @return Permission of the team by repository name
+    * @throws IOException if a network error occurs
+    * @throws RejectedOperationException if the operation is rejected by GitHub API
+    * @throws UnexpectedFormatException if the response format is unexpected
+    * @throws InterruptedException if the operation is interrupted
+    */
+    Map<String, RepositoryPermission> getTeamRepositories(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException;
+
+    /**
+    * Gives a team the permission on a repository of the organization. If the team already has access to the
+    * repository, its permission is replaced.
+    *
+    * @param organization Organization name (also the owner of the repository)
+    * @param teamSlug Slug of the team
+    * @param repository Name of the repository
+    * @param permission Permission to give
+    * @throws IOException if a network error occurs
+    * @throws RejectedOperationException if the operation is rejected by GitHub API
+    * @throws InterruptedException if the operation is interrupted
+    */
+    void grantRepositoryToTeam(String organization, String teamSlug, String repository,
+            RepositoryPermission permission) throws GithubApiException, IOException, InterruptedException;
+
     /**
      * Removes a user from the given organization (accepted members only).
      * <p>
@@ -174,4 +305,18 @@ public interface GithubApi {
             super(String.format(format, args));
         }
     }
+
+    /**
+    * Exception thrown when an invitation is rejected because the organization has already sent all the invitations
+    * that GitHub allows in 24 hours. It can be sent again later.
+    */
+    class InvitationLimitException extends RejectedOperationException {
+        public InvitationLimitException(String message) {
+            super(message);
+        }
+
+        public InvitationLimitException(String format, Object... args) {
+            super(format, args);
+        }
+    }
 }
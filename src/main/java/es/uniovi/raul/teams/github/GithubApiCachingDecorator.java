@@ -0,0 +1,283 @@
+package es.uniovi.raul.teams.github;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Decorator for GithubApi that keeps the teams, and the members and invitations of each team, read within a time,
+ * so the same list is not read again from GitHub during a sync.
+ *
+ * A read made while an identical one is on its way waits for it and shares its result, instead of sending the same
+ * request again. Each write drops from the cache only the lists it changes (e.g., an invitation to a team drops the
+ * members and invitations of that team). Lists changed by others are seen once their time to live has passed.
+ *
+ * The cache holds up to a number of lists, dropping the least recently used ones.
+ */
+public final class GithubApiCachingDecorator implements GithubApi {
+
+    private record Entry(CompletableFuture<Object> result, long loadedAt) {
+    }
+
+    private final GithubApi delegate;
+    private final long timeToLiveNanos;
+    private final Map<String, Entry> cache;
+    private int hits;
+
+    /**
+     * Creates the decorator with an empty cache.
+     *
+     * @param delegate   the API to read from
+     * @param timeToLive how long a list is served from the cache (zero only shares the reads on their way)
+     * @param maxEntries maximum number of lists in the cache
+     */
+    public GithubApiCachingDecorator(GithubApi delegate, Duration timeToLive, int maxEntries) {
+        if (delegate == null)
+            throw new IllegalArgumentException("Delegate cannot be null.");
+        if (timeToLive == null || timeToLive.isNegative())
+            throw new IllegalArgumentException("Time to live cannot be null or negative.");
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("Max entries must be at least 1.");
+
+        this.delegate = delegate;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of reads answered from the cache (or by an identical read on its way).
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    // Cached reads
+    @Override
+    public List<Team> getTeams(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return cached(teamsKey(organization), () -> List.copyOf(delegate.getTeams(organization)));
+    }
+
+    @Override
+    public Map<String, Long> getTeamMembers(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return cached(membersKey(organization, teamSlug),
+                () -> Collections.unmodifiableMap(
+                        new LinkedHashMap<>(delegate.getTeamMembers(organization, teamSlug))));
+    }
+
+    @Override
+    public List<String> getTeamInvitations(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return cached(invitationsKey(organization, teamSlug),
+                () -> List.copyOf(delegate.getTeamInvitations(organization, teamSlug)));
+    }
+
+    // Other reads
+    @Override
+    public List<Invitation> getOrganizationInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return delegate.getOrganizationInvitations(organization);
+    }
+
+    @Override
+    public List<FailedInvitation> getFailedInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return delegate.getFailedInvitations(organization);
+    }
+
+    @Override
+    public List<String> getInvitationTeams(String organization, long invitationId)
+            throws GithubApiException, IOException, InterruptedException {
+        return delegate.getInvitationTeams(organization, invitationId);
+    }
+
+    @Override
+    public Set<String> findExistingUsers(Collection<String> logins)
+            throws GithubApiException, IOException, InterruptedException {
+        return delegate.findExistingUsers(logins);
+    }
+
+    @Override
+    public List<String> getRepositories(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return delegate.getRepositories(organization);
+    }
+
+    @Override
+    public Map<String, RepositoryPermission> getTeamRepositories(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return delegate.getTeamRepositories(organization, teamSlug);
+    }
+
+    // Writes: delegate and drop the lists they change
+    @Override
+    public Optional<String> createTeam(String organization, String teamDisplayName)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            return delegate.createTeam(organization, teamDisplayName);
+        } finally {
+            invalidate(teamsKey(organization));
+        }
+    }
+
+    @Override
+    public Optional<String> createTeam(String organization, String teamDisplayName, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            return delegate.createTeam(organization, teamDisplayName, parentTeamId);
+        } finally {
+            invalidate(teamsKey(organization));
+        }
+    }
+
+    @Override
+    public void setParentTeam(String organization, String teamSlug, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            delegate.setParentTeam(organization, teamSlug, parentTeamId);
+        } finally {
+            invalidate(teamsKey(organization));
+        }
+    }
+
+    @Override
+    public void deleteTeam(String organization, String teamSlug)
+            throws IOException, InterruptedException, GithubApiException {
+        try {
+            delegate.deleteTeam(organization, teamSlug);
+        } finally {
+            // Its children are deleted along with it
+            invalidate(teamsKey(organization));
+            invalidateTeamsOf(organization);
+        }
+    }
+
+    @Override
+    public void inviteStudentToTeam(String organization, String teamSlug, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            delegate.inviteStudentToTeam(organization, teamSlug, githubUsername);
+        } finally {
+            // Members of the organization are added at once, the rest are invited
+            invalidate(membersKey(organization, teamSlug));
+            invalidate(invitationsKey(organization, teamSlug));
+        }
+    }
+
+    @Override
+    public void removeStudentFromTeam(String organization, String teamSlug, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            delegate.removeStudentFromTeam(organization, teamSlug, githubUsername);
+        } finally {
+            invalidate(membersKey(organization, teamSlug));
+            invalidate(invitationsKey(organization, teamSlug));
+        }
+    }
+
+    @Override
+    public void grantRepositoryToTeam(String organization, String teamSlug, String repository,
+            RepositoryPermission permission) throws GithubApiException, IOException, InterruptedException {
+        delegate.grantRepositoryToTeam(organization, teamSlug, repository, permission);
+    }
+
+    @Override
+    public void removeMemberFromOrganization(String organization, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            delegate.removeMemberFromOrganization(organization, githubUsername);
+        } finally {
+            // The user leaves all the teams of the organization
+            invalidateTeamsOf(organization);
+        }
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    @FunctionalInterface
+    private interface Read<T> {
+        T call() throws GithubApiException, IOException, InterruptedException;
+    }
+
+    // Returns the list in the cache or on its way; otherwise reads it (outside the lock, as it goes to GitHub)
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Read<T> call) throws GithubApiException, IOException, InterruptedException {
+        CompletableFuture<Object> shared = null;
+        CompletableFuture<Object> own = null;
+        synchronized (this) {
+            var entry = cache.get(key);
+            if (entry != null && isValid(entry)) {
+                hits++;
+                shared = entry.result();
+            } else {
+                own = new CompletableFuture<>();
+                cache.put(key, new Entry(own, System.nanoTime()));
+            }
+        }
+        return shared != null ? (T) await(shared) : load(key, own, call);
+    }
+
+    // A read on its way is always valid; a finished one, within its time to live
+    private boolean isValid(Entry entry) {
+        return !entry.result().isDone() || System.nanoTime() - entry.loadedAt() < timeToLiveNanos;
+    }
+
+    private <T> T load(String key, CompletableFuture<Object> result, Read<T> call)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            T value = call.call();
+            result.complete(value);
+            return value;
+        } catch (Exception e) {
+            // Errors are not cached, but the reads waiting for this one get it too
+            synchronized (this) {
+                cache.computeIfPresent(key, (k, entry) -> entry.result() == result ? null : entry);
+            }
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> result)
+            throws GithubApiException, IOException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GithubApiException githubApiException)
+                throw githubApiException;
+            if (e.getCause() instanceof IOException ioException)
+                throw ioException;
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new IOException("The read shared with another call failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private synchronized void invalidate(String key) {
+        cache.remove(key);
+    }
+
+    private synchronized void invalidateTeamsOf(String organization) {
+        cache.keySet().removeIf(key -> key.startsWith("members/" + organization + "/")
+                || key.startsWith("invitations/" + organization + "/"));
+    }
+
+    private static String teamsKey(String organization) {
+        return "teams/" + organization;
+    }
+
+    private static String membersKey(String organization, String teamSlug) {
+        return "members/" + organization + "/" + teamSlug;
+    }
+
+    private static String invitationsKey(String organization, String teamSlug) {
+        return "invitations/" + organization + "/" + teamSlug;
+    }
+}
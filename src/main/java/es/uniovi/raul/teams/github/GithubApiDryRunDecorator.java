@@ -1,71 +1,333 @@
 package es.uniovi.raul.teams.github;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 
 /**
  * Decorator for GithubApi that disables write operations while allowing reads.
  * Useful for dry-run mode to see the actions that would be performed without
  * making any changes in GitHub.
+ *
+ * The writes are simulated in memory, and later reads see them: a team "created" is returned by {@link #getTeams}
+ * and its members and invitations can be read, so the whole sync is planned as it would be for real. The simulated
+ * invitations are also seen in the invitations of the organization, with an id of their own (negative, so they do
+ * not clash with the real ones), and the invitations to a team are gone once the student is removed from it.
+ *
+ * Every call is counted by endpoint to {@link #estimateCost estimate the cost} of the real sync.
  */
 public final class GithubApiDryRunDecorator implements GithubApi {
 
+    // Documented limit of GitHub for the requests that create content (secondary rate limit)
+    private static final int WRITES_PER_MINUTE = 80;
+    private static final Duration DEFAULT_LATENCY = Duration.ofMillis(300); // If no read has been made
+
     private final GithubApi delegate;
 
+    // Simulated writes
+    private final Map<String, Team> createdTeams = new LinkedHashMap<>();
+    private final Set<String> deletedTeams = new HashSet<>();
+    private final Map<String, Long> newParents = new HashMap<>(); // Parent id by team slug, created or moved
+    private final Map<String, Set<String>> invited = new HashMap<>(); // Logins by team slug
+    private final Map<String, Set<String>> removed = new HashMap<>(); // Logins by team slug
+    private final Map<String, Long> invitationIds = new HashMap<>(); // Of the simulated invitations, by login
+    private final Map<Long, String> invitationLogins = new HashMap<>(); // Of the real invitations read, by id
+    private final Set<String> removedFromOrganization = new HashSet<>();
+    private final Map<String, Map<String, RepositoryPermission>> granted = new HashMap<>(); // By team slug
+    private long nextTeamId = Long.MAX_VALUE; // Counting down, so they do not clash with the real ones
+    private long nextInvitationId = -1; // Counting down
+
+    // Cost
+    private final SortedMap<String, Integer> callsPerEndpoint = new TreeMap<>();
+    private int writes;
+    private long readNanos;
+    private int reads;
+
     public GithubApiDryRunDecorator(GithubApi delegate) {
         if (delegate == null)
             throw new IllegalArgumentException("Delegate cannot be null.");
         this.delegate = delegate;
     }
 
-    // Read operations: delegate
+    /**
+     * Estimates the cost of making for real the calls received so far: the calls to each endpoint and the time they
+     * would take, from the latency of the reads made and the documented limit of GitHub for writes.
+     *
+     * @param concurrency        requests that would be sent at the same time
+     * @param rateLimitRemaining requests left in the rate limit, if known
+     */
+    public synchronized CostEstimate estimateCost(int concurrency, OptionalInt rateLimitRemaining) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("Concurrency must be at least 1.");
+
+        int calls = callsPerEndpoint.values().stream().mapToInt(Integer::intValue).sum();
+        var latency = reads > 0 ? Duration.ofNanos(readNanos / reads) : DEFAULT_LATENCY;
+        var byLatency = latency.multipliedBy(calls).dividedBy(concurrency);
+        var byWriteLimit = Duration.ofSeconds(writes * 60L / WRITES_PER_MINUTE);
+        var wallTime = byLatency.compareTo(byWriteLimit) > 0 ? byLatency : byWriteLimit;
+
+        return new CostEstimate(callsPerEndpoint, calls, wallTime, rateLimitRemaining);
+    }
+
+    // Read operations: delegate and apply the simulated writes
     @Override
     public List<Team> getTeams(String organization)
             throws GithubApiException, IOException, InterruptedException {
-        return delegate.getTeams(organization);
+
+        var teams = read("GET /orgs/{org}/teams", () -> delegate.getTeams(organization));
+        synchronized (this) {
+            List<Team> all = new ArrayList<>(teams);
+            all.addAll(createdTeams.values());
+
+            List<Team> result = new ArrayList<>();
+            for (var team : all) {
+                var parentSlug = newParents.containsKey(team.slug())
+                        ? all.stream().filter(parent -> parent.id() == newParents.get(team.slug()))
+                                .map(Team::slug).findFirst().orElse(null)
+                        : team.parentSlug();
+                // As in GitHub, the children are deleted with their parent
+                if (deletedTeams.contains(team.slug()) || (parentSlug != null && deletedTeams.contains(parentSlug)))
+                    continue;
+                result.add(new Team(team.displayName(), team.slug(), team.id(), parentSlug));
+            }
+            return result;
+        }
     }
 
     @Override
-    public List<String> getTeamMembers(String organization, String teamSlug)
+    public Map<String, Long> getTeamMembers(String organization, String teamSlug)
             throws GithubApiException, IOException, InterruptedException {
-        return delegate.getTeamMembers(organization, teamSlug);
+
+        if (isCreated(teamSlug)) {
+            count("GET /orgs/{org}/teams/{team}/members");
+            return Map.of(); // Only invited so far
+        }
+
+        var members = new LinkedHashMap<>(read("GET /orgs/{org}/teams/{team}/members",
+                () -> delegate.getTeamMembers(organization, teamSlug)));
+        synchronized (this) {
+            members.keySet().removeIf(login -> removed.getOrDefault(teamSlug, Set.of()).contains(login)
+                    || removedFromOrganization.contains(login));
+        }
+        return members;
     }
 
     @Override
     public List<String> getTeamInvitations(String organization, String teamSlug)
             throws GithubApiException, IOException, InterruptedException {
-        return delegate.getTeamInvitations(organization, teamSlug);
+
+        List<String> invitations = List.of();
+        if (isCreated(teamSlug))
+            count("GET /orgs/{org}/teams/{team}/invitations");
+        else
+            invitations = read("GET /orgs/{org}/teams/{team}/invitations",
+                    () -> delegate.getTeamInvitations(organization, teamSlug));
+        synchronized (this) {
+            Set<String> result = new LinkedHashSet<>(invitations);
+            result.addAll(invited.getOrDefault(teamSlug, Set.of()));
+            result.removeAll(removed.getOrDefault(teamSlug, Set.of()));
+            return List.copyOf(result);
+        }
+    }
+
+    @Override
+    public List<Invitation> getOrganizationInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+
+        var invitations = read("GET /orgs/{org}/invitations", () -> delegate.getOrganizationInvitations(organization));
+        synchronized (this) {
+            List<Invitation> result = new ArrayList<>();
+            for (var invitation : invitations) {
+                invitationLogins.put(invitation.id(), invitation.login());
+                if (!removedFromOrganization.contains(invitation.login()))
+                    result.add(invitation);
+            }
+            invitationIds.forEach((login, id) -> {
+                int teams = invitedTeams(login).size();
+                if (teams > 0)
+                    result.add(new Invitation(id, login, teams));
+            });
+            return result;
+        }
+    }
+
+    @Override
+    public List<FailedInvitation> getFailedInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return read("GET /orgs/{org}/failed_invitations", () -> delegate.getFailedInvitations(organization));
+    }
+
+    @Override
+    public List<String> getInvitationTeams(String organization, long invitationId)
+            throws GithubApiException, IOException, InterruptedException {
+
+        if (invitationId < 0) {
+            count("GET /orgs/{org}/invitations/{id}/teams");
+            synchronized (this) {
+                return invitationIds.entrySet().stream()
+                        .filter(entry -> entry.getValue() == invitationId)
+                        .findFirst()
+                        .map(entry -> invitedTeams(entry.getKey()))
+                        .orElse(List.of());
+            }
+        }
+
+        var teams = read("GET /orgs/{org}/invitations/{id}/teams",
+                () -> delegate.getInvitationTeams(organization, invitationId));
+        synchronized (this) {
+            String login = invitationLogins.get(invitationId);
+            return teams.stream()
+                    .filter(slug -> !deletedTeams.contains(slug))
+                    .filter(slug -> login == null || !removed.getOrDefault(slug, Set.of()).contains(login))
+                    .toList();
+        }
+    }
+
+    @Override
+    public Set<String> findExistingUsers(Collection<String> logins)
+            throws GithubApiException, IOException, InterruptedException {
+        return read("POST /graphql", () -> delegate.findExistingUsers(logins));
+    }
+
+    // Write operations: simulated
+    @Override
+    public synchronized Optional<String> createTeam(String organization, String teamDisplayName)
+            throws GithubApiException, IOException, InterruptedException {
+        return simulateCreation(teamDisplayName, null);
     }
 
-    // Write operations: no-ops
     @Override
-    public Optional<String> createTeam(String organization, String teamDisplayName)
+    public synchronized Optional<String> createTeam(String organization, String teamDisplayName, long parentTeamId)
             throws GithubApiException, IOException, InterruptedException {
-        // Dry-run: do not create anything. Returning empty Optional is safe for callers in this project.
-        return Optional.empty();
+        return simulateCreation(teamDisplayName, parentTeamId);
     }
 
     @Override
-    public void deleteTeam(String organization, String teamSlug)
+    public synchronized void setParentTeam(String organization, String teamSlug, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+        countWrite("PATCH /orgs/{org}/teams/{team}");
+        newParents.put(teamSlug, parentTeamId);
+    }
+
+    @Override
+    public List<String> getRepositories(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return read("GET /orgs/{org}/repos", () -> delegate.getRepositories(organization));
+    }
+
+    @Override
+    public Map<String, RepositoryPermission> getTeamRepositories(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+
+        Map<String, RepositoryPermission> repositories = Map.of();
+        if (isCreated(teamSlug))
+            count("GET /orgs/{org}/teams/{team}/repos");
+        else
+            repositories = read("GET /orgs/{org}/teams/{team}/repos",
+                    () -> delegate.getTeamRepositories(organization, teamSlug));
+        synchronized (this) {
+            Map<String, RepositoryPermission> result = new LinkedHashMap<>(repositories);
+            result.putAll(granted.getOrDefault(teamSlug, Map.of()));
+            return result;
+        }
+    }
+
+    @Override
+    public synchronized void grantRepositoryToTeam(String organization, String teamSlug, String repository,
+            RepositoryPermission permission) throws GithubApiException, IOException, InterruptedException {
+        countWrite("PUT /orgs/{org}/teams/{team}/repos/{owner}/{repo}");
+        granted.computeIfAbsent(teamSlug, slug -> new HashMap<>()).put(repository, permission);
+    }
+
+    @Override
+    public synchronized void deleteTeam(String organization, String teamSlug)
             throws IOException, InterruptedException, GithubApiException {
-        // Dry-run: do nothing
+        countWrite("DELETE /orgs/{org}/teams/{team}");
+        deletedTeams.add(teamSlug);
     }
 
     @Override
-    public void inviteStudentToTeam(String organization, String teamSlug, String githubUsername)
+    public synchronized void inviteStudentToTeam(String organization, String teamSlug, String githubUsername)
             throws GithubApiException, IOException, InterruptedException {
-        // Dry-run: do nothing
+        countWrite("PUT /orgs/{org}/teams/{team}/memberships/{user}");
+        invited.computeIfAbsent(teamSlug, slug -> new LinkedHashSet<>()).add(githubUsername);
+        invitationIds.computeIfAbsent(githubUsername, login -> nextInvitationId--);
+        removed.getOrDefault(teamSlug, new HashSet<>()).remove(githubUsername);
     }
 
     @Override
-    public void removeStudentFromTeam(String organization, String teamSlug, String githubUsername)
+    public synchronized void removeStudentFromTeam(String organization, String teamSlug, String githubUsername)
             throws GithubApiException, IOException, InterruptedException {
-        // Dry-run: do nothing
+        countWrite("DELETE /orgs/{org}/teams/{team}/memberships/{user}");
+        removed.computeIfAbsent(teamSlug, slug -> new HashSet<>()).add(githubUsername);
+        invited.getOrDefault(teamSlug, new HashSet<>()).remove(githubUsername);
     }
 
     @Override
-    public void removeMemberFromOrganization(String organization, String githubUsername)
+    public synchronized void removeMemberFromOrganization(String organization, String githubUsername)
             throws GithubApiException, IOException, InterruptedException {
-        // Dry-run: do nothing
+        countWrite("DELETE /orgs/{org}/members/{user}");
+        removedFromOrganization.add(githubUsername);
+        invited.values().forEach(logins -> logins.remove(githubUsername));
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    @FunctionalInterface
+    private interface Read<T> {
+        T call() throws GithubApiException, IOException, InterruptedException;
+    }
+
+    // Delegates the read (outside the lock, as it goes to GitHub) and counts it with the time it took
+    private <T> T read(String endpoint, Read<T> call) throws GithubApiException, IOException, InterruptedException {
+        long start = System.nanoTime();
+        T result = call.call();
+        synchronized (this) {
+            readNanos += System.nanoTime() - start;
+            reads++;
+        }
+        count(endpoint);
+        return result;
+    }
+
+    private synchronized void count(String endpoint) {
+        callsPerEndpoint.merge(endpoint, 1, Integer::sum);
+    }
+
+    private void countWrite(String endpoint) {
+        count(endpoint);
+        writes++;
+    }
+
+    // The teams (not deleted) with a simulated invitation of the login
+    private List<String> invitedTeams(String login) {
+        return invited.entrySet().stream()
+                .filter(entry -> entry.getValue().contains(login) && !deletedTeams.contains(entry.getKey()))
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    private synchronized boolean isCreated(String teamSlug) {
+        return createdTeams.containsKey(teamSlug);
+    }
+
+    // Returns the slug GitHub would give to the team, or empty if it already exists (as GitHub does)
+    private Optional<String> simulateCreation(String teamDisplayName, Long parentTeamId) {
+        countWrite("POST /orgs/{org}/teams");
+        var slug = toSlug(teamDisplayName);
+        if (createdTeams.containsKey(slug) && !deletedTeams.contains(slug))
+            return Optional.empty();
+
+        createdTeams.put(slug, new Team(teamDisplayName, slug, nextTeamId--, null));
+        deletedTeams.remove(slug);
+        if (parentTeamId != null)
+            newParents.put(slug, parentTeamId);
+        return Optional.of(slug);
+    }
+
+    // GitHub lowercases the name and replaces anything but letters and digits with hyphens
+    private static String toSlug(String teamDisplayName) {
+        return teamDisplayName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
     }
 }
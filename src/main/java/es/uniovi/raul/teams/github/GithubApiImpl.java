@@ -1,12 +1,18 @@
 package es.uniovi.raul.teams.github;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.URI;
 import java.net.http.*;
 import java.net.http.HttpRequest.Builder;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.zip.*;
 
 import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * Github API implementation.
@@ -17,31 +23,78 @@ public final class GithubApiImpl implements GithubApi {
     private static final int STATUS_OK = 200;
     private static final int STATUS_CREATED = 201;
     private static final int STATUS_NO_CONTENT = 204;
+    private static final int STATUS_FORBIDDEN = 403;
     private static final int STATUS_NOT_FOUND = 404;
     private static final int STATUS_UNPROCESSABLE_ENTITY = 422;
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int PAGE_SIZE = 100; // Maximum allowed by GitHub
+    private static final int USERS_PER_QUERY = 100; // Keeps the GraphQL query well below its limits
+    private static final int MAX_THROTTLED_ATTEMPTS = 3;
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofMinutes(1);
+    private static final Duration MAX_RATE_LIMIT_WAIT = Duration.ofMinutes(5); // Until the hourly limit is reset
+    private static final String LOGIN_PATTERN = "[A-Za-z0-9](?:[A-Za-z0-9]|-(?=[A-Za-z0-9])){0,38}";
 
     private String token;
+    private final Transport transport;
+    private final String apiUrl; // Without the trailing slash
     private final HttpClient client;
+    private final RequestHedger hedger; // null if reads are not hedged
+    private final ConcurrencyLimiter limiter; // null if requests are sent one at a time
     private final ObjectMapper mapper;
+    private volatile int rateLimitRemaining = -1; // Unknown until the first response
 
     public GithubApiImpl(String token) {
+        this(token, Transport.defaults());
+    }
+
+    public GithubApiImpl(String token, Transport transport) {
         if (token == null || token.isBlank())
             throw new IllegalArgumentException("Token cannot be null or blank.");
+        if (transport == null)
+            throw new IllegalArgumentException("Transport cannot be null.");
 
         this.token = token;
-        this.client = HttpClient.newHttpClient();
+        this.transport = transport;
+        this.apiUrl = transport.apiUrl().toString().replaceAll("/+$", "");
+        this.client = createHttpClient(transport);
+        this.limiter = transport.maxConcurrency() > 1 ? new ConcurrencyLimiter(transport.maxConcurrency()) : null;
+        this.hedger = transport.hedging() != null ? new RequestHedger(transport.hedging(), limiter) : null;
         this.mapper = new ObjectMapper();
     }
 
+    /**
+     * Returns the number of reads that have been sent twice because the first response was slow (see
+     * {@link Hedging}).
+     */
+    public long getHedgedRequests() {
+        return hedger != null ? hedger.getHedgedRequests() : 0;
+    }
+
+    /**
+     * Returns the current limit of requests sent at the same time, or empty if it is not adaptive (see
+     * {@link Transport#maxConcurrency()}).
+     */
+    public OptionalInt getConcurrencyLimit() {
+        return limiter != null ? OptionalInt.of(limiter.getLimit()) : OptionalInt.empty();
+    }
+
+    /**
+     * Returns the requests left in the rate limit of GitHub, as reported in the last response.
+     */
+    public OptionalInt getRateLimitRemaining() {
+        int remaining = rateLimitRemaining;
+        return remaining >= 0 ? OptionalInt.of(remaining) : OptionalInt.empty();
+    }
+
     @Override
     public List<Team> getTeams(String organization)
             throws GithubApiException, IOException, InterruptedException {
 
         List<Team> teams = new ArrayList<>();
-        String url = "https://api.github.com/orgs/" + organization + "/teams";
+        String url = apiUrl + "/orgs/" + organization + "/teams";
         HttpRequest request = createHttpRequestBuilder(url).build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         if (response.statusCode() != STATUS_OK)
             throw new RejectedOperationException(
@@ -56,11 +109,18 @@ public final class GithubApiImpl implements GithubApi {
         for (JsonNode node : root) {
             JsonNode nameNode = node.get("name");
             JsonNode slugNode = node.get("slug");
+            JsonNode idNode = node.get("id");
             if (nameNode == null || !nameNode.isTextual() || slugNode == null || !slugNode.isTextual())
                 throw new UnexpectedFormatException(
                         "Expected 'name' and 'slug' fields of type string in each team object, got: %s", node);
+            if (idNode == null || !idNode.canConvertToLong())
+                throw new UnexpectedFormatException("Expected 'id' numeric field in each team object, got: %s", node);
+
+            // 'parent' is null for top-level teams
+            JsonNode parentSlugNode = node.path("parent").path("slug");
+            String parentSlug = parentSlugNode.isTextual() ? parentSlugNode.asText() : null;
 
-            teams.add(new Team(nameNode.asText(), slugNode.asText()));
+            teams.add(new Team(nameNode.asText(), slugNode.asText(), idNode.asLong(), parentSlug));
         }
         return teams;
     }
@@ -69,44 +129,51 @@ public final class GithubApiImpl implements GithubApi {
     public Optional<String> createTeam(String organization, String teamDisplayName)
             throws GithubApiException, IOException, InterruptedException {
 
-        String url = "https://api.github.com/orgs/" + organization + "/teams";
         String json = String.format("{\"name\":\"%s\",\"privacy\":\"closed\"}", teamDisplayName);
+        return postTeam(organization, teamDisplayName, json);
+    }
+
+    @Override
+    public Optional<String> createTeam(String organization, String teamDisplayName, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+
+        // Child teams cannot be secret, so they are always 'closed' (as the rest of teams created by this class)
+        String json = String.format("{\"name\":\"%s\",\"privacy\":\"closed\",\"parent_team_id\":%d}",
+                teamDisplayName, parentTeamId);
+        return postTeam(organization, teamDisplayName, json);
+    }
+
+    @Override
+    public void setParentTeam(String organization, String teamSlug, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
 
+        String url = apiUrl + String.format("/orgs/%s/teams/%s", organization, teamSlug);
+        String json = String.format("{\"parent_team_id\":%d}", parentTeamId);
         HttpRequest request = createHttpRequestBuilder(url)
                 .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
-        if (response.statusCode() == STATUS_CREATED) {
-            JsonNode root = mapper.readTree(response.body());
-            JsonNode slugNode = root.get("slug");
-            if (slugNode == null || !slugNode.isTextual())
-                throw new UnexpectedFormatException(
-                        "Expected 'slug' field of type string in created team object, got: %s", root);
-
-            return Optional.of(slugNode.asText());
-        }
-
-        if (response.statusCode() == STATUS_UNPROCESSABLE_ENTITY) // Team already exists
-            return Optional.empty();
+        if (response.statusCode() == STATUS_OK)
+            return;
 
         throw new RejectedOperationException(
-                "Failed to create team '%s' in organization '%s'. Status: %d. Response: %s",
-                teamDisplayName, organization, response.statusCode(), response.body());
+                "Failed to move team (slug) '%s' under team %d in organization '%s'. Status: %d. Response: %s",
+                teamSlug, parentTeamId, organization, response.statusCode(), response.body());
     }
 
     @Override
     public void deleteTeam(String organization, String teamSlug)
             throws IOException, InterruptedException, GithubApiException {
 
-        String url = String.format("https://api.github.com/orgs/%s/teams/%s", organization, teamSlug);
+        String url = apiUrl + String.format("/orgs/%s/teams/%s", organization, teamSlug);
         HttpRequest request = createHttpRequestBuilder(url)
                 .DELETE()
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         // GitHub returns 204 if deleted, 404 if not found (treat both as success)
         if (response.statusCode() == STATUS_NO_CONTENT || response.statusCode() == STATUS_NOT_FOUND)
@@ -121,18 +188,23 @@ public final class GithubApiImpl implements GithubApi {
     public void inviteStudentToTeam(String organization, String teamSlug, String githubUsername)
             throws GithubApiException, IOException, InterruptedException {
 
-        String url = String.format("https://api.github.com/orgs/%s/teams/%s/memberships/%s",
+        String url = apiUrl + String.format("/orgs/%s/teams/%s/memberships/%s",
                 organization, teamSlug, githubUsername);
         HttpRequest request = createHttpRequestBuilder(url)
                 .PUT(HttpRequest.BodyPublishers.noBody())
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         // GitHub returns 201 if added; 200 if already a member. Treat both as success.
         if (response.statusCode() == STATUS_CREATED || response.statusCode() == STATUS_OK)
             return;
 
+        if (isInvitationLimit(response))
+            throw new InvitationLimitException(
+                    "The daily invitation limit of organization '%s' has been reached. Response: %s",
+                    organization, response.body());
+
         throw new RejectedOperationException(
                 "Failed to add user '%s' to team (slug) '%s' in organization '%s'. Status: %d. Response: %s",
                 githubUsername, teamSlug, organization, response.statusCode(), response.body());
@@ -142,13 +214,13 @@ public final class GithubApiImpl implements GithubApi {
     public void removeStudentFromTeam(String organization, String teamSlug, String githubUsername)
             throws GithubApiException, IOException, InterruptedException {
 
-        String url = String.format("https://api.github.com/orgs/%s/teams/%s/memberships/%s", organization,
+        String url = apiUrl + String.format("/orgs/%s/teams/%s/memberships/%s", organization,
                 teamSlug, githubUsername);
         HttpRequest request = createHttpRequestBuilder(url)
                 .DELETE()
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         // GitHub returns 204 if removed; 404 if the user is not a member. Treat both as success.
         if (response.statusCode() == STATUS_NO_CONTENT || response.statusCode() == STATUS_NOT_FOUND)
@@ -160,15 +232,15 @@ public final class GithubApiImpl implements GithubApi {
     }
 
     @Override
-    public List<String> getTeamMembers(String organization, String teamSlug)
+    public Map<String, Long> getTeamMembers(String organization, String teamSlug)
             throws GithubApiException, IOException, InterruptedException {
 
-        List<String> members = new ArrayList<>();
-        String url = String.format("https://api.github.com/orgs/%s/teams/%s/members", organization, teamSlug);
+        Map<String, Long> members = new LinkedHashMap<>();
+        String url = apiUrl + String.format("/orgs/%s/teams/%s/members", organization, teamSlug);
         HttpRequest request = createHttpRequestBuilder(url)
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         if (response.statusCode() != STATUS_OK)
             throw new RejectedOperationException(
@@ -183,11 +255,15 @@ public final class GithubApiImpl implements GithubApi {
 
         for (JsonNode node : root) {
             JsonNode loginNode = node.get(JSON_LOGIN);
+            JsonNode idNode = node.get("id");
             if (loginNode == null || !loginNode.isTextual())
                 throw new UnexpectedFormatException(
                         "Expected 'login' field of type string in each member object, got: %s", node);
+            if (idNode == null || !idNode.canConvertToLong())
+                throw new UnexpectedFormatException("Expected 'id' numeric field in each member object, got: %s",
+                        node);
 
-            members.add(loginNode.asText());
+            members.put(loginNode.asText(), idNode.asLong());
         }
         return members;
     }
@@ -197,10 +273,10 @@ public final class GithubApiImpl implements GithubApi {
             throws GithubApiException, IOException, InterruptedException {
 
         List<String> invites = new ArrayList<>();
-        String url = String.format("https://api.github.com/orgs/%s/teams/%s/invitations", organization, teamSlug);
+        String url = apiUrl + String.format("/orgs/%s/teams/%s/invitations", organization, teamSlug);
         HttpRequest request = createHttpRequestBuilder(url).build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         if (response.statusCode() != STATUS_OK)
             throw new RejectedOperationException(
@@ -226,16 +302,168 @@ public final class GithubApiImpl implements GithubApi {
 
     // Organization-level membership and invitations ---------------------------------
 
+    @Override
+    public List<Invitation> getOrganizationInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+
+        List<Invitation> invitations = new ArrayList<>();
+        String url = apiUrl + String.format("/orgs/%s/invitations?per_page=%d", organization, PAGE_SIZE);
+
+        for (JsonNode node : getAllPages(url, "organization invitations", organization)) {
+            JsonNode idNode = node.get("id");
+            JsonNode loginNode = node.get(JSON_LOGIN);
+            JsonNode teamCountNode = node.get("team_count");
+            if (idNode == null || !idNode.canConvertToLong() || teamCountNode == null || !teamCountNode.isInt())
+                throw new UnexpectedFormatException(
+                        "Expected 'id' and 'team_count' numeric fields in each invitation object, got: %s", node);
+
+            if (loginNode == null || !loginNode.isTextual())
+                continue; // Invitation sent by email to someone without a GitHub account
+
+            invitations.add(new Invitation(idNode.asLong(), loginNode.asText(), teamCountNode.asInt()));
+        }
+        return invitations;
+    }
+
+    @Override
+    public List<FailedInvitation> getFailedInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+
+        List<FailedInvitation> invitations = new ArrayList<>();
+        String url = apiUrl + String.format("/orgs/%s/failed_invitations?per_page=%d", organization, PAGE_SIZE);
+
+        for (JsonNode node : getAllPages(url, "failed invitations", organization)) {
+            JsonNode idNode = node.get("id");
+            JsonNode loginNode = node.get(JSON_LOGIN);
+            JsonNode failedAtNode = node.get("failed_at");
+            if (idNode == null || !idNode.canConvertToLong() || failedAtNode == null || !failedAtNode.isTextual())
+                throw new UnexpectedFormatException(
+                        "Expected 'id' and 'failed_at' fields in each failed invitation object, got: %s", node);
+
+            if (loginNode == null || !loginNode.isTextual())
+                continue; // Invitation sent by email to someone without a GitHub account
+
+            Instant failedAt;
+            try {
+                failedAt = Instant.parse(failedAtNode.asText());
+            } catch (DateTimeParseException e) {
+                throw new UnexpectedFormatException("Invalid 'failed_at' in failed invitation: %s", node);
+            }
+            invitations.add(new FailedInvitation(idNode.asLong(), loginNode.asText(), failedAt,
+                    node.path("failed_reason").asText("")));
+        }
+        return invitations;
+    }
+
+    @Override
+    public List<String> getInvitationTeams(String organization, long invitationId)
+            throws GithubApiException, IOException, InterruptedException {
+
+        List<String> teamSlugs = new ArrayList<>();
+        String url = apiUrl + String.format("/orgs/%s/invitations/%d/teams?per_page=%d",
+                organization, invitationId, PAGE_SIZE);
+
+        for (JsonNode node : getAllPages(url, "invitation teams", organization)) {
+            JsonNode slugNode = node.get("slug");
+            if (slugNode == null || !slugNode.isTextual())
+                throw new UnexpectedFormatException(
+                        "Expected 'slug' field of type string in each team object, got: %s", node);
+
+            teamSlugs.add(slugNode.asText());
+        }
+        return teamSlugs;
+    }
+
+    @Override
+    public Set<String> findExistingUsers(Collection<String> logins)
+            throws GithubApiException, IOException, InterruptedException {
+
+        // Logins that GitHub would not accept are not looked up
+        List<String> candidates = logins.stream().distinct().filter(login -> login.matches(LOGIN_PATTERN)).toList();
+
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < candidates.size(); from += USERS_PER_QUERY)
+            existing.addAll(findUserIdsInBatch(
+                    candidates.subList(from, Math.min(from + USERS_PER_QUERY, candidates.size()))).keySet());
+        return existing;
+    }
+
+    @Override
+    public List<String> getRepositories(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+
+        List<String> repositories = new ArrayList<>();
+        String url = apiUrl + String.format("/orgs/%s/repos?per_page=%d", organization, PAGE_SIZE);
+
+        for (JsonNode node : getAllPages(url, "repositories", organization)) {
+            JsonNode nameNode = node.get("name");
+            if (nameNode == null || !nameNode.isTextual())
+                throw new UnexpectedFormatException(
+                        "Expected 'name' field of type string in each repository object, got: %s", node);
+
+            repositories.add(nameNode.asText());
+        }
+        return repositories;
+    }
+
+    @Override
+    public Map<String, RepositoryPermission> getTeamRepositories(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+
+        Map<String, RepositoryPermission> repositories = new LinkedHashMap<>();
+        String url = apiUrl + String.format("/orgs/%s/teams/%s/repos?per_page=%d", organization, teamSlug, PAGE_SIZE);
+
+        for (JsonNode node : getAllPages(url, "team repositories", organization)) {
+            JsonNode nameNode = node.get("name");
+            JsonNode permissionsNode = node.get("permissions");
+            if (nameNode == null || !nameNode.isTextual() || permissionsNode == null || !permissionsNode.isObject())
+                throw new UnexpectedFormatException(
+                        "Expected 'name' and 'permissions' fields in each repository object, got: %s", node);
+
+            // The highest permission given; custom roles also set these flags
+            RepositoryPermission permission = null;
+            for (var candidate : RepositoryPermission.values())
+                if (permissionsNode.path(candidate.apiName()).asBoolean())
+                    permission = candidate;
+            if (permission != null)
+                repositories.put(nameNode.asText(), permission);
+        }
+        return repositories;
+    }
+
+    @Override
+    public void grantRepositoryToTeam(String organization, String teamSlug, String repository,
+            RepositoryPermission permission) throws GithubApiException, IOException, InterruptedException {
+
+        String url = apiUrl + String.format("/orgs/%s/teams/%s/repos/%s/%s",
+                organization, teamSlug, organization, repository);
+        String json = String.format("{\"permission\":\"%s\"}", permission.apiName());
+        HttpRequest request = createHttpRequestBuilder(url)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+
+        HttpResponse<String> response = send(request);
+
+        if (response.statusCode() == STATUS_NO_CONTENT)
+            return;
+
+        throw new RejectedOperationException(
+                "Failed to grant '%s' on repository '%s' to team (slug) '%s' in organization '%s'. "
+                        + "Status: %d. Response: %s",
+                permission.apiName(), repository, teamSlug, organization, response.statusCode(), response.body());
+    }
+
     @Override
     public void removeMemberFromOrganization(String organization, String githubUsername)
             throws GithubApiException, IOException, InterruptedException {
 
-        String url = String.format("https://api.github.com/orgs/%s/members/%s", organization, githubUsername);
+        String url = apiUrl + String.format("/orgs/%s/members/%s", organization, githubUsername);
         HttpRequest request = createHttpRequestBuilder(url)
                 .DELETE()
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = send(request);
 
         // 204 No Content: removed; 404 Not Found: not a member; both treated as success
         if (response.statusCode() == STATUS_NO_CONTENT || response.statusCode() == STATUS_NOT_FOUND)
@@ -248,11 +476,270 @@ public final class GithubApiImpl implements GithubApi {
 
     //# Auxiliary methods -----------------------------------
 
+    private static HttpClient createHttpClient(Transport transport) {
+        return HttpClient.newBuilder()
+                .version(transport.http2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(transport.connectTimeout())
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
     private Builder createHttpRequestBuilder(String url) {
-        return HttpRequest.newBuilder()
+        Builder builder = HttpRequest.newBuilder()
                 .uri(URI.create(url))
+                .timeout(transport.requestTimeout())
                 .header("Authorization", "Bearer " + token)
                 .header("Accept", "application/vnd.github+json");
+        if (transport.compression())
+            builder.header("Accept-Encoding", "gzip, deflate");
+        return builder;
+    }
+
+    // Sends the request within the concurrency limit, which adapts to the latency and throttling of the response.
+    // A throttled request is sent again once the pause asked by GitHub is over, up to MAX_THROTTLED_ATTEMPTS times.
+    // If the hourly rate limit is used up, it is sent again when the limit is reset, unless that is too far off
+    private HttpResponse<String> send(HttpRequest request)
+            throws GithubApiException, IOException, InterruptedException {
+        var event = GithubCallEvent.begin(request.method(), request.uri().getPath());
+
+        HttpResponse<String> response = null;
+        try {
+            for (int attempt = 1;; attempt++) {
+                response = sendOnce(request, event);
+                if (!isThrottled(response) || attempt == MAX_THROTTLED_ATTEMPTS)
+                    return response;
+
+                if (isRateLimitUsedUp(response))
+                    Thread.sleep(untilRateLimitReset(response));
+                else if (limiter == null) // Otherwise, the limiter waits for the pause when the request is acquired
+                    Thread.sleep(retryAfter(response));
+                event.retried();
+            }
+        } finally {
+            event.end(response != null ? response.statusCode() : 0);
+        }
+    }
+
+    private HttpResponse<String> sendOnce(HttpRequest request, GithubCallEvent event)
+            throws IOException, InterruptedException {
+        if (limiter == null)
+            return exchange(request, event);
+
+        long waitingSince = System.nanoTime();
+        long acquiredAt = limiter.acquire();
+        event.queued(acquiredAt - waitingSince);
+        HttpResponse<String> response = null;
+        try {
+            response = exchange(request, event);
+            return response;
+        } finally {
+            // Sending fewer requests at the same time does not help when the hourly rate limit is used up
+            boolean throttled = response != null && isThrottled(response) && !isRateLimitUsedUp(response);
+            limiter.release(acquiredAt, throttled, throttled ? retryAfter(response) : null);
+        }
+    }
+
+    // The JDK client does not decompress the responses, so the body is decoded here according to 'Content-Encoding'.
+    // If it cannot be decoded, the client throws an IOException. Only reads (GET) are safe to be hedged
+    private HttpResponse<String> exchange(HttpRequest request, GithubCallEvent event)
+            throws IOException, InterruptedException {
+        HttpResponse.BodyHandler<String> handler = responseInfo -> HttpResponse.BodySubscribers.mapping(
+                HttpResponse.BodySubscribers.ofByteArray(),
+                body -> {
+                    event.received(body.length);
+                    return decode(body, responseInfo.headers().firstValue("Content-Encoding").orElse(""));
+                });
+
+        HttpResponse<String> response = hedger != null && "GET".equals(request.method())
+                ? hedger.send(client, request, handler, event::retried)
+                : client.send(request, handler);
+
+        response.headers().firstValue("X-RateLimit-Remaining")
+                .filter(value -> value.matches("\\d+"))
+                .ifPresent(value -> rateLimitRemaining = Integer.parseInt(value));
+        return response;
+    }
+
+    // Secondary rate limits are answered with 403 or 429 and either 'Retry-After' or no requests remaining
+    private static boolean isThrottled(HttpResponse<String> response) {
+        if (response.statusCode() == STATUS_TOO_MANY_REQUESTS)
+            return true;
+        return response.statusCode() == STATUS_FORBIDDEN
+                && (response.headers().firstValue("Retry-After").isPresent()
+                        || "0".equals(response.headers().firstValue("X-RateLimit-Remaining").orElse(null)));
+    }
+
+    // The primary (hourly) rate limit is answered with no requests remaining and without 'Retry-After'
+    private static boolean isRateLimitUsedUp(HttpResponse<String> response) {
+        return (response.statusCode() == STATUS_FORBIDDEN || response.statusCode() == STATUS_TOO_MANY_REQUESTS)
+                && response.headers().firstValue("Retry-After").isEmpty()
+                && "0".equals(response.headers().firstValue("X-RateLimit-Remaining").orElse(null));
+    }
+
+    // 'X-RateLimit-Reset' has the instant (in seconds since the epoch) when the requests of the hour are restored
+    private static Duration untilRateLimitReset(HttpResponse<String> response) throws RejectedOperationException {
+        var reset = response.headers().firstValue("X-RateLimit-Reset")
+                .filter(value -> value.matches("\\d+"))
+                .map(value -> Instant.ofEpochSecond(Long.parseLong(value)))
+                .orElse(null);
+        if (reset == null)
+            throw new RejectedOperationException("The rate limit of GitHub has been used up. Status: %d. Response: %s",
+                    response.statusCode(), response.body());
+
+        var wait = Duration.between(Instant.now(), reset).plusSeconds(1); // The reset is rounded to seconds
+        if (wait.compareTo(MAX_RATE_LIMIT_WAIT) > 0)
+            throw new RejectedOperationException(
+                    "The rate limit of GitHub has been used up until %s. Run again after that time.", reset);
+        return wait.isNegative() ? Duration.ZERO : wait;
+    }
+
+    // GitHub answers 422 with "Over invitation rate limit" when no more invitations can be sent today
+    private static boolean isInvitationLimit(HttpResponse<String> response) {
+        return response.statusCode() == STATUS_UNPROCESSABLE_ENTITY
+                && response.body().toLowerCase(Locale.ROOT).contains("invitation rate limit");
+    }
+
+    // Without 'Retry-After', GitHub asks to wait at least one minute before sending the request again
+    private static Duration retryAfter(HttpResponse<String> response) {
+        return response.headers().firstValue("Retry-After")
+                .filter(value -> value.matches("\\d+"))
+                .map(value -> Duration.ofSeconds(Long.parseLong(value)))
+                .orElse(DEFAULT_RETRY_AFTER);
+    }
+
+    private static String decode(byte[] body, String contentEncoding) {
+        try {
+            InputStream decoded = switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+                case "gzip", "x-gzip" -> new GZIPInputStream(new ByteArrayInputStream(body));
+                case "deflate" -> new InflaterInputStream(new ByteArrayInputStream(body));
+                case "", "identity" -> new ByteArrayInputStream(body);
+                default -> throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+            };
+            try (decoded) {
+                return new String(decoded.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid " + contentEncoding + " response body", e);
+        }
+    }
+
+    // Sends the request to create a team (the JSON body has the name, privacy and, optionally, the parent)
+    private Optional<String> postTeam(String organization, String teamDisplayName, String json)
+            throws GithubApiException, IOException, InterruptedException {
+
+        String url = apiUrl + "/orgs/" + organization + "/teams";
+        HttpRequest request = createHttpRequestBuilder(url)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+
+        HttpResponse<String> response = send(request);
+
+        if (response.statusCode() == STATUS_CREATED) {
+            JsonNode root = mapper.readTree(response.body());
+            JsonNode slugNode = root.get("slug");
+            if (slugNode == null || !slugNode.isTextual())
+                throw new UnexpectedFormatException(
+                        "Expected 'slug' field of type string in created team object, got: %s", root);
+
+            return Optional.of(slugNode.asText());
+        }
+
+        if (response.statusCode() == STATUS_UNPROCESSABLE_ENTITY) // Team already exists
+            return Optional.empty();
+
+        throw new RejectedOperationException(
+                "Failed to create team '%s' in organization '%s'. Status: %d. Response: %s",
+                teamDisplayName, organization, response.statusCode(), response.body());
+    }
+
+    // One GraphQL query with an aliased 'user' field per login. A missing user comes as null (with an error)
+    private Map<String, Long> findUserIdsInBatch(List<String> logins)
+            throws GithubApiException, IOException, InterruptedException {
+
+        StringBuilder declarations = new StringBuilder();
+        StringBuilder fields = new StringBuilder();
+        ObjectNode variables = mapper.createObjectNode();
+        for (int i = 0; i < logins.size(); i++) {
+            declarations.append(i == 0 ? "" : ", ").append("$l").append(i).append(": String!");
+            fields.append(" u").append(i).append(": user(login: $l").append(i).append(") { databaseId }");
+            variables.put("l" + i, logins.get(i));
+        }
+        ObjectNode body = mapper.createObjectNode();
+        body.put("query", "query(" + declarations + ") {" + fields + " }");
+        body.set("variables", variables);
+
+        HttpRequest request = createHttpRequestBuilder(graphqlUrl())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build();
+
+        HttpResponse<String> response = send(request);
+
+        if (response.statusCode() != STATUS_OK)
+            throw new RejectedOperationException(
+                    "Failed to look up %d user(s). Status: %d. Response: %s",
+                    logins.size(), response.statusCode(), response.body());
+
+        JsonNode data = mapper.readTree(response.body()).get("data");
+        if (data == null || !data.isObject())
+            throw new UnexpectedFormatException("Expected a 'data' object looking up users, got: %s", response.body());
+
+        Map<String, Long> ids = new HashMap<>();
+        for (int i = 0; i < logins.size(); i++) {
+            JsonNode user = data.path("u" + i);
+            if (!user.isObject())
+                continue;
+            if (!user.path("databaseId").isNumber())
+                throw new UnexpectedFormatException("Expected a numeric 'databaseId' for user '%s', got: %s",
+                        logins.get(i), user);
+            ids.put(logins.get(i), user.get("databaseId").asLong());
+        }
+        return ids;
+    }
+
+    // Reads a paginated list, following the 'next' links of the 'Link' header, and returns the items of all the pages
+    private List<JsonNode> getAllPages(String url, String description, String organization)
+            throws GithubApiException, IOException, InterruptedException {
+
+        List<JsonNode> items = new ArrayList<>();
+        Optional<String> nextPage = Optional.of(url);
+        while (nextPage.isPresent()) {
+            HttpRequest request = createHttpRequestBuilder(nextPage.get()).build();
+
+            HttpResponse<String> response = send(request);
+
+            if (response.statusCode() != STATUS_OK)
+                throw new RejectedOperationException(
+                        "Failed to get %s for organization '%s'. Status: %d. Response: %s",
+                        description, organization, response.statusCode(), response.body());
+
+            JsonNode root = mapper.readTree(response.body());
+
+            if (!root.isArray())
+                throw new UnexpectedFormatException(
+                        "Expected a JSON array for %s, got: %s", description, root.getNodeType());
+
+            root.forEach(items::add);
+            nextPage = findNextPage(response);
+        }
+        return items;
+    }
+
+    // In GitHub Enterprise Server the REST API is at '/api/v3' and the GraphQL API at '/api/graphql'
+    private String graphqlUrl() {
+        return apiUrl.endsWith("/v3") ? apiUrl.substring(0, apiUrl.length() - "/v3".length()) + "/graphql"
+                : apiUrl + "/graphql";
+    }
+
+    // Extracts the URL of the next page from a header like: <https://...?page=2>; rel="next", <https://...>; rel="last"
+    private static Optional<String> findNextPage(HttpResponse<String> response) {
+        for (String link : response.headers().firstValue("Link").orElse("").split(",")) {
+            String[] parts = link.split(";");
+            if (parts.length == 2 && parts[1].trim().equals("rel=\"next\""))
+                return Optional.of(parts[0].trim().replaceAll("^<|>$", ""));
+        }
+        return Optional.empty();
     }
 
 }
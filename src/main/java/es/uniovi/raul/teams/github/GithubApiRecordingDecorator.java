@@ -0,0 +1,211 @@
+package es.uniovi.raul.teams.github;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Decorator for GithubApi that writes every call, with its response (or error) and the time it took, to a trace
+ * file. The trace can be served back later with {@link GithubApiReplayer} to repeat a real sync offline.
+ *
+ * Each call is written as soon as it finishes, so the trace is usable even if the run is aborted.
+ */
+public final class GithubApiRecordingDecorator implements GithubApi, AutoCloseable {
+
+    private final GithubApi delegate;
+    private final Writer writer;
+
+    public GithubApiRecordingDecorator(GithubApi delegate, Path traceFile) throws IOException {
+        if (delegate == null)
+            throw new IllegalArgumentException("Delegate cannot be null.");
+        if (traceFile == null)
+            throw new IllegalArgumentException("Trace file cannot be null.");
+
+        this.delegate = delegate;
+        this.writer = Files.newBufferedWriter(traceFile, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<Team> getTeams(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getTeams", List.of(organization),
+                () -> delegate.getTeams(organization), ApiTrace::fromTeams);
+    }
+
+    @Override
+    public Optional<String> createTeam(String organization, String teamDisplayName)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("createTeam", List.of(organization, teamDisplayName),
+                () -> delegate.createTeam(organization, teamDisplayName), ApiTrace::fromSlug);
+    }
+
+    @Override
+    public Optional<String> createTeam(String organization, String teamDisplayName, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("createTeam", List.of(organization, teamDisplayName, String.valueOf(parentTeamId)),
+                () -> delegate.createTeam(organization, teamDisplayName, parentTeamId), ApiTrace::fromSlug);
+    }
+
+    @Override
+    public void setParentTeam(String organization, String teamSlug, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+        recordCall("setParentTeam", List.of(organization, teamSlug, String.valueOf(parentTeamId)), () -> {
+            delegate.setParentTeam(organization, teamSlug, parentTeamId);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void deleteTeam(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        recordCall("deleteTeam", List.of(organization, teamSlug), () -> {
+            delegate.deleteTeam(organization, teamSlug);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void inviteStudentToTeam(String organization, String teamSlug, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        recordCall("inviteStudentToTeam", List.of(organization, teamSlug, githubUsername), () -> {
+            delegate.inviteStudentToTeam(organization, teamSlug, githubUsername);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void removeStudentFromTeam(String organization, String teamSlug, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        recordCall("removeStudentFromTeam", List.of(organization, teamSlug, githubUsername), () -> {
+            delegate.removeStudentFromTeam(organization, teamSlug, githubUsername);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public Map<String, Long> getTeamMembers(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getTeamMembers", List.of(organization, teamSlug),
+                () -> delegate.getTeamMembers(organization, teamSlug), ApiTrace::fromIds);
+    }
+
+    @Override
+    public List<String> getTeamInvitations(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getTeamInvitations", List.of(organization, teamSlug),
+                () -> delegate.getTeamInvitations(organization, teamSlug), ApiTrace::fromStrings);
+    }
+
+    @Override
+    public List<Invitation> getOrganizationInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getOrganizationInvitations", List.of(organization),
+                () -> delegate.getOrganizationInvitations(organization), ApiTrace::fromInvitations);
+    }
+
+    @Override
+    public List<FailedInvitation> getFailedInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getFailedInvitations", List.of(organization),
+                () -> delegate.getFailedInvitations(organization), ApiTrace::fromFailedInvitations);
+    }
+
+    @Override
+    public List<String> getInvitationTeams(String organization, long invitationId)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getInvitationTeams", List.of(organization, String.valueOf(invitationId)),
+                () -> delegate.getInvitationTeams(organization, invitationId), ApiTrace::fromStrings);
+    }
+
+    @Override
+    public Set<String> findExistingUsers(Collection<String> logins)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("findExistingUsers", logins.stream().sorted().toList(),
+                () -> delegate.findExistingUsers(logins),
+                existing -> ApiTrace.fromStrings(existing.stream().sorted().toList()));
+    }
+
+    @Override
+    public List<String> getRepositories(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getRepositories", List.of(organization),
+                () -> delegate.getRepositories(organization), ApiTrace::fromStrings);
+    }
+
+    @Override
+    public Map<String, RepositoryPermission> getTeamRepositories(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return recordCall("getTeamRepositories", List.of(organization, teamSlug),
+                () -> delegate.getTeamRepositories(organization, teamSlug), ApiTrace::fromPermissions);
+    }
+
+    @Override
+    public void grantRepositoryToTeam(String organization, String teamSlug, String repository,
+            RepositoryPermission permission) throws GithubApiException, IOException, InterruptedException {
+        recordCall("grantRepositoryToTeam", List.of(organization, teamSlug, repository, permission.apiName()), () -> {
+            delegate.grantRepositoryToTeam(organization, teamSlug, repository, permission);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void removeMemberFromOrganization(String organization, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        recordCall("removeMemberFromOrganization", List.of(organization, githubUsername), () -> {
+            delegate.removeMemberFromOrganization(organization, githubUsername);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T call() throws GithubApiException, IOException, InterruptedException;
+    }
+
+    // Makes the call and writes it to the trace. 'encoder' is null for void operations
+    private <T> T recordCall(String operation, List<String> args, Call<T> call, Function<T, JsonNode> encoder)
+            throws GithubApiException, IOException, InterruptedException {
+
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            var node = ApiTrace.call(operation, args, elapsedMicros(start));
+            if (encoder != null)
+                node.set("result", encoder.apply(result));
+            write(node);
+            return result;
+
+        } catch (GithubApiException | IOException e) {
+            var node = ApiTrace.call(operation, args, elapsedMicros(start));
+            node.put("error", ApiTrace.errorType(e));
+            node.put("message", e.getMessage());
+            write(node);
+            throw e;
+        }
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000;
+    }
+
+    private void write(JsonNode node) throws IOException {
+        synchronized (writer) {
+            writer.write(ApiTrace.MAPPER.writeValueAsString(node));
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+}
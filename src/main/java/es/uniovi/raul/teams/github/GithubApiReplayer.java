@@ -0,0 +1,191 @@
+package es.uniovi.raul.teams.github;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * GithubApi that serves the responses of a trace written by {@link GithubApiRecordingDecorator}, without connecting
+ * to GitHub. Replaying the trace of a real sync makes it possible to compare changes in the code on the same workload.
+ *
+ * Each call gets the response recorded for the same operation and arguments; if the same call was made several times,
+ * the responses are served in the order they were recorded. A call that is not in the trace is rejected.
+ *
+ * Optionally, each call takes the same time it took when it was recorded.
+ */
+public final class GithubApiReplayer implements GithubApi {
+
+    private final Map<String, Deque<JsonNode>> calls = new HashMap<>();
+    private final boolean reproduceLatency;
+
+    /**
+     * Loads the trace file.
+     *
+     * @param traceFile        file written by {@link GithubApiRecordingDecorator}
+     * @param reproduceLatency whether each call waits the time it took when it was recorded
+     * @throws IOException if the file cannot be read or is not a valid trace
+     */
+    public GithubApiReplayer(Path traceFile, boolean reproduceLatency) throws IOException {
+        if (traceFile == null)
+            throw new IllegalArgumentException("Trace file cannot be null.");
+
+        this.reproduceLatency = reproduceLatency;
+        for (String line : Files.readAllLines(traceFile, StandardCharsets.UTF_8)) {
+            if (line.isBlank())
+                continue;
+
+            JsonNode node = ApiTrace.MAPPER.readTree(line);
+            if (!node.path("op").isTextual() || !node.path("args").isArray())
+                throw new IOException(String.format("'%s' is not a valid trace file. Invalid call: %s", traceFile, line));
+
+            List<String> args = new ArrayList<>();
+            node.get("args").forEach(arg -> args.add(arg.asText()));
+            calls.computeIfAbsent(ApiTrace.key(node.get("op").asText(), args), key -> new ArrayDeque<>()).add(node);
+        }
+    }
+
+    /**
+     * Returns the number of recorded calls that have not been replayed (zero if the replayed run made exactly the
+     * same calls as the recorded one).
+     */
+    public synchronized int getUnusedCalls() {
+        return calls.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    @Override
+    public List<Team> getTeams(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getTeams", List.of(organization), ApiTrace::toTeams);
+    }
+
+    @Override
+    public Optional<String> createTeam(String organization, String teamDisplayName)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("createTeam", List.of(organization, teamDisplayName), ApiTrace::toSlug);
+    }
+
+    @Override
+    public Optional<String> createTeam(String organization, String teamDisplayName, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("createTeam", List.of(organization, teamDisplayName, String.valueOf(parentTeamId)),
+                ApiTrace::toSlug);
+    }
+
+    @Override
+    public void setParentTeam(String organization, String teamSlug, long parentTeamId)
+            throws GithubApiException, IOException, InterruptedException {
+        replay("setParentTeam", List.of(organization, teamSlug, String.valueOf(parentTeamId)), result -> null);
+    }
+
+    @Override
+    public void deleteTeam(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        replay("deleteTeam", List.of(organization, teamSlug), result -> null);
+    }
+
+    @Override
+    public void inviteStudentToTeam(String organization, String teamSlug, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        replay("inviteStudentToTeam", List.of(organization, teamSlug, githubUsername), result -> null);
+    }
+
+    @Override
+    public void removeStudentFromTeam(String organization, String teamSlug, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        replay("removeStudentFromTeam", List.of(organization, teamSlug, githubUsername), result -> null);
+    }
+
+    @Override
+    public Map<String, Long> getTeamMembers(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getTeamMembers", List.of(organization, teamSlug), ApiTrace::toIds);
+    }
+
+    @Override
+    public List<String> getTeamInvitations(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getTeamInvitations", List.of(organization, teamSlug), ApiTrace::toStrings);
+    }
+
+    @Override
+    public List<Invitation> getOrganizationInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getOrganizationInvitations", List.of(organization), ApiTrace::toInvitations);
+    }
+
+    @Override
+    public List<FailedInvitation> getFailedInvitations(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getFailedInvitations", List.of(organization), ApiTrace::toFailedInvitations);
+    }
+
+    @Override
+    public List<String> getInvitationTeams(String organization, long invitationId)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getInvitationTeams", List.of(organization, String.valueOf(invitationId)), ApiTrace::toStrings);
+    }
+
+    @Override
+    public Set<String> findExistingUsers(Collection<String> logins)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("findExistingUsers", logins.stream().sorted().toList(),
+                result -> new HashSet<>(ApiTrace.toStrings(result)));
+    }
+
+    @Override
+    public List<String> getRepositories(String organization)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getRepositories", List.of(organization), ApiTrace::toStrings);
+    }
+
+    @Override
+    public Map<String, RepositoryPermission> getTeamRepositories(String organization, String teamSlug)
+            throws GithubApiException, IOException, InterruptedException {
+        return replay("getTeamRepositories", List.of(organization, teamSlug), ApiTrace::toPermissions);
+    }
+
+    @Override
+    public void grantRepositoryToTeam(String organization, String teamSlug, String repository,
+            RepositoryPermission permission) throws GithubApiException, IOException, InterruptedException {
+        replay("grantRepositoryToTeam", List.of(organization, teamSlug, repository, permission.apiName()),
+                result -> null);
+    }
+
+    @Override
+    public void removeMemberFromOrganization(String organization, String githubUsername)
+            throws GithubApiException, IOException, InterruptedException {
+        replay("removeMemberFromOrganization", List.of(organization, githubUsername), result -> null);
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private <T> T replay(String operation, List<String> args, Function<JsonNode, T> decoder)
+            throws GithubApiException, IOException, InterruptedException {
+
+        JsonNode call;
+        synchronized (this) {
+            call = Optional.ofNullable(calls.get(ApiTrace.key(operation, args))).map(Deque::poll).orElse(null);
+        }
+        if (call == null)
+            throw new RejectedOperationException("The trace has no (more) recorded calls to %s%s", operation, args);
+
+        if (reproduceLatency)
+            TimeUnit.MICROSECONDS.sleep(call.path("micros").asLong());
+
+        String message = call.path("message").asText();
+        switch (call.path("error").asText()) {
+            case ApiTrace.ERROR_REJECTED -> throw new RejectedOperationException(message);
+            case ApiTrace.ERROR_INVITATION_LIMIT -> throw new InvitationLimitException(message);
+            case ApiTrace.ERROR_FORMAT -> throw new UnexpectedFormatException(message);
+            case ApiTrace.ERROR_IO -> throw new IOException(message);
+            default -> {
+                return decoder.apply(call.path("result"));
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package es.uniovi.raul.teams.github;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event of a request to GitHub, from the moment it waits for the concurrency limit until its body
+ * has been decoded (the parsing made by each operation comes after it).
+ */
+@Name("es.uniovi.raul.teams.GithubCall")
+@Label("GitHub Call")
+@Category({ "Teams", "GitHub" })
+@Description("A request to the GitHub API")
+final class GithubCallEvent extends Event {
+
+    @Label("Method")
+    private String method;
+
+    @Label("Endpoint")
+    @Description("Path of the request, without the query")
+    private String endpoint;
+
+    @Label("Status")
+    private int status;
+
+    @Label("Response Bytes")
+    @Description("Size of the body as received, before decompressing it")
+    @DataAmount
+    private long responseBytes;
+
+    @Label("Retries")
+    @Description("Requests sent again for this one (hedging or throttling)")
+    private int retries;
+
+    @Label("Queued")
+    @Description("Time waiting for the concurrency limit")
+    @Timespan
+    private long queued;
+
+    /**
+     * Creates the event of a request and starts timing it.
+     */
+    static GithubCallEvent begin(String method, String endpoint) {
+        var event = new GithubCallEvent();
+        event.method = method;
+        event.endpoint = endpoint;
+        event.begin();
+        return event;
+    }
+
+    void queued(long nanos) {
+        queued += nanos;
+    }
+
+    // Called by the thread of the client that receives the body
+    void received(long bytes) {
+        responseBytes = bytes;
+    }
+
+    void retried() {
+        retries++;
+    }
+
+    /**
+     * Ends the request with the status of its response (0 if it failed) and commits the event (if it is being
+     * recorded).
+     */
+    void end(int statusCode) {
+        status = statusCode;
+        commit();
+    }
+}
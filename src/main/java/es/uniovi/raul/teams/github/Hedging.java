@@ -0,0 +1,34 @@
+package es.uniovi.raul.teams.github;
+
+import java.time.Duration;
+
+/**
+ * Settings of the hedging of read requests: if the response to a GET has not arrived after a delay, the same
+ * request is sent again and the first response to arrive is used. A few slow responses then do not hold up the
+ * whole sync.
+ *
+ * @param delay  time to wait before sending the duplicate request, or null to use the 95th percentile of the
+ *               latencies observed so far (so only the slowest 5% of the requests are duplicated)
+ * @param budget maximum fraction of the requests that can be duplicated (e.g., 0.05), so that hedging does not
+ *               use up the rate limit
+ */
+public record Hedging(Duration delay, double budget) {
+
+    public static final double DEFAULT_BUDGET = 0.05;
+
+    public Hedging {
+
+        if (delay != null && (delay.isNegative() || delay.isZero()))
+            throw new IllegalArgumentException("Hedging delay must be positive.");
+
+        if (budget <= 0 || budget > 1)
+            throw new IllegalArgumentException("Hedging budget must be greater than 0 and at most 1.");
+    }
+
+    /**
+     * Hedging after the 95th percentile of the observed latencies.
+     */
+    public static Hedging atP95(double budget) {
+        return new Hedging(null, budget);
+    }
+}
@@ -0,0 +1,23 @@
+package es.uniovi.raul.teams.github;
+
+/**
+ * Store for the information of a pending invitation to a GitHub organization.
+ *
+ * Team invitations are organization invitations that target one or more teams, so the
+ * organization-wide list of invitations covers every pending team invitation.
+ *
+ * @param id        the identifier of the invitation (used to ask for the teams it targets)
+ * @param login     the GitHub username of the invitee
+ * @param teamCount the number of teams the invitation targets
+ */
+public record Invitation(long id, String login, int teamCount) {
+
+    public Invitation {
+
+        if (login == null || login.isBlank())
+            throw new IllegalArgumentException("Login cannot be null or blank.");
+
+        if (teamCount < 0)
+            throw new IllegalArgumentException("Team count cannot be negative.");
+    }
+}
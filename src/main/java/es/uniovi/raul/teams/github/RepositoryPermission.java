@@ -0,0 +1,47 @@
+package es.uniovi.raul.teams.github;
+
+import java.util.*;
+
+/**
+ * Permission of a team on a repository, from the lowest to the highest.
+ *
+ * The API names them "pull" and "push" when granting, and "read" and "write" in the web interface and the role of
+ * a team; both are accepted.
+ */
+public enum RepositoryPermission {
+    PULL("read"),
+    TRIAGE("triage"),
+    PUSH("write"),
+    MAINTAIN("maintain"),
+    ADMIN("admin");
+
+    private final String roleName;
+
+    RepositoryPermission(String roleName) {
+        this.roleName = roleName;
+    }
+
+    /**
+     * Name of the permission when granting it (e.g., "push").
+     */
+    public String apiName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parses the API name or the role name of a permission (e.g., "push" or "write"), ignoring case.
+     *
+     * @throws IllegalArgumentException if it is not a permission
+     */
+    public static RepositoryPermission parse(String text) {
+        if (text == null || text.isBlank())
+            throw new IllegalArgumentException("Permission cannot be null or blank.");
+
+        String name = text.strip().toLowerCase(Locale.ROOT);
+        return Arrays.stream(values())
+                .filter(permission -> permission.apiName().equals(name) || permission.roleName.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Not a permission (pull/read, triage, push/write, maintain or admin): " + text));
+    }
+}
@@ -0,0 +1,152 @@
+package es.uniovi.raul.teams.github;
+
+import java.io.IOException;
+import java.net.http.*;
+import java.net.http.HttpResponse.BodyHandler;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends idempotent requests applying a {@link Hedging} policy: if the response has not arrived after the delay, and
+ * the budget allows it, the request is sent again and the first successful response is used.
+ *
+ * The latencies of the last requests are kept to compute the delay when it is the 95th percentile. Until there are
+ * enough of them, no request is hedged.
+ *
+ * With a {@link ConcurrencyLimiter}, the hedge takes a place of its own, so a request is not hedged if the limit is
+ * reached or the requests are paused after GitHub throttling them.
+ */
+final class RequestHedger {
+
+    private static final int LATENCY_WINDOW = 200;
+    private static final int MIN_SAMPLES = 20;
+
+    private final Hedging hedging;
+    private final ConcurrencyLimiter limiter; // null if the requests are not limited
+    private final Deque<Long> latencies = new ArrayDeque<>(); // Nanoseconds of the last requests
+    private long requests;
+    private long hedgedRequests;
+
+    RequestHedger(Hedging hedging) {
+        this(hedging, null);
+    }
+
+    RequestHedger(Hedging hedging, ConcurrencyLimiter limiter) {
+        if (hedging == null)
+            throw new IllegalArgumentException("Hedging cannot be null.");
+
+        this.hedging = hedging;
+        this.limiter = limiter;
+    }
+
+    synchronized long getHedgedRequests() {
+        return hedgedRequests;
+    }
+
+    <T> HttpResponse<T> send(HttpClient client, HttpRequest request, BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        return send(client, request, handler, () -> {
+        });
+    }
+
+    /**
+     * Sends the request as {@link #send(HttpClient, HttpRequest, BodyHandler)}, running 'onHedge' if it is sent again.
+     */
+    <T> HttpResponse<T> send(HttpClient client, HttpRequest request, BodyHandler<T> handler, Runnable onHedge)
+            throws IOException, InterruptedException {
+
+        long start = System.nanoTime();
+        var delay = nextDelay();
+        var primary = client.sendAsync(request, handler);
+        CompletableFuture<HttpResponse<T>> hedge = null;
+        try {
+            HttpResponse<T> response;
+            if (delay.isEmpty())
+                response = primary.get();
+            else {
+                try {
+                    response = primary.get(delay.get().toNanos(), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (canHedge()) {
+                        hedge = client.sendAsync(request, handler);
+                        onHedge.run();
+                        response = firstSuccessful(primary, hedge).get();
+                    } else
+                        response = primary.get();
+                }
+            }
+            recordLatency(System.nanoTime() - start);
+            return response;
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io)
+                throw io;
+            throw new IOException(e.getCause());
+
+        } finally {
+            // The loser (or both, if interrupted) is no longer needed
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+                if (limiter != null)
+                    limiter.cancel();
+            }
+        }
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    // Empty if this request cannot be hedged
+    private synchronized Optional<Duration> nextDelay() {
+        requests++;
+        if (hedging.delay() != null)
+            return Optional.of(hedging.delay());
+        if (latencies.size() < MIN_SAMPLES)
+            return Optional.empty();
+
+        var sorted = latencies.stream().sorted().toList();
+        return Optional.of(Duration.ofNanos(sorted.get((int) Math.ceil(sorted.size() * 0.95) - 1)));
+    }
+
+    // Takes the budget and a place for the hedge within the limit of requests at the same time, if one is free now
+    private boolean canHedge() {
+        if (limiter != null && limiter.tryAcquire().isEmpty())
+            return false;
+        if (takeBudget())
+            return true;
+
+        if (limiter != null)
+            limiter.cancel();
+        return false;
+    }
+
+    private synchronized boolean takeBudget() {
+        if (hedgedRequests + 1 > hedging.budget() * requests)
+            return false;
+
+        hedgedRequests++;
+        return true;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies.addLast(nanos);
+        if (latencies.size() > LATENCY_WINDOW)
+            latencies.removeFirst();
+    }
+
+    // Completes with the first response, or fails if both requests fail
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        var winner = new CompletableFuture<T>();
+        var failures = new AtomicInteger();
+        for (var future : List.of(first, second))
+            future.whenComplete((result, error) -> {
+                if (error == null)
+                    winner.complete(result);
+                else if (failures.incrementAndGet() == 2)
+                    winner.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            });
+        return winner;
+    }
+}
@@ -3,12 +3,15 @@ package es.uniovi.raul.teams.github;
 /**
  * Store for the information of a team in a GitHub organization.
  *
- * Each team has a display name and a slug (unique identifier used in GitHub API calls).
+ * Each team has a display name and a slug (unique identifier used in GitHub API calls). Teams can be nested: a child
+ * team inherits the repository permissions granted to its parent.
  *
  * @param displayName the display name of the team
  * @param slug the unique identifier (slug) of the team
+ * @param id the numeric identifier of the team (needed to make it the parent of other teams), or 0 if unknown
+ * @param parentSlug the slug of the parent team, or null if it is a top-level team
  */
-public record Team(String displayName, String slug) {
+public record Team(String displayName, String slug, long id, String parentSlug) {
 
     public Team {
 
@@ -17,5 +20,22 @@ public record Team(String displayName, String slug) {
 
         if (slug == null || slug.isBlank())
             throw new IllegalArgumentException("Slug cannot be null or blank.");
+
+        if (id < 0)
+            throw new IllegalArgumentException("Id cannot be negative.");
+
+        if (parentSlug != null && parentSlug.isBlank())
+            throw new IllegalArgumentException("Parent slug cannot be blank.");
+    }
+
+    /**
+     * Creates a top-level team whose id is not known.
+     */
+    public Team(String displayName, String slug) {
+        this(displayName, slug, 0, null);
+    }
+
+    public boolean isChildOf(Team team) {
+        return team.slug().equals(parentSlug);
     }
 }
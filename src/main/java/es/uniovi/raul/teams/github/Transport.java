@@ -0,0 +1,47 @@
+package es.uniovi.raul.teams.github;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Settings of the HTTP connection used by {@link GithubApiImpl}.
+ *
+ * @param connectTimeout maximum time to establish a connection
+ * @param requestTimeout maximum time to wait for the response of a request (a hung request fails instead of
+ *                       stalling the sync)
+ * @param http2          whether to prefer HTTP/2 (falls back to HTTP/1.1 if the server does not support it)
+ * @param compression    whether to ask for gzip/deflate compressed responses (large lists are much smaller)
+ * @param hedging        how slow reads are hedged, or null to not hedge them
+ * @param maxConcurrency maximum requests sent at the same time. Above one, the actual limit adapts between one and
+ *                       this value to the latency and the throttling of GitHub
+ * @param apiUrl         root of the REST API (another one for GitHub Enterprise Server, or a stand-in for tests)
+ */
+public record Transport(Duration connectTimeout, Duration requestTimeout, boolean http2, boolean compression,
+        Hedging hedging, int maxConcurrency, URI apiUrl) {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    public static final URI DEFAULT_API_URL = URI.create("https://api.github.com");
+
+    public Transport {
+
+        if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero())
+            throw new IllegalArgumentException("Connect timeout cannot be null and must be positive.");
+
+        if (requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero())
+            throw new IllegalArgumentException("Request timeout cannot be null and must be positive.");
+
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Maximum concurrency must be at least 1.");
+
+        if (apiUrl == null || !apiUrl.isAbsolute())
+            throw new IllegalArgumentException("API URL cannot be null and must be absolute.");
+    }
+
+    /**
+     * HTTP/2, compression, default timeouts, no hedging, one request at a time and the API of github.com.
+     */
+    public static Transport defaults() {
+        return new Transport(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, true, true, null, 1, DEFAULT_API_URL);
+    }
+}
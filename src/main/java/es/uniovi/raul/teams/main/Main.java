@@ -1,22 +1,33 @@
 package es.uniovi.raul.teams.main;
 
 import java.io.IOException;
-import java.util.Optional;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.time.*;
+import java.util.*;
 
 import es.uniovi.raul.teams.cli.*;
-import es.uniovi.raul.teams.github.GithubApi;
+import es.uniovi.raul.teams.github.*;
 import es.uniovi.raul.teams.github.GithubApi.*;
-import es.uniovi.raul.teams.github.GithubApiImpl;
-import es.uniovi.raul.teams.github.GithubApiDryRunDecorator;
-import es.uniovi.raul.teams.organization.Organization;
-import es.uniovi.raul.teams.roster.RosterLoader;
+import es.uniovi.raul.teams.organization.*;
+import es.uniovi.raul.teams.roster.*;
 import es.uniovi.raul.teams.roster.RosterLoader.InvalidRosterFormatException;
+import es.uniovi.raul.teams.snapshot.*;
+import es.uniovi.raul.teams.webhook.WebhookReceiver;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 
 /**
  * Entry point for the application.
  */
 public class Main {
 
+    private static final long ROSTER_CHECK_INTERVAL_MILLIS = 10_000;
+    private static final long SYNC_RETRY_INTERVAL_MILLIS = 60_000; // After a failed sync in long-running mode
+    private static final Duration PROGRESS_PERIOD = Duration.ofSeconds(10); // When the output is not a terminal
+    private static final int CACHE_MAX_ENTRIES = 10_000; // Lists of teams, members and invitations
+
     public static void main(String[] args) {
 
         Optional<Arguments> argumentsOpt = ArgumentsParser.parse(args);
@@ -25,7 +36,7 @@ public class Main {
 
         try {
 
-            run(argumentsOpt.get());
+            run(argumentsOpt.get(), args);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -41,30 +52,479 @@ public class Main {
 
     }
 
-    private static void run(Arguments arguments) throws GithubApiException,
+    private static void run(Arguments arguments, String[] args) throws GithubApiException,
             IOException, InterruptedException, InvalidRosterFormatException {
 
-        GithubApi connection = new GithubApiImpl(arguments.token);
+        if (arguments.jfrFile != null)
+            startFlightRecording(Path.of(arguments.jfrFile));
+        if (arguments.keepAlive != null)
+            setKeepAlive(Duration.ofSeconds(arguments.keepAlive));
+
+        Path stateFile = arguments.stateFile != null
+                ? Path.of(arguments.stateFile)
+                : SnapshotStore.defaultFile(arguments.organization);
+        var snapshot = loadState(stateFile, arguments.organization)
+                .orElseGet(() -> new OrganizationSnapshot(arguments.organization));
+
+        if (arguments.status) {
+            showStatus(arguments, snapshot, stateFile);
+            return;
+        }
+
+        if (arguments.workers != null) {
+            coordinate(arguments, args, snapshot, stateFile);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        GithubApiImpl github = null;
+        GithubApiReplayer replayer = null;
+        GithubApiRecordingDecorator recorder = null;
+        GithubApiDryRunDecorator dryRun = null;
+        GithubApi connection;
+        if (arguments.replayFile != null) {
+            System.out.printf("[REPLAY] Serving the calls recorded in '%s'.%n", arguments.replayFile);
+            replayer = new GithubApiReplayer(Path.of(arguments.replayFile), arguments.replayLatency);
+            connection = replayer;
+        } else {
+            github = new GithubApiImpl(arguments.token, transportOf(arguments));
+            connection = github;
+            if (arguments.recordFile != null) {
+                recorder = new GithubApiRecordingDecorator(connection, Path.of(arguments.recordFile));
+                connection = recorder;
+            }
+        }
         if (arguments.dryRun) {
             System.out.println("[DRY-RUN] No changes will be performed.");
-            connection = new GithubApiDryRunDecorator(connection);
+            dryRun = new GithubApiDryRunDecorator(connection);
+            connection = dryRun;
+        }
+        // On top of the dry-run, so that its estimate only counts the reads that would reach GitHub
+        var cache = new GithubApiCachingDecorator(connection, arguments.cacheTtl, CACHE_MAX_ENTRIES);
+        connection = cache;
+        var rateLimit = github;
+        var console = new ConsoleProgress(System.out, System.console() != null, PROGRESS_PERIOD,
+                () -> rateLimit != null ? rateLimit.getRateLimitRemaining() : OptionalInt.empty());
+        var organization = new Organization(arguments.organization, connection, console, snapshot);
+        organization.reportProgressTo(console);
+        organization.limitConcurrency(arguments.concurrency);
+        if (arguments.readConcurrency != null)
+            organization.limitReadConcurrency(arguments.readConcurrency);
+        if (arguments.parentTeam != null)
+            organization.useParentTeam(arguments.parentTeam);
+        if (arguments.shard != null)
+            organization.onlyGroups(arguments.shard::owns);
+        if (arguments.onlyGroups != null)
+            organization.onlyGroups(Set.copyOf(arguments.onlyGroups)::contains);
+        if (arguments.onlyStudents != null)
+            organization.onlyStudents(arguments.onlyStudents);
+        Path loginCacheFile = LoginCache.defaultFile(stateFile.toAbsolutePath().getParent());
+        LoginCache loginCache = null;
+        if (!arguments.noLoginCheck) {
+            loginCache = loadLoginCache(loginCacheFile, arguments.loginTtl);
+            organization.checkLoginsWith(loginCache);
+        }
+        Path invitationQueueFile = InvitationQueue.defaultFile(stateFile);
+        var invitationQueue = InvitationQueue.load(invitationQueueFile);
+        organization.queueInvitationsIn(invitationQueue);
+
+        if (arguments.webhookPort != null) {
+            serve(arguments, organization, stateFile, invitationQueue);
+            return;
+        }
+
+        try {
+            if (arguments.exclusive.cleanTeams)
+                organization.deleteGroupTeams();
+            else if (arguments.exclusive.grantPattern != null)
+                organization.grantRepositories(arguments.exclusive.grantPattern, arguments.permission);
+            else if (arguments.exclusive.exportFile != null)
+                export(organization, Path.of(arguments.exclusive.exportFile), arguments.exportFormat);
+            else if (arguments.resendFailed) {
+
+                System.out.printf("%nProceeding to send again the failed invitations of the roster file(s) '%s'...%n",
+                        String.join("', '", arguments.exclusive.rosterFiles));
+
+                organization.resendFailedInvitations(loadRosterWhileReadingTeams(cache, arguments));
+            } else {
+
+                System.out.printf("%nProceeding to update the organization '%s' using the roster file(s) '%s'...%n",
+                        arguments.organization, String.join("', '", arguments.exclusive.rosterFiles));
+
+                organization.updateWith(loadRosterWhileReadingTeams(cache, arguments));
+
+                System.out.println("""
+
+                        REMEMBER. Students have been invited to join their groups, but they are not members yet!!!
+                        Each student must accept the invitation sent to their email before they appear in the groups.
+                        """);
+            }
+            if (dryRun != null)
+                printCostEstimate(dryRun.estimateCost(arguments.concurrency,
+                        github != null ? github.getRateLimitRemaining() : OptionalInt.empty()), arguments.concurrency);
+        } finally {
+            // In dry-run the snapshot contains changes that have not been made, and in a replay changes made long ago
+            if (!arguments.dryRun && replayer == null) {
+                saveState(snapshot, stateFile);
+                saveInvitationQueue(invitationQueue, invitationQueueFile);
+            }
+            // What is known about the logins is true even in dry-run
+            if (loginCache != null && replayer == null)
+                saveLoginCache(loginCache, loginCacheFile);
+            if (recorder != null)
+                recorder.close();
+            if (github != null)
+                github.getConcurrencyLimit().ifPresent(limit -> System.out.printf(
+                        "[CONCURRENCY] Adapted to %d concurrent request(s) (maximum: %d).%n", limit,
+                        arguments.concurrency));
+            if (cache.getHits() > 0)
+                System.out.printf("[CACHE] %d read(s) served without calling GitHub again.%n", cache.getHits());
+            if (github != null && github.getHedgedRequests() > 0)
+                System.out.printf("[HEDGED] %d slow read(s) were sent twice.%n", github.getHedgedRequests());
+            if (replayer != null)
+                System.out.printf("[REPLAY] Finished in %d ms. Recorded calls not replayed: %d%n",
+                        (System.nanoTime() - startedAt) / 1_000_000, replayer.getUnusedCalls());
+        }
+    }
+
+    private static void showStatus(Arguments arguments, OrganizationSnapshot snapshot, Path stateFile)
+            throws GithubApiException, IOException, InterruptedException, InvalidRosterFormatException {
+
+        if (arguments.refresh != null) {
+            var organization = new Organization(arguments.organization,
+                    new GithubApiImpl(arguments.token, transportOf(arguments)),
+                    new ConsoleLogger(), snapshot);
+            organization.limitConcurrency(arguments.concurrency);
+            if (arguments.readConcurrency != null)
+                organization.limitReadConcurrency(arguments.readConcurrency);
+            organization.refreshSnapshot(arguments.refresh);
+            saveState(snapshot, stateFile);
+
+        } else if (snapshot.isEmpty())
+            System.out.printf("There is no saved state for the organization '%s' in '%s'. "
+                    + "Run a sync first or use '--refresh'.%n", arguments.organization, stateFile);
+
+        StatusReport.print(snapshot, RosterLoader.loadAll(arguments.exclusive.rosterFiles), new ConsoleLogger());
+    }
+
+    /**
+     * Long-running mode: keeps the snapshot up to date with the webhook events of the organization and syncs again
+     * each time the roster file changes. As the snapshot is current, the syncs read almost nothing from GitHub.
+     * It also syncs when the queued invitations can be sent, so large enrollments finish on their own.
+     */
+    private static void serve(Arguments arguments, Organization organization, Path stateFile,
+            InvitationQueue invitationQueue) throws IOException, InterruptedException {
+
+        var snapshot = organization.getSnapshot();
+        var startedAt = Instant.now();
+        try (var receiver = new WebhookReceiver(arguments.webhookPort, arguments.webhookSecret, snapshot,
+                new ConsoleLogger())) {
+
+            receiver.start();
+            // Teams read before the receiver started may have changed in the meantime
+            organization.trustSnapshotSince(startedAt);
+            var invitationQueueFile = InvitationQueue.defaultFile(stateFile);
+            if (!arguments.dryRun)
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    saveState(snapshot, stateFile);
+                    saveInvitationQueue(invitationQueue, invitationQueueFile);
+                }));
+
+            System.out.printf("%nReceiving the webhook events of the organization '%s' on port %d (POST /webhook).%n"
+                    + "The organization will be updated each time '%s' changes. Press Ctrl+C to stop.%n",
+                    arguments.organization, receiver.getPort(), String.join("', '", arguments.exclusive.rosterFiles));
+
+            var rosterFiles = arguments.exclusive.rosterFiles;
+            List<FileTime> syncedVersion = null;
+            List<FileTime> failedVersion = null; // The version whose last sync failed, tried again after a while
+            var retryAt = Instant.now();
+            long savedEvents = 0;
+            var queueCheckedAt = Instant.now();
+            while (true) {
+                List<FileTime> currentVersion;
+                try {
+                    currentVersion = rosterVersion(rosterFiles);
+                } catch (IOException e) { // E.g., an editor that deletes the file and writes it again
+                    System.err.printf("[WARNING] Could not read the roster file(s): %s%n", e.getMessage());
+                    Thread.sleep(ROSTER_CHECK_INTERVAL_MILLIS);
+                    continue;
+                }
+
+                if (!currentVersion.equals(syncedVersion)
+                        && (!currentVersion.equals(failedVersion) || !Instant.now().isBefore(retryAt))) {
+                    if (syncOnce(organization, rosterFiles)) {
+                        syncedVersion = currentVersion;
+                        failedVersion = null;
+                    } else {
+                        failedVersion = currentVersion;
+                        retryAt = Instant.now().plusMillis(SYNC_RETRY_INTERVAL_MILLIS);
+                    }
+                } else if (isQueueDue(invitationQueue, queueCheckedAt)) {
+                    queueCheckedAt = Instant.now();
+                    System.out.printf("%n[QUEUED] %d invitation(s) can be sent now.%n", invitationQueue.size());
+                    syncOnce(organization, rosterFiles);
+                } else if (receiver.getAppliedEvents() == savedEvents) {
+                    Thread.sleep(ROSTER_CHECK_INTERVAL_MILLIS);
+                    continue;
+                }
+
+                savedEvents = receiver.getAppliedEvents();
+                if (!arguments.dryRun) {
+                    saveState(snapshot, stateFile);
+                    saveInvitationQueue(invitationQueue, invitationQueueFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sharded mode: syncs the organization with worker processes, each one in charge of a shard of the groups, and
+     * merges the state they saw and their queued invitations into the files of the organization.
+     */
+    private static void coordinate(Arguments arguments, String[] args, OrganizationSnapshot snapshot, Path stateFile)
+            throws IOException, InterruptedException {
+
+        System.out.printf("%nProceeding to update the organization '%s' with %d worker(s) and %d token(s)...%n",
+                arguments.organization, arguments.workers, arguments.workerTokens.size());
+
+        // The daily limit of invitations is of the whole organization, so each worker starts with a copy of the
+        // queue, and the changes of all of them are merged back
+        var invitationQueueFile = InvitationQueue.defaultFile(stateFile);
+        var invitationQueue = InvitationQueue.load(invitationQueueFile);
+        var queueBeforeWorkers = InvitationQueue.load(invitationQueueFile);
+
+        var coordinator = new ShardCoordinator(arguments.workers, shard -> {
+            var shardFile = shardStateFile(stateFile, shard);
+            invitationQueue.save(InvitationQueue.defaultFile(shardFile));
+            var builder = new ProcessBuilder(workerCommand(arguments, args, shard, shardFile))
+                    .redirectErrorStream(true);
+            builder.environment().put(ArgumentsParser.WORKER_TOKEN,
+                    arguments.workerTokens.get(shard.index() % arguments.workerTokens.size()));
+            return builder.start();
+        }, System.out);
+        var succeeded = coordinator.run();
+
+        // Each worker has saved the teams of its groups
+        for (var shard : succeeded) {
+            var shardFile = shardStateFile(stateFile, shard);
+            if (!arguments.dryRun)
+                loadState(shardFile, arguments.organization)
+                        .ifPresent(shardSnapshot -> mergeShard(snapshot, shardSnapshot, shard));
+            Files.deleteIfExists(shardFile);
+        }
+        // Also the queues of the workers that failed, as the invitations they sent count for the limit
+        for (int i = 0; i < arguments.workers; i++) {
+            var shard = new Shard(i, arguments.workers);
+            var shardQueueFile = InvitationQueue.defaultFile(shardStateFile(stateFile, shard));
+            if (Files.exists(shardQueueFile))
+                invitationQueue.merge(queueBeforeWorkers, InvitationQueue.load(shardQueueFile));
+            Files.deleteIfExists(shardQueueFile);
+        }
+        if (!arguments.dryRun) {
+            saveState(snapshot, stateFile);
+            saveInvitationQueue(invitationQueue, invitationQueueFile);
+        }
+
+        if (succeeded.size() < arguments.workers)
+            throw new IOException(String.format("%d of %d worker(s) failed. Run again to complete the update.",
+                    arguments.workers - succeeded.size(), arguments.workers));
+    }
+
+    // The same command line, without the options of the coordinator, for the groups of a shard
+    static List<String> workerCommand(Arguments arguments, String[] args, Shard shard, Path stateFile) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        String classpath = System.getProperty("java.class.path");
+        if (classpath != null && !classpath.isBlank()) // Not in a native executable
+            command.addAll(List.of("-cp", classpath, Main.class.getName()));
+
+        var coordinatorOptions = Set.of("--workers", "-t", "-o", "--state-file", "--jfr");
+        for (int i = 0; i < args.length; i++) {
+            if (coordinatorOptions.contains(args[i]))
+                i++; // And its value
+            else if (!args[i].startsWith("-t") || args[i].startsWith("--")) // '-t<token>'
+                command.add(args[i]);
+        }
+        command.addAll(List.of("-o", arguments.organization, "--shard", shard.toString(),
+                "--state-file", stateFile.toString()));
+        if (arguments.jfrFile != null) // Each worker records its own calls
+            command.addAll(List.of("--jfr",
+                    arguments.jfrFile.replaceFirst("(\\.jfr)?$", ".shard-" + shard.index() + ".jfr")));
+        return command;
+    }
+
+    static Path shardStateFile(Path stateFile, Shard shard) {
+        return stateFile.resolveSibling(stateFile.getFileName() + ".shard-" + shard.index());
+    }
+
+    // The teams of the groups of the shard are replaced by the ones seen by its worker, and its GitHub ids are added
+    static void mergeShard(OrganizationSnapshot snapshot, OrganizationSnapshot shardSnapshot, Shard shard) {
+        for (var team : snapshot.teams())
+            if (TeamNaming.isGroupTeam(team.displayName()) && shard.owns(TeamNaming.toGroup(team.displayName())))
+                snapshot.teamDeleted(team.slug());
+
+        for (var team : shardSnapshot.teams())
+            if (TeamNaming.isGroupTeam(team.displayName()) && shard.owns(TeamNaming.toGroup(team.displayName())))
+                snapshot.teamRead(team.displayName(), team.slug(), team.members(), team.pending(), team.readAt());
+        shardSnapshot.userIds().forEach(snapshot::userIdRead);
+    }
+
+    // In long-running mode an error in a sync is reported, and the sync is tried again after a while (the error may
+    // be temporary) or when the roster changes
+    private static boolean syncOnce(Organization organization, List<String> rosterFiles)
+            throws InterruptedException {
+        try {
+            System.out.printf("%n[%s] Updating the organization using '%s'...%n", Instant.now(),
+                    String.join("', '", rosterFiles));
+            organization.updateWith(RosterLoader.loadAll(rosterFiles));
+            return true;
+        } catch (GithubApiException | IOException | InvalidRosterFormatException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            return false;
         }
-        var organization = new Organization(arguments.organization, connection);
+    }
 
-        if (arguments.exclusive.cleanTeams)
-            organization.deleteGroupTeams();
-        else {
+    private static List<FileTime> rosterVersion(List<String> rosterFiles) throws IOException {
+        List<FileTime> version = new ArrayList<>();
+        for (var rosterFile : rosterFiles)
+            version.add(Files.getLastModifiedTime(Path.of(rosterFile)));
+        return version;
+    }
+
+    // Checked at most once per interval, so that a sync that keeps failing is not retried without pause
+    private static boolean isQueueDue(InvitationQueue invitationQueue, Instant checkedAt) {
+        var now = Instant.now();
+        return !now.isBefore(checkedAt.plusMillis(ROSTER_CHECK_INTERVAL_MILLIS)) && invitationQueue.isDue(now);
+    }
 
-            System.out.printf("%nProceeding to update the organization '%s' using the roster file '%s'...%n",
-                    arguments.organization, arguments.exclusive.rosterFile);
+    // The teams are read (opening the connection and checking the token on the way) while the roster is parsed and
+    // the logins are checked, and the sync meets that read in the cache, on its way or finished. Without a cache the
+    // sync would read them again, so then they are not read in advance
+    private static List<Student> loadRosterWhileReadingTeams(GithubApi github, Arguments arguments)
+            throws IOException, InvalidRosterFormatException, InterruptedException {
 
-            organization.updateWith(RosterLoader.load(arguments.exclusive.rosterFile));
+        Thread prefetch = null;
+        if (!arguments.cacheTtl.isZero())
+            prefetch = Thread.ofVirtual().name("prefetch-teams").start(() -> {
+                try {
+                    github.getTeams(arguments.organization);
+                } catch (Exception e) {
+                    // The sync reads them again and reports the error
+                }
+            });
+
+        try {
+            return RosterLoader.loadAll(arguments.exclusive.rosterFiles);
+        } catch (IOException | InvalidRosterFormatException | InterruptedException e) {
+            if (prefetch != null)
+                prefetch.interrupt();
+            throw e;
+        }
+    }
+
+    private static void printCostEstimate(CostEstimate estimate, int concurrency) {
+        System.out.println("[DRY-RUN] Calls that the sync would make:");
+        estimate.callsPerEndpoint().forEach((endpoint, calls) -> System.out.printf("  %6d  %s%n", calls, endpoint));
+
+        long seconds = estimate.wallTime().toSeconds();
+        System.out.printf("[DRY-RUN] %d call(s), estimated time %d:%02d:%02d with up to %d concurrent request(s).%n",
+                estimate.calls(), seconds / 3600, seconds / 60 % 60, seconds % 60, concurrency);
+        if (estimate.exceedsRateLimit())
+            System.out.printf("[DRY-RUN] [WARNING] Only %d request(s) left in the rate limit: the sync would have to "
+                    + "wait for it to be reset (up to an hour).%n", estimate.rateLimitRemaining().getAsInt());
+    }
+
+    private static Transport transportOf(Arguments arguments) {
+        Hedging hedging = null;
+        if (arguments.hedgeDelay != null)
+            hedging = new Hedging(arguments.hedgeDelay, arguments.hedgeBudget / 100.0);
+        else if (arguments.hedgeP95)
+            hedging = Hedging.atP95(arguments.hedgeBudget / 100.0);
+
+        return new Transport(Duration.ofSeconds(arguments.connectTimeout), Duration.ofSeconds(arguments.requestTimeout),
+                !arguments.http1, !arguments.noCompression, hedging, arguments.concurrency, arguments.apiUrl);
+    }
+
+    // The JDK reads the keep-alive of its connection pool only once, when the first HTTP client is created, so it is
+    // set for the whole JVM before creating any
+    private static void setKeepAlive(Duration keepAlive) {
+        String seconds = String.valueOf(keepAlive.toSeconds());
+        System.setProperty("jdk.httpclient.keepalive.timeout", seconds);
+        System.setProperty("jdk.httpclient.keepalive.timeout.h2", seconds);
+    }
 
-            System.out.println("""
+    private static void export(Organization organization, Path file, MembershipExport.Format format)
+            throws GithubApiException, IOException, InterruptedException {
 
-                    REMEMBER. Students have been invited to join their groups, but they are not members yet!!!
-                    Each student must accept the invitation sent to their email before they appear in the groups.
-                    """);
+        System.out.printf("%nExporting the group teams to '%s'...%n", file);
+        try (var export = new MembershipExport(Files.newBufferedWriter(file), format)) {
+            organization.exportMemberships(export);
+        }
+    }
+
+    // Written to the file when the JVM exits, whatever the way it exits
+    private static void startFlightRecording(Path file) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (ParseException e) {
+            throw new IOException("Invalid Flight Recorder configuration: " + e.getMessage(), e);
+        }
+        recording.setName("teams");
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        System.out.printf("[JFR] Recording to '%s'.%n", file);
+    }
+
+    // What is known about the logins is only a cache: if it cannot be read, the logins are checked again
+    private static LoginCache loadLoginCache(Path file, Duration timeToLive) {
+        try {
+            return LoginCache.load(file, timeToLive);
+        } catch (IOException e) {
+            System.err.printf("[WARNING] Could not read the checked logins in '%s', they will be checked again: %s%n",
+                    file, e.getMessage());
+            return new LoginCache(timeToLive);
+        }
+    }
+
+    private static void saveLoginCache(LoginCache loginCache, Path file) {
+        try {
+            loginCache.save(file, Instant.now());
+        } catch (IOException e) {
+            System.err.printf("[WARNING] Could not save the checked logins in '%s': %s%n", file, e.getMessage());
+        }
+    }
+
+    // Without the queue the invitations are still found by the next sync, only their order and the limit are lost
+    private static void saveInvitationQueue(InvitationQueue invitationQueue, Path file) {
+        try {
+            invitationQueue.save(file);
+        } catch (IOException e) {
+            System.err.printf("[WARNING] Could not save the queued invitations in '%s': %s%n", file,
+                    e.getMessage());
+        }
+    }
+
+    // The state is only a cache for '--status': failing to read it must not make the run fail
+    private static Optional<OrganizationSnapshot> loadState(Path stateFile, String organization) {
+        try {
+            return SnapshotStore.load(stateFile, organization);
+        } catch (IOException e) {
+            System.err.printf("[WARNING] Could not read the state of the organization in '%s', starting without it: "
+                    + "%s%n", stateFile, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // The state is only a cache for '--status': failing to save it must not make the run fail
+    private static void saveState(OrganizationSnapshot snapshot, Path stateFile) {
+        try {
+            SnapshotStore.save(snapshot, stateFile);
+        } catch (IOException e) {
+            System.err.printf("[WARNING] Could not save the state of the organization in '%s': %s%n", stateFile,
+                    e.getMessage());
         }
     }
 
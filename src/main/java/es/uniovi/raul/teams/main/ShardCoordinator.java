@@ -0,0 +1,97 @@
+package es.uniovi.raul.teams.main;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+import es.uniovi.raul.teams.organization.Shard;
+
+/**
+ * Runs a sync in several worker processes, each one in charge of a {@link Shard} of the groups (and usually with its
+ * own token, as the rate limit of GitHub is per token).
+ *
+ * The output of the workers is merged in the output of the coordinator, each line prefixed with its worker. The
+ * partition of the groups is fixed, so the workers do not need to coordinate among them.
+ */
+final class ShardCoordinator {
+
+    /**
+     * Starts the worker process of a shard, with its output and errors in the same stream.
+     */
+    @FunctionalInterface
+    interface WorkerLauncher {
+        Process launch(Shard shard) throws IOException;
+    }
+
+    private final int workers;
+    private final WorkerLauncher launcher;
+    private final PrintStream out;
+
+    ShardCoordinator(int workers, WorkerLauncher launcher, PrintStream out) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Workers must be at least 1.");
+        if (launcher == null)
+            throw new IllegalArgumentException("Launcher cannot be null.");
+        if (out == null)
+            throw new IllegalArgumentException("Output cannot be null.");
+
+        this.workers = workers;
+        this.launcher = launcher;
+        this.out = out;
+    }
+
+    /**
+     * Starts all the workers and waits for them to finish.
+     *
+     * @return the shards whose worker finished successfully
+     */
+    List<Shard> run() throws IOException, InterruptedException {
+
+        List<Shard> shards = new ArrayList<>();
+        List<Process> processes = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                for (int i = 0; i < workers; i++) {
+                    var shard = new Shard(i, workers);
+                    var process = launcher.launch(shard);
+                    shards.add(shard);
+                    processes.add(process);
+                    executor.submit(() -> forwardOutput(shard, process));
+                }
+
+                List<Shard> succeeded = new ArrayList<>();
+                for (int i = 0; i < processes.size(); i++) {
+                    int exitCode = processes.get(i).waitFor();
+                    if (exitCode == 0)
+                        succeeded.add(shards.get(i));
+                    else
+                        print(shards.get(i), "[ERROR] Worker finished with exit code " + exitCode);
+                }
+                return succeeded;
+
+            } finally {
+                // If the coordinator fails or is interrupted, the workers must not go on alone
+                processes.forEach(Process::destroy);
+            }
+        }
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private Void forwardOutput(Shard shard, Process process) throws IOException {
+        try (var reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                print(shard, line);
+        }
+        return null;
+    }
+
+    private void print(Shard shard, String line) {
+        synchronized (out) {
+            out.printf("[worker %d/%d] %s%n", shard.index() + 1, shard.count(), line);
+        }
+    }
+}
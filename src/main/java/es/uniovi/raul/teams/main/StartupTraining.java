@@ -0,0 +1,48 @@
+package es.uniovi.raul.teams.main;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.uniovi.raul.teams.cli.ArgumentsParser;
+import es.uniovi.raul.teams.github.*;
+import es.uniovi.raul.teams.organization.Organization;
+import es.uniovi.raul.teams.roster.RosterLoader;
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Representative startup of the application, used to train the AppCDS archive (see the 'cds' profile in 'pom.xml').
+ *
+ * It goes through the same steps as a real run (arguments, '.env', roster, HTTP client and JSON parsing) but without
+ * any network call, so the classes of picocli, dotenv, commons-csv and Jackson end up in the archive.
+ */
+public final class StartupTraining {
+
+    private static final String ROSTER = """
+            "identifier","github_username","github_id","name"
+            "Smith, John (01)","john-smith72","1001","John Smith"
+            "Doe, Jane (i02)","jane-doe","1002","Jane Doe"
+            """;
+
+    private static final String TEAMS_RESPONSE = """
+            [{"id":1,"name":"group 01","slug":"group-01","privacy":"closed","parent":null},
+             {"id":2,"name":"group i02","slug":"group-i02","privacy":"closed","parent":null}]
+            """;
+
+    public static void main(String[] args) throws Exception {
+
+        var silent = new PrintStream(OutputStream.nullOutputStream());
+        ArgumentsParser.parse(new String[] { "--help" }, silent, silent);
+        ArgumentsParser.parse(new String[] { "roster.csv", "-t", "token", "-o", "org", "--dry-run" }, silent, silent);
+        Dotenv.configure().ignoreIfMissing().load();
+
+        RosterLoader.load(new StringReader(ROSTER));
+
+        new ObjectMapper().readTree(TEAMS_RESPONSE);
+        HttpRequest.newBuilder().uri(URI.create("https://api.github.com/orgs/org/teams")).build();
+        new Organization("org", new GithubApiDryRunDecorator(new GithubApiImpl("token")), message -> {
+        });
+    }
+}
@@ -0,0 +1,140 @@
+package es.uniovi.raul.teams.organization;
+
+import static java.lang.String.*;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+
+/**
+ * Logger that, while an operation is in progress, also shows the teams and operations done, the throughput, the
+ * remaining rate limit of GitHub and the estimated time to finish.
+ *
+ * On a terminal the progress is a status line rewritten in place under the log messages. Otherwise (e.g., the output
+ * is redirected to a file) it is printed as a regular line every period.
+ */
+public final class ConsoleProgress implements Logger, Progress {
+
+    private static final String CLEAR_LINE = "\r\033[K";
+
+    private final PrintStream out;
+    private final boolean inPlace;
+    private final long periodNanos;
+    private final Supplier<OptionalInt> rateLimitRemaining;
+
+    private String phase;
+    private int teams;
+    private int operations;
+    private int teamsDone;
+    private int operationsDone;
+    private long startedAt;
+    private long lastPrintedAt;
+    private boolean running;
+
+    /**
+     * Creates the logger.
+     *
+     * @param out                where to print the messages and the progress
+     * @param inPlace            whether the progress is rewritten in place (only for terminals)
+     * @param period             time between progress lines, when not in place
+     * @param rateLimitRemaining requests left in the GitHub rate limit, if known
+     */
+    public ConsoleProgress(PrintStream out, boolean inPlace, Duration period, Supplier<OptionalInt> rateLimitRemaining) {
+        if (out == null)
+            throw new IllegalArgumentException("Output cannot be null.");
+        if (period == null || period.isNegative())
+            throw new IllegalArgumentException("Period cannot be null or negative.");
+        if (rateLimitRemaining == null)
+            throw new IllegalArgumentException("Rate limit supplier cannot be null.");
+
+        this.out = out;
+        this.inPlace = inPlace;
+        this.periodNanos = period.toNanos();
+        this.rateLimitRemaining = rateLimitRemaining;
+    }
+
+    @Override
+    public synchronized void log(String message) {
+        if (running && inPlace) {
+            out.print(CLEAR_LINE);
+            out.println(message);
+            out.print(statusLine());
+            out.flush();
+        } else
+            out.println(message);
+    }
+
+    @Override
+    public synchronized void start(String phase, int teams, int operations) {
+        this.phase = phase;
+        this.teams = teams;
+        this.operations = operations;
+        this.teamsDone = 0;
+        this.operationsDone = 0;
+        this.startedAt = System.nanoTime();
+        this.lastPrintedAt = startedAt;
+        this.running = true;
+        update();
+    }
+
+    @Override
+    public synchronized void operationsFound(int operations) {
+        this.operations += operations;
+        update();
+    }
+
+    @Override
+    public synchronized void operationDone() {
+        operationsDone++;
+        update();
+    }
+
+    @Override
+    public synchronized void teamDone() {
+        teamsDone++;
+        update();
+    }
+
+    @Override
+    public synchronized void finish() {
+        if (!running)
+            return;
+
+        running = false;
+        if (inPlace)
+            out.print(CLEAR_LINE);
+        out.println(statusLine());
+        out.flush();
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private void update() {
+        if (!running)
+            return;
+
+        if (inPlace) {
+            out.print(CLEAR_LINE + statusLine());
+            out.flush();
+        } else if (System.nanoTime() - lastPrintedAt >= periodNanos) {
+            lastPrintedAt = System.nanoTime();
+            out.println(statusLine());
+        }
+    }
+
+    // [Progress] Sync: teams 3/40, operations 57/210, 4.2 ops/s, rate limit 4812, ETA 0:36
+    private String statusLine() {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        double throughput = seconds > 0 ? operationsDone / seconds : 0;
+
+        var line = new StringBuilder(format("[Progress] %s: teams %d/%d, operations %d/%d, %.1f ops/s", phase,
+                teamsDone, teams, operationsDone, operations, throughput));
+        rateLimitRemaining.get().ifPresent(remaining -> line.append(format(", rate limit %d", remaining)));
+        if (operationsDone < operations && throughput > 0) {
+            long eta = Math.round((operations - operationsDone) / throughput);
+            line.append(format(", ETA %d:%02d", eta / 60, eta % 60));
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package es.uniovi.raul.teams.organization;
+
+/**
+ * Auxiliary record to represent teams that correspond to student groups.
+ *
+ * Includes:
+ * - displayName: the display name of the team in GitHub (e.g., "group 01")
+ * - slug: the unique identifier of the team in GitHub
+ * - group: the group name extracted from the team name (e.g., "01")
+ */
+record GroupTeam(String displayName, String slug, String group) {
+
+    boolean isSameGroup(String otherGroup) {
+        return this.group.equals(otherGroup);
+    }
+}
@@ -0,0 +1,88 @@
+package es.uniovi.raul.teams.organization;
+
+/**
+ * Map from positive long keys (GitHub ids) to non-negative int values (positions in a list), with open addressing
+ * and linear probing. The keys are kept in a primitive array, so neither keys nor entries are boxed.
+ *
+ * The key 0 marks the empty slots, hence it cannot be stored (it is {@code Student.UNKNOWN_ID} anyway).
+ */
+final class LongIntMap {
+
+    static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntMap(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Expected size cannot be negative.");
+
+        // A power of two at least twice the expected size, so that the probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    void put(long key, int value) {
+        if (key <= 0)
+            throw new IllegalArgumentException("Key must be positive.");
+        if (value < 0)
+            throw new IllegalArgumentException("Value cannot be negative.");
+
+        if ((size + 1) * 2 > keys.length)
+            grow();
+
+        int slot = find(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Returns the value of the key, or {@link #MISSING} if it is not in the map.
+     */
+    int get(long key) {
+        if (key <= 0)
+            return MISSING;
+
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    // Slot of the key, or the empty slot where it would be
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+    }
+
+    // Consecutive ids (as GitHub's are) would otherwise fill consecutive slots
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,111 @@
+package es.uniovi.raul.teams.organization;
+
+import java.io.*;
+import java.util.*;
+
+import org.apache.commons.csv.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Destination of an export of the members and pending invitations of the group teams, written team by team as
+ * each one is read, so that only the team being written is kept in memory.
+ *
+ * In CSV, each member or invitation is a row with exactly the columns of the classroom roster, so the file can be
+ * loaded as a roster and compared with the real one by GitHub id or username:
+ * identifier,github_username,github_id,name
+ * alice (A),alice,1001,alice
+ *
+ * GitHub does not know the names of the students, so the login is used instead (the identifier is made of the login
+ * and the group). The GitHub id of the invited users is left empty. In NDJSON, each row is a JSON object (one per
+ * line) with the same fields and its state, either 'member' or 'invited'.
+ */
+public final class MembershipExport implements Closeable {
+
+    /**
+     * Format of the rows.
+     */
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String[] COLUMNS = { "identifier", "github_username", "github_id", "name" };
+    private static final String STATE = "state"; // Only in NDJSON
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Writer out;
+    private final Format format;
+    private final CSVPrinter csv; // null in NDJSON
+    private int teams;
+    private int members;
+    private int invitations;
+
+    public MembershipExport(Writer out, Format format) throws IOException {
+        if (out == null || format == null)
+            throw new IllegalArgumentException("Output and format cannot be null.");
+
+        this.out = out;
+        this.format = format;
+        this.csv = format == Format.CSV
+                ? new CSVPrinter(out, CSVFormat.DEFAULT.builder().setHeader(COLUMNS).build())
+                : null;
+    }
+
+    public synchronized int getTeams() {
+        return teams;
+    }
+
+    public synchronized int getMembers() {
+        return members;
+    }
+
+    public synchronized int getInvitations() {
+        return invitations;
+    }
+
+    /**
+     * Writes the rows of a team and flushes them, so that the export can be followed while it is made.
+     */
+    synchronized void write(GroupTeam team, Map<String, Long> teamMembers, List<String> teamInvitations)
+            throws IOException {
+
+        for (var member : teamMembers.entrySet())
+            writeRow(team, member.getKey(), member.getValue(), "member");
+        for (var login : teamInvitations)
+            writeRow(team, login, 0, "invited");
+        out.flush();
+
+        teams++;
+        members += teamMembers.size();
+        invitations += teamInvitations.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (csv != null)
+            csv.close();
+        else
+            out.close();
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    // An id that is not positive is unknown
+    private void writeRow(GroupTeam team, String login, long githubId, String state) throws IOException {
+        String identifier = login + " (" + team.group() + ")";
+        if (format == Format.CSV)
+            csv.printRecord(identifier, login, githubId > 0 ? githubId : "", login);
+        else {
+            var row = MAPPER.createObjectNode()
+                    .put(COLUMNS[0], identifier)
+                    .put(COLUMNS[1], login);
+            if (githubId > 0)
+                row.put(COLUMNS[2], githubId);
+            else
+                row.putNull(COLUMNS[2]);
+            row.put(COLUMNS[3], login).put(STATE, state);
+            out.write(MAPPER.writeValueAsString(row));
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package es.uniovi.raul.teams.organization;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import es.uniovi.raul.teams.github.GithubApi.GithubApiException;
+
+/**
+ * Runs the changes of a sync by priority: the operations of a class are started before those of the next class, so
+ * that new students get access as soon as possible instead of waiting behind unrelated removals.
+ *
+ * Up to a number of operations run at the same time. While a class has operations pending or running, each lower
+ * class can only use a share of them, so lower classes are never given all the slots (and the requests per second
+ * that go with them) while higher classes still have work. Once they are done, the lower class can use all of them.
+ *
+ * If an operation fails, no more operations are started and the error is thrown once the running ones finish.
+ *
+ * The operations can be submitted before running them all, or put while they are running (see {@link #start}). In
+ * the latter case the scheduler holds a bounded number of pending operations, and whoever puts more waits for them
+ * to be made, so that producing the operations (e.g., reading the teams) does not go far ahead of making them.
+ */
+final class OperationScheduler {
+
+    /**
+     * Priority classes, from the most urgent to the least.
+     */
+    enum OperationClass {
+        READ(1.0), // Reads that make no change (e.g., an export)
+        CREATE_TEAM(1.0),
+        INVITE(1.0),
+        GRANT_REPOSITORY(1.0),
+        REMOVE_MEMBER(0.5),
+        DELETE(0.25); // Teams and members of the organization
+
+        private final double share; // Fraction of the concurrency the class can use while a higher class has work
+
+        OperationClass(double share) {
+            this.share = share;
+        }
+
+        int slots(int concurrency) {
+            return Math.max(1, (int) (concurrency * share));
+        }
+    }
+
+    @FunctionalInterface
+    interface Operation {
+        void run() throws GithubApiException, IOException, InterruptedException;
+    }
+
+    private final int concurrency;
+    private final int capacity; // Of pending operations, when they are put while running
+    private final Map<OperationClass, Deque<Operation>> pending = new EnumMap<>(OperationClass.class);
+    private final Map<OperationClass, Integer> running = new EnumMap<>(OperationClass.class);
+    private Exception failure;
+    private ExecutorService workers; // null until started
+    private boolean closed; // No more operations will be submitted
+
+    OperationScheduler(int concurrency) {
+        this(concurrency, Integer.MAX_VALUE);
+    }
+
+    OperationScheduler(int concurrency, int capacity) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("Concurrency must be at least 1.");
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+
+        this.concurrency = concurrency;
+        this.capacity = capacity;
+        for (var operationClass : OperationClass.values()) {
+            pending.put(operationClass, new ArrayDeque<>());
+            running.put(operationClass, 0);
+        }
+    }
+
+    synchronized void submit(OperationClass operationClass, Operation operation) {
+        pending.get(operationClass).add(operation);
+        notifyAll();
+    }
+
+    /**
+     * Submits an operation once there is room for it among the pending ones. If an operation has failed, it is
+     * discarded (the failure is thrown by {@link #run}).
+     */
+    synchronized void put(OperationClass operationClass, Operation operation) throws InterruptedException {
+        while (pendingCount() >= capacity && failure == null)
+            wait();
+        if (failure == null)
+            submit(operationClass, operation);
+    }
+
+    /**
+     * Starts making the operations, without waiting for them. The workers wait for more operations until
+     * {@link #run} is called.
+     */
+    synchronized void start() {
+        if (workers != null)
+            throw new IllegalStateException("The scheduler has already been started.");
+
+        workers = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < concurrency; i++)
+            workers.submit(this::work);
+    }
+
+    /**
+     * Runs all the submitted operations (and those put until then, if started) and waits for them to finish.
+     */
+    void run() throws GithubApiException, IOException, InterruptedException {
+        ExecutorService started;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            started = workers;
+        }
+        if (started != null)
+            started.close();
+        else if (concurrency == 1)
+            work(); // No need of other threads
+        else
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < concurrency; i++)
+                    executor.submit(this::work);
+            }
+
+        synchronized (this) {
+            if (failure instanceof GithubApiException e)
+                throw e;
+            if (failure instanceof IOException e)
+                throw e;
+            if (failure instanceof InterruptedException e)
+                throw e;
+            if (failure instanceof RuntimeException e)
+                throw e;
+        }
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private void work() {
+        while (true) {
+            OperationClass operationClass;
+            Operation operation;
+            synchronized (this) {
+                operationClass = nextRunnableClass();
+                while (operationClass == null && failure == null && (hasPending() || !closed)) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        failure = e;
+                    }
+                    operationClass = nextRunnableClass();
+                }
+                if (operationClass == null || failure != null)
+                    return;
+
+                operation = pending.get(operationClass).poll();
+                running.merge(operationClass, 1, Integer::sum);
+            }
+
+            try {
+                operation.run();
+            } catch (Exception e) {
+                synchronized (this) {
+                    if (failure == null)
+                        failure = e;
+                }
+            } finally {
+                synchronized (this) {
+                    running.merge(operationClass, -1, Integer::sum);
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    // The most urgent class with pending operations and a free slot, or null if there is none
+    private OperationClass nextRunnableClass() {
+        boolean higherHasWork = false;
+        for (var operationClass : OperationClass.values()) {
+            boolean hasPending = !pending.get(operationClass).isEmpty();
+            int slots = higherHasWork ? operationClass.slots(concurrency) : concurrency;
+            if (hasPending && running.get(operationClass) < slots)
+                return operationClass;
+            higherHasWork |= hasPending || running.get(operationClass) > 0;
+        }
+        return null;
+    }
+
+    private boolean hasPending() {
+        return pendingCount() > 0;
+    }
+
+    private int pendingCount() {
+        return pending.values().stream().mapToInt(Deque::size).sum();
+    }
+}
@@ -4,37 +4,195 @@ import static es.uniovi.raul.teams.organization.TeamNaming.*;
 import static java.lang.String.*;
 
 import java.io.IOException;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
-import es.uniovi.raul.teams.github.GithubApi;
+import es.uniovi.raul.teams.github.*;
 import es.uniovi.raul.teams.github.GithubApi.*;
+import es.uniovi.raul.teams.organization.OperationScheduler.OperationClass;
 import es.uniovi.raul.teams.roster.Student;
+import es.uniovi.raul.teams.snapshot.*;
 
 /**
  * Represents a GitHub organization and provides methods to synchronize teams and members
  * with a list of students and their group assignments.
+ *
+ * Everything read from GitHub and every change made is also recorded in an {@link OrganizationSnapshot}, so the
+ * state of the organization can be consulted later without reading it again.
  */
 public final class Organization {
 
+    private static final int PENDING_CHANGES_PER_WRITER = 16; // Planned changes waiting to be made in a sync
+
     private String organizationName;
     private GithubApi githubApi;
     private Logger logger;
+    private OrganizationSnapshot snapshot;
+    private Instant snapshotTrustedSince = Instant.MAX; // By default, the state of the teams is always read
+    private String parentTeamName; // null if the group teams are top-level teams
+    private Progress progress = Progress.NONE;
+    private int concurrency = 1;
+    private int readConcurrency; // 0 if it is the same as the concurrency of the changes
+    private LoginCache loginCache; // null if the logins of the students are not checked
+    private Predicate<String> ownedGroups = group -> true;
+    private Set<String> selectedLogins; // In lower case; null if the changes of all the students are made
+    private InvitationQueue invitationQueue; // null if the invitations over the daily limit make the sync fail
 
     public Organization(String organizationName, GithubApi githubApi) {
         this(organizationName, githubApi, new ConsoleLogger());
     }
 
     public Organization(String organizationName, GithubApi githubApi, Logger logger) {
+        this(organizationName, githubApi, logger, new OrganizationSnapshot(organizationName));
+    }
+
+    public Organization(String organizationName, GithubApi githubApi, Logger logger, OrganizationSnapshot snapshot) {
         if (githubApi == null)
             throw new IllegalArgumentException("GithubApi cannot be null.");
         if (organizationName == null || organizationName.isBlank())
             throw new IllegalArgumentException("Organization cannot be null or blank.");
         if (logger == null)
             throw new IllegalArgumentException("Logger cannot be null.");
+        if (snapshot == null || !snapshot.organization().equals(organizationName))
+            throw new IllegalArgumentException("Snapshot cannot be null and must belong to the organization.");
 
         this.organizationName = organizationName;
         this.githubApi = githubApi;
         this.logger = logger;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the last known state of the group teams (what has been read and changed by this object).
+     */
+    public OrganizationSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Makes the syncs take the members and invitations of a team from the snapshot, instead of reading them from
+     * GitHub, if the team was read after the given instant.
+     * <p>
+     * This is only correct if, since that instant, the snapshot has been updated with the changes made by others
+     * (see {@code WebhookReceiver}).
+     */
+    public void trustSnapshotSince(Instant instant) {
+        if (instant == null)
+            throw new IllegalArgumentException("Instant cannot be null.");
+
+        this.snapshotTrustedSince = instant;
+    }
+
+    /**
+     * Reports the progress of the syncs and the cleans, once the changes to make are known.
+     */
+    public void reportProgressTo(Progress progress) {
+        if (progress == null)
+            throw new IllegalArgumentException("Progress cannot be null.");
+
+        this.progress = progress;
+    }
+
+    /**
+     * Makes up to the given number of changes at the same time (by default, one).
+     * <p>
+     * Changes are made by priority: team creations, invitations, removals from teams and, last, deletions of teams
+     * and removals from the organization.
+     */
+    public void limitConcurrency(int maxOperations) {
+        if (maxOperations < 1)
+            throw new IllegalArgumentException("Concurrency must be at least 1.");
+
+        this.concurrency = maxOperations;
+    }
+
+    /**
+     * Reads up to the given number of teams at the same time in a sync (by default, as many as the changes made at
+     * the same time). The changes of a team are made while the next teams are read.
+     */
+    public void limitReadConcurrency(int maxReads) {
+        if (maxReads < 1)
+            throw new IllegalArgumentException("Read concurrency must be at least 1.");
+
+        this.readConcurrency = maxReads;
+    }
+
+    /**
+     * Makes the group teams children of a (course) team with the given name, which is created if it does not exist.
+     * Existing group teams are moved under it.
+     * <p>
+     * Granting a repository to the parent team grants it to all the groups with a single call, and
+     * {@link #deleteGroupTeams()} deletes the whole hierarchy at once.
+     */
+    public void useParentTeam(String displayName) {
+        if (displayName == null || displayName.isBlank())
+            throw new IllegalArgumentException("Parent team cannot be null or blank.");
+        if (isGroupTeam(displayName))
+            throw new IllegalArgumentException("Parent team cannot be a group team: " + displayName);
+
+        this.parentTeamName = displayName;
+    }
+
+    /**
+     * Makes the syncs check, before making any change, that the logins of the students exist in GitHub. Students
+     * whose login does not exist are reported and left out of the sync, instead of failing when invited.
+     * <p>
+     * The cache answers for the logins already checked, and is updated with the ones looked up.
+     */
+    public void checkLoginsWith(LoginCache cache) {
+        if (cache == null)
+            throw new IllegalArgumentException("Login cache cannot be null.");
+
+        this.loginCache = cache;
+    }
+
+    /**
+     * Makes the syncs manage only the groups accepted by the filter: their teams are the only ones created, updated
+     * or deleted, and the students of other groups are ignored. The other group teams are left as they are.
+     * <p>
+     * This allows several processes to sync the same organization, each one a different {@link Shard} of the groups,
+     * or a sync of only the groups that have changed. Each filter narrows the previous ones (e.g., a shard of the
+     * chosen groups).
+     */
+    public void onlyGroups(Predicate<String> filter) {
+        if (filter == null)
+            throw new IllegalArgumentException("Filter cannot be null.");
+
+        this.ownedGroups = ownedGroups.and(filter);
+    }
+
+    /**
+     * Makes the syncs change only the memberships of the students with the given logins (ignoring case). Only the
+     * teams of their groups, and those where the saved state shows them (e.g., the team of their previous group), are
+     * read and updated, and no team is deleted. The other members of those teams are left as they are.
+     * <p>
+     * A student that has left a team is only removed from it if the saved state shows them in the team.
+     */
+    public void onlyStudents(Collection<String> logins) {
+        if (logins == null || logins.isEmpty())
+            throw new IllegalArgumentException("Logins cannot be null or empty.");
+
+        this.selectedLogins = new HashSet<>();
+        logins.forEach(login -> selectedLogins.add(login.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Makes the syncs queue the invitations that GitHub rejects because the organization has reached its daily
+     * limit of invitations, instead of failing. Once the limit is reached, the invitations are queued without trying
+     * to send them until the limit allows it again.
+     * <p>
+     * The queued invitations are sent by the next syncs, before the other invitations and the oldest first.
+     */
+    public void queueInvitationsIn(InvitationQueue queue) {
+        if (queue == null)
+            throw new IllegalArgumentException("Invitation queue cannot be null.");
+
+        this.invitationQueue = queue;
     }
 
     /**
@@ -45,22 +203,38 @@ public final class Organization {
      *   <li>Ensures that there is a team for each group represented by the students, creating new teams if necessary and removing teams that are no longer needed.</li>
      *   <li>Updates the membership of each team so that it matches the students assigned to each group.</li>
      * </ul>
+     * Invitations are sent before removing members and teams, so new students get access as soon as possible.
+     * Students whose login does not exist are left out (see {@link #checkLoginsWith}).
      *
-     * @param requiredStudents the list of students whose group assignments should be reflected in the organization
+     * @param students the list of students whose group assignments should be reflected in the organization
      * @throws IOException if a network or I/O error occurs
      * @throws RejectedOperationException if an operation is rejected by the GitHub API
      * @throws UnexpectedFormatException if the data format from the GitHub API is unexpected
      * @throws InterruptedException if the operation is interrupted
      */
-    public void updateWith(List<Student> requiredStudents)
+    public void updateWith(List<Student> students)
             throws GithubApiException, IOException, InterruptedException {
 
-        updateTeams(requiredStudents.stream()
+        var scope = syncScope(students);
+        var checkLogins = SyncPhaseEvent.begin("check logins", null);
+        var requiredStudents = withExistingLogins(students.stream()
+                .filter(student -> scope.test(student.group()))
+                .toList());
+        checkLogins.end(requiredStudents.size());
+
+        var requiredGroups = requiredStudents.stream()
                 .map(Student::group)
                 .distinct()
-                .toList());
+                .toList();
+        var createTeams = SyncPhaseEvent.begin("update teams", null);
+        var teamsToRemove = updateTeams(requiredGroups, scope);
+        createTeams.end(requiredGroups.size());
+
+        // The other students of the groups could still need the teams
+        if (selectedLogins != null)
+            teamsToRemove = List.of();
 
-        updateAllMemberships(requiredStudents);
+        updateAllMemberships(requiredStudents, teamsToRemove, scope);
     }
 
     /**
@@ -75,117 +249,694 @@ public final class Organization {
     public void deleteGroupTeams()
             throws GithubApiException, IOException, InterruptedException {
 
-        var groupTeams = getGroupTeams();
+        var teams = githubApi.getTeams(organizationName);
+        var groupTeams = toGroupTeams(teams);
         if (groupTeams.isEmpty()) {
             logger.log("No group teams found in the organization.");
             return;
         }
 
         // Collect all usernames that must be removed from the organization: members and pending invitations
+        var invitations = PendingInvitations.read(githubApi, organizationName, groupTeams);
         var usernamesToRemove = new HashSet<String>();
         for (var team : groupTeams) {
             var members = githubApi.getTeamMembers(organizationName, team.slug());
-            usernamesToRemove.addAll(members);
+            usernamesToRemove.addAll(members.keySet());
 
-            var invites = githubApi.getTeamInvitations(organizationName, team.slug());
-            usernamesToRemove.addAll(invites);
+            usernamesToRemove.addAll(invitations.of(team.slug()));
         }
 
-        // Remove users from the organization
-        for (var login : usernamesToRemove) {
-            try {
-                githubApi.removeMemberFromOrganization(organizationName, login);
-                logger.log(String.format("[Removed member from org] '%s'", login));
-            } catch (RejectedOperationException e) {
-                logger.log(String.format("[WARNING] Could not remove member '%s' from organization '%s': %s",
-                        login, organizationName, e.getMessage()));
-                // Continue with next member
-            }
+        progress.start("Clean", groupTeams.size(), usernamesToRemove.size() + groupTeams.size());
+        var clean = SyncPhaseEvent.begin("clean", null);
+        try {
+            var scheduler = new OperationScheduler(concurrency);
+            for (var login : usernamesToRemove)
+                scheduler.submit(OperationClass.DELETE, () -> removeFromOrganization(login));
+            scheduler.run();
+
+            deleteTeams(teams, groupTeams); // Finally, delete all group teams
+        } finally {
+            clean.end(usernamesToRemove.size() + groupTeams.size());
+            progress.finish();
         }
+    }
 
-        // Finally, delete all group teams
-        for (var team : groupTeams) {
-            githubApi.deleteTeam(organizationName, team.slug());
-            logger.log("[Deleted team] " + team.displayName());
+    /**
+     * Invites again the students whose invitation to their team failed (most often, it expired after seven days
+     * without being accepted), without reconciling the rest of the memberships. The failed invitations are read in
+     * a single (paged) list, and the re-invitations are made at the same time (see {@link #limitConcurrency}).
+     * <p>
+     * Students that have been invited again since, that are already members of their team, whose group has no team
+     * yet, or whose login does not exist (see {@link #checkLoginsWith}) are left out, and the report says so.
+     *
+     * @param students the students of the roster
+     * @throws UnexpectedFormatException if the format of the data is unexpected.
+     * @throws RejectedOperationException if the operation is rejected by the GitHub API.
+     * @throws IOException if an I/O error occurs during the operation.
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    public void resendFailedInvitations(List<Student> students)
+            throws GithubApiException, IOException, InterruptedException {
+
+        Map<String, FailedInvitation> failedByLogin = new HashMap<>(); // The last failure of each login
+        for (var invitation : githubApi.getFailedInvitations(organizationName))
+            failedByLogin.merge(invitation.login().toLowerCase(Locale.ROOT), invitation,
+                    (first, second) -> first.failedAt().isAfter(second.failedAt()) ? first : second);
+        if (failedByLogin.isEmpty()) {
+            logger.log("No failed invitations found in the organization.");
+            return;
+        }
+
+        var failedStudents = withExistingLogins(students.stream()
+                .filter(student -> ownedGroups.test(student.group()))
+                .filter(student -> isSelected(student.login()))
+                .filter(student -> failedByLogin.containsKey(student.login().toLowerCase(Locale.ROOT)))
+                .toList());
+        Set<String> invitedAgain = new HashSet<>();
+        githubApi.getOrganizationInvitations(organizationName)
+                .forEach(invitation -> invitedAgain.add(invitation.login().toLowerCase(Locale.ROOT)));
+        Map<String, GroupTeam> teamsByGroup = new HashMap<>();
+        getGroupTeams().forEach(team -> teamsByGroup.put(team.group(), team));
+
+        Map<GroupTeam, List<Student>> studentsByTeam = new LinkedHashMap<>();
+        int alreadyInvited = 0;
+        int withoutTeam = 0;
+        for (var student : failedStudents) {
+            var team = teamsByGroup.get(student.group());
+            if (invitedAgain.contains(student.login().toLowerCase(Locale.ROOT)))
+                alreadyInvited++;
+            else if (team == null)
+                withoutTeam++;
+            else
+                studentsByTeam.computeIfAbsent(team, key -> new ArrayList<>()).add(student);
+        }
+
+        // The failures are kept after the student accepts a later invitation, so the members are left out too
+        int alreadyMembers = 0;
+        for (var entry : studentsByTeam.entrySet()) {
+            var members = readTeamMembers(entry.getKey());
+            int before = entry.getValue().size();
+            entry.getValue().removeIf(student -> members.contains(student.login().toLowerCase(Locale.ROOT)));
+            alreadyMembers += before - entry.getValue().size();
+        }
+        studentsByTeam.values().removeIf(List::isEmpty);
+
+        List<TeamInvitation> toResend = new ArrayList<>();
+        studentsByTeam.forEach((team, teamStudents) -> {
+            var pendingInTeam = new AtomicInteger(teamStudents.size());
+            Runnable operationDone = () -> {
+                progress.operationDone();
+                if (pendingInTeam.decrementAndGet() == 0)
+                    progress.teamDone();
+            };
+            teamStudents.forEach(student -> toResend.add(
+                    new TeamInvitation(team, student, queuedAt(team, student), operationDone)));
+        });
+        logger.log(format("[Failed invitations] %d in the organization, %d of students of the roster: %d to send "
+                + "again, %d already invited again, %d already members, %d without a team (run a sync first)",
+                failedByLogin.size(), failedStudents.size(), toResend.size(), alreadyInvited, alreadyMembers,
+                withoutTeam));
+
+        progress.start("Resend", studentsByTeam.size(), toResend.size());
+        var resend = SyncPhaseEvent.begin("resend failed invitations", null);
+        try {
+            // The invitations that have waited in the queue go first, the oldest first
+            var scheduler = new OperationScheduler(concurrency);
+            toResend.stream()
+                    .sorted(Comparator.comparing(TeamInvitation::queuedAt))
+                    .forEach(invitation -> scheduler.submit(OperationClass.INVITE, () -> {
+                        var failed = failedByLogin.get(invitation.student().login().toLowerCase(Locale.ROOT));
+                        logger.log(format("[Resending] Invitation of '%s' to team '%s' (failed on %s: %s)",
+                                invitation.student().name(), invitation.team().displayName(), failed.failedAt(),
+                                failed.reason()));
+                        invite(invitation.team(), invitation.student());
+                        invitation.done().run();
+                    }));
+            scheduler.run();
+        } finally {
+            resend.end(toResend.size());
+            progress.finish();
         }
     }
 
+    /**
+     * Gives every group team the permission on the repositories of the organization whose name matches the pattern
+     * (e.g., the assignments of the course). The teams that already have that permission, or a higher one, on a
+     * repository are left as they are.
+     * <p>
+     * The repositories of each team are read once, and the grants are made at the same time (see
+     * {@link #limitConcurrency}).
+     *
+     * @param repositoryPattern pattern that the whole name of the repositories must match
+     * @param permission permission to give to the teams
+     * @throws UnexpectedFormatException if the format of the data is unexpected.
+     * @throws RejectedOperationException if the operation is rejected by the GitHub API.
+     * @throws IOException if an I/O error occurs during the operation.
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    public void grantRepositories(Pattern repositoryPattern, RepositoryPermission permission)
+            throws GithubApiException, IOException, InterruptedException {
+
+        if (repositoryPattern == null || permission == null)
+            throw new IllegalArgumentException("Repository pattern and permission cannot be null.");
+
+        var repositories = githubApi.getRepositories(organizationName).stream()
+                .filter(repository -> repositoryPattern.matcher(repository).matches())
+                .sorted()
+                .toList();
+        var groupTeams = getGroupTeams().stream().filter(team -> ownedGroups.test(team.group())).toList();
+        if (repositories.isEmpty() || groupTeams.isEmpty()) {
+            logger.log(format("No repositories match '%s' or there are no group teams: nothing to grant.",
+                    repositoryPattern));
+            return;
+        }
+
+        // One read of the repositories of each team, all of them at the same time
+        Map<String, Map<String, RepositoryPermission>> current = new ConcurrentHashMap<>();
+        var readRepositories = SyncPhaseEvent.begin("read repositories", null);
+        var reads = new OperationScheduler(concurrency);
+        for (var team : groupTeams)
+            reads.submit(OperationClass.READ,
+                    () -> current.put(team.slug(), githubApi.getTeamRepositories(organizationName, team.slug())));
+        reads.run();
+        readRepositories.end(groupTeams.size());
+
+        // A higher permission is kept, as granting the lower one would replace it (e.g., 'push' by 'pull')
+        Map<GroupTeam, List<String>> grants = new LinkedHashMap<>();
+        for (var team : groupTeams)
+            grants.put(team, repositories.stream()
+                    .filter(repository -> {
+                        var existing = current.get(team.slug()).get(repository);
+                        return existing == null || existing.compareTo(permission) < 0;
+                    })
+                    .toList());
+        int operations = grants.values().stream().mapToInt(List::size).sum();
+        logger.log(format("[Granting] '%s' on %d repository(ies) to %d team(s): %d grant(s) to make, %d already made",
+                permission.apiName(), repositories.size(), groupTeams.size(), operations,
+                repositories.size() * groupTeams.size() - operations));
+
+        progress.start("Grant", groupTeams.size(), operations);
+        var grant = SyncPhaseEvent.begin("grant", null);
+        try {
+            var scheduler = new OperationScheduler(concurrency);
+            grants.forEach((team, teamRepositories) -> {
+                var pendingInTeam = new AtomicInteger(teamRepositories.size());
+                if (teamRepositories.isEmpty())
+                    progress.teamDone();
+                for (var repository : teamRepositories)
+                    scheduler.submit(OperationClass.GRANT_REPOSITORY, () -> {
+                        githubApi.grantRepositoryToTeam(organizationName, team.slug(), repository, permission);
+                        logger.log(format("[Granted repository] '%s' (%s) to team '%s'", repository,
+                                permission.apiName(), team.displayName()));
+                        progress.operationDone();
+                        if (pendingInTeam.decrementAndGet() == 0)
+                            progress.teamDone();
+                    });
+            });
+            scheduler.run();
+        } finally {
+            grant.end(operations);
+            progress.finish();
+        }
+    }
+
+    /**
+     * Writes the members and pending invitations of every group team to the export. The teams are read at the same
+     * time (see {@link #limitConcurrency}), and each one is written as soon as it has been read, so they are not
+     * written in any particular order.
+     *
+     * @param export where the teams are written
+     * @throws UnexpectedFormatException if the format of the data is unexpected.
+     * @throws RejectedOperationException if the operation is rejected by the GitHub API.
+     * @throws IOException if an I/O error occurs while reading or writing.
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    public void exportMemberships(MembershipExport export)
+            throws GithubApiException, IOException, InterruptedException {
+
+        if (export == null)
+            throw new IllegalArgumentException("Export cannot be null.");
+
+        var groupTeams = getGroupTeams().stream().filter(team -> ownedGroups.test(team.group())).toList();
+        var invitations = PendingInvitations.read(githubApi, organizationName, groupTeams);
+
+        progress.start("Export", groupTeams.size(), groupTeams.size());
+        var exportTeams = SyncPhaseEvent.begin("export", null);
+        try {
+            var scheduler = new OperationScheduler(concurrency);
+            for (var team : groupTeams)
+                scheduler.submit(OperationClass.READ, () -> {
+                    export.write(team, githubApi.getTeamMembers(organizationName, team.slug()),
+                            invitations.of(team.slug()));
+                    progress.operationDone();
+                    progress.teamDone();
+                });
+            scheduler.run();
+        } finally {
+            exportTeams.end(export.getTeams());
+            progress.finish();
+        }
+        logger.log(format("[Exported] %d team(s): %d member(s) and %d pending invitation(s)", export.getTeams(),
+                export.getMembers(), export.getInvitations()));
+    }
+
+    /**
+     * Reads again the members and invitations of the group teams that are not in the snapshot or were read before
+     * the given age, and removes from the snapshot the teams that no longer exist. The teams are read at the same
+     * time (see {@link #limitReadConcurrency}).
+     *
+     * @param maxAge maximum age of the data of a team to not be read again
+     * @throws UnexpectedFormatException if the format of the data is unexpected.
+     * @throws RejectedOperationException if the operation is rejected by the GitHub API.
+     * @throws IOException if an I/O error occurs during the operation.
+     * @throws InterruptedException if the operation is interrupted.
+     */
+    public void refreshSnapshot(Duration maxAge)
+            throws GithubApiException, IOException, InterruptedException {
+
+        var groupTeams = getGroupTeams();
+        snapshot.retainTeams(groupTeams.stream().map(GroupTeam::slug).toList());
+
+        var limit = Instant.now().minus(maxAge);
+        var teamsToRead = groupTeams.stream()
+                .filter(team -> snapshot.team(team.slug()).map(state -> state.readAt().isBefore(limit)).orElse(true))
+                .toList();
+
+        var invitations = PendingInvitations.read(githubApi, organizationName, teamsToRead);
+        var reads = new OperationScheduler(readConcurrency());
+        for (var team : teamsToRead)
+            reads.submit(OperationClass.READ, () -> {
+                var members = githubApi.getTeamMembers(organizationName, team.slug());
+                snapshot.teamRead(team.displayName(), team.slug(), members, invitations.of(team.slug()),
+                        Instant.now());
+            });
+        reads.run();
+        logger.log(format("[Refreshed] %d team(s) read from GitHub", teamsToRead.size()));
+    }
+
     //# ------------------------------------------------------------------
     //# Auxiliary methods
     //# ------------------------------------------------------------------
 
+    // Leaves out the students whose login is known not to exist, looking up the logins not in the cache in a batch
+    private List<Student> withExistingLogins(List<Student> students) throws InterruptedException {
+        if (loginCache == null)
+            return students;
+
+        var now = Instant.now();
+        var unknown = students.stream()
+                .map(Student::login)
+                .filter(login -> loginCache.exists(login, now).isEmpty())
+                .distinct()
+                .toList();
+        if (!unknown.isEmpty()) {
+            try {
+                Set<String> existing = new HashSet<>();
+                for (var login : githubApi.findExistingUsers(unknown))
+                    existing.add(login.toLowerCase(Locale.ROOT));
+                for (var login : unknown)
+                    loginCache.checked(login, existing.contains(login.toLowerCase(Locale.ROOT)), now);
+            } catch (GithubApiException | IOException e) {
+                // Not worth failing the sync: the students are invited without checking
+                logger.log(format("[WARNING] Could not check that the logins exist in GitHub: %s", e.getMessage()));
+            }
+        }
+
+        // Students with a GitHub id are kept, as they may have renamed their account (see MembershipChanges.of)
+        List<Student> valid = new ArrayList<>();
+        for (var student : students) {
+            if (student.hasGithubId() || loginCache.exists(student.login(), now).orElse(true))
+                valid.add(student);
+            else
+                logInvalidLogin(student);
+        }
+        return valid;
+    }
+
+    private void logInvalidLogin(Student student) {
+        logger.log(format("[INVALID LOGIN] '%s' (%s) is not a GitHub user: not added to group '%s'",
+                student.name(), student.login(), student.group()));
+    }
+
     /**
-    * Makes sure that the teams in the organization match the groups in the class.
-    * This method will create new teams for groups that do not have a team yet,
-    * and remove teams that are no longer needed.
+     * Logs the members kept because they are, by their GitHub id, students that renamed their account, and leaves
+     * out the invitations of the students whose login is known not to exist.
+     */
+    private MembershipChanges resolveRenames(MembershipChanges changes) {
+        changes.renamed().forEach((student, login) -> logger.log(format(
+                "[RENAMED] '%s' (%s) is now '%s' in GitHub: kept in team '%s'", student.name(),
+                student.login(), login, changes.team().displayName())));
+
+        var now = Instant.now();
+        var notUsers = changes.invitations().stream()
+                .filter(student -> loginCache != null && !loginCache.exists(student.login(), now).orElse(true))
+                .toList();
+        notUsers.forEach(this::logInvalidLogin);
+        return changes.withoutInvitations(notUsers);
+    }
+
+    /**
+    * Makes sure that there is a team for each group in the class, creating new teams for groups that do not have a
+    * team yet, and returns the teams that are no longer needed (they are removed after updating the memberships).
     *
     * Only teams that correspond to groups teams (follow the naming convention) will be removed.
     */
-    private void updateTeams(List<String> requiredGroups)
+    private List<GroupTeam> updateTeams(List<String> requiredGroups, Predicate<String> scope)
             throws GithubApiException, IOException, InterruptedException {
 
-        var existingTeams = getGroupTeams();
-        lookForNewTeams(requiredGroups, existingTeams);
-        lookForTeamsToRemove(requiredGroups, existingTeams);
+        var teams = githubApi.getTeams(organizationName);
+        var existingTeams = toGroupTeams(teams).stream().filter(team -> scope.test(team.group())).toList();
+        var parentTeam = findOrCreateParentTeam(teams);
+        lookForNewTeams(requiredGroups, existingTeams, parentTeam);
+        if (parentTeam.isPresent())
+            lookForTeamsToMove(requiredGroups, teams, parentTeam.get());
+
+        return existingTeams.stream()
+                .filter(team -> requiredGroups.stream().noneMatch(team::isSameGroup))
+                .toList();
     }
 
     /**
-    * Updates the members of each team based on the provided list of students.
+    * Updates the members of each team based on the provided list of students and removes the teams no longer needed.
+    *
+    * The teams are read at the same time, and the changes of each team are planned as soon as it has been read and
+    * handed to the writers, so the reads of the next teams overlap with the changes of the previous ones. The writers
+    * hold a bounded number of pending changes; when it is reached the readers wait for them.
     */
-    private void updateAllMemberships(List<Student> requiredStudents)
+    private void updateAllMemberships(List<Student> requiredStudents, List<GroupTeam> teamsToRemove,
+            Predicate<String> scope) throws GithubApiException, IOException, InterruptedException {
+
+        var groupTeams = getGroupTeams();
+        snapshot.retainTeams(groupTeams.stream().map(GroupTeam::slug).toList());
+
+        // The members of the teams to remove do not need to be updated. The teams with invitations that have waited
+        // in the queue go first, the oldest first
+        var slugsToRemove = teamsToRemove.stream().map(GroupTeam::slug).toList();
+        var teamsToSync = groupTeams.stream()
+                .filter(team -> scope.test(team.group()))
+                .filter(team -> !slugsToRemove.contains(team.slug()))
+                .sorted(Comparator.comparing(this::oldestQueuedAt))
+                .toList();
+
+        var teamsToRead = teamsToSync.stream().filter(team -> findTrustedState(team).isEmpty()).toList();
+        var readState = SyncPhaseEvent.begin("read state", null);
+        var invitations = PendingInvitations.read(githubApi, organizationName, teamsToRead);
+
+        Set<String> plannedInvitations = ConcurrentHashMap.newKeySet(); // "slug/login"
+        var operations = new AtomicInteger(teamsToRemove.size());
+        progress.start("Sync", teamsToSync.size(), teamsToRemove.size());
+        var applyChanges = SyncPhaseEvent.begin("apply changes", null);
+        try {
+            var writes = new OperationScheduler(concurrency, concurrency * PENDING_CHANGES_PER_WRITER);
+            writes.start();
+            try {
+                var reads = new OperationScheduler(readConcurrency());
+                for (var team : teamsToSync)
+                    reads.submit(OperationClass.READ, () -> {
+                        var requiredStudentsInTeam = requiredStudents.stream()
+                                .filter(student -> student.group().equals(team.group()))
+                                .toList();
+                        var changes = resolveRenames(MembershipChanges.of(team, requiredStudentsInTeam,
+                                readTeamState(team, invitations), login -> snapshot.userId(login).orElse(0)));
+                        if (selectedLogins != null)
+                            changes = changes.onlyOf(selectedLogins);
+
+                        changes.invitations().forEach(student -> plannedInvitations.add(team.slug() + "/"
+                                + student.login()));
+                        operations.addAndGet(changes.size());
+                        progress.operationsFound(changes.size());
+                        scheduleChanges(writes, changes);
+                    });
+                reads.run();
+                readState.end(teamsToRead.size());
+
+                for (var team : teamsToRemove)
+                    writes.put(OperationClass.DELETE, () -> removeTeam(team));
+            } finally {
+                writes.run();
+            }
+        } finally {
+            applyChanges.end(operations.get());
+            progress.finish();
+        }
+
+        if (invitationQueue != null) {
+            // The invitations to teams or of students out of the sync are left in the queue
+            var syncedSlugs = teamsToSync.stream().map(GroupTeam::slug).collect(Collectors.toSet());
+            invitationQueue.retain((slug, login) -> !syncedSlugs.contains(slug) || !isSelected(login)
+                    || plannedInvitations.contains(slug + "/" + login));
+            if (invitationQueue.size() > 0)
+                logger.log(format("[QUEUED] %d invitation(s) wait for the daily invitation limit of GitHub. "
+                        + "They can be sent from %s.", invitationQueue.size(),
+                        invitationQueue.nextAttempt().map(Instant::toString).orElse("now")));
+        }
+    }
+
+    // Puts the changes of a team in the writers, its queued invitations first (the oldest first)
+    private void scheduleChanges(OperationScheduler writes, MembershipChanges changes) throws InterruptedException {
+        var pendingInTeam = new AtomicInteger(changes.size());
+        if (changes.size() == 0) {
+            progress.teamDone();
+            return;
+        }
+        // From when the changes of the team are planned until the last one is made
+        var teamEvent = SyncPhaseEvent.begin("team changes", changes.team().slug());
+        Runnable operationDone = () -> {
+            progress.operationDone();
+            if (pendingInTeam.decrementAndGet() == 0) {
+                teamEvent.end(changes.size());
+                progress.teamDone();
+            }
+        };
+
+        var team = changes.team();
+        var invitationsToSend = changes.invitations().stream()
+                .map(student -> new TeamInvitation(team, student, queuedAt(team, student), operationDone))
+                .sorted(Comparator.comparing(TeamInvitation::queuedAt))
+                .toList();
+        for (var invitation : invitationsToSend)
+            writes.put(OperationClass.INVITE, () -> {
+                invite(invitation.team(), invitation.student());
+                invitation.done().run();
+            });
+        for (var login : changes.removals())
+            writes.put(OperationClass.REMOVE_MEMBER, () -> {
+                removeFromTeam(team, login);
+                operationDone.run();
+            });
+    }
+
+    // When the oldest invitation to the team in the queue was queued (Instant.MAX if there is none)
+    private Instant oldestQueuedAt(GroupTeam team) {
+        if (invitationQueue == null)
+            return Instant.MAX;
+        return invitationQueue.oldestQueuedAt(team.slug()).orElse(Instant.MAX);
+    }
+
+    private int readConcurrency() {
+        return readConcurrency > 0 ? readConcurrency : concurrency;
+    }
+
+    // The groups whose teams a sync reads and updates
+    private Predicate<String> syncScope(List<Student> students) {
+        if (selectedLogins == null)
+            return ownedGroups;
+
+        Set<String> groups = new HashSet<>();
+        students.stream()
+                .filter(student -> isSelected(student.login()))
+                .forEach(student -> groups.add(student.group()));
+        snapshot.teams().stream()
+                .filter(team -> isGroupTeam(team.displayName()))
+                .filter(team -> team.members().stream().anyMatch(this::isSelected)
+                        || team.pending().stream().anyMatch(this::isSelected))
+                .forEach(team -> groups.add(toGroup(team.displayName())));
+        return group -> ownedGroups.test(group) && groups.contains(group);
+    }
+
+    private boolean isSelected(String login) {
+        return selectedLogins == null || selectedLogins.contains(login.toLowerCase(Locale.ROOT));
+    }
+
+    private Instant queuedAt(GroupTeam team, Student student) {
+        if (invitationQueue == null)
+            return Instant.MAX;
+        return invitationQueue.queuedAt(team.slug(), student.login()).orElse(Instant.MAX);
+    }
+
+    private void invite(GroupTeam team, Student student)
             throws GithubApiException, IOException, InterruptedException {
 
-        for (var team : getGroupTeams()) {
-            var requiredStudentsInTeam = requiredStudents.stream()
-                    .filter(student -> student.group().equals(team.group()))
-                    .toList();
+        if (invitationQueue != null && !invitationQueue.canSend(Instant.now())) {
+            enqueue(team, student);
+            return;
+        }
 
-            updateTeamMemberships(team, requiredStudentsInTeam);
+        try {
+            githubApi.inviteStudentToTeam(organizationName, team.slug(), student.login());
+        } catch (InvitationLimitException e) {
+            if (invitationQueue == null)
+                throw e;
+            invitationQueue.limitReached(Instant.now());
+            enqueue(team, student);
+            return;
         }
+        if (invitationQueue != null)
+            invitationQueue.sent(team.slug(), student.login(), Instant.now());
+        snapshot.memberInvited(team.slug(), student.login());
+        logger.log(format("[Invited student] '%s' to team '%s'", student.name(), team.displayName()));
+    }
 
+    private void enqueue(GroupTeam team, Student student) {
+        invitationQueue.enqueue(team.slug(), student.login(), Instant.now());
+        logger.log(format("[QUEUED] Invitation of '%s' to team '%s' (daily invitation limit reached)",
+                student.name(), team.displayName()));
     }
 
-    private void updateTeamMemberships(GroupTeam team, List<Student> requiredStudents)
+    private void removeFromTeam(GroupTeam team, String login)
             throws GithubApiException, IOException, InterruptedException {
 
-        List<String> membersOrInvited = githubApi.getTeamMembers(organizationName, team.slug());
-        membersOrInvited.addAll(githubApi.getTeamInvitations(organizationName, team.slug()));
+        try {
+            githubApi.removeStudentFromTeam(organizationName, team.slug(), login);
+            snapshot.memberRemoved(team.slug(), login);
+            logger.log(format("[Removed student] '%s' from team '%s'", login, team.displayName()));
+        } catch (RejectedOperationException e) {
+            logger.log(format("[WARNING] Could not remove '%s' from team '%s': %s",
+                    login, team.displayName(), e.getMessage()));
+            // Continue with next member
+        }
+    }
 
-        // Invite missing members
-        for (var student : requiredStudents) {
-            if (!membersOrInvited.contains(student.login())) {
-                githubApi.inviteStudentToTeam(organizationName, team.slug(), student.login());
-                logger.log(format("[Invited student] '%s' to team '%s'", student.name(), team.displayName()));
-            }
+    private void removeTeam(GroupTeam team)
+            throws GithubApiException, IOException, InterruptedException {
+
+        githubApi.deleteTeam(organizationName, team.slug());
+        snapshot.teamDeleted(team.slug());
+        logger.log(format("[Removed team] '%s'", team.displayName()));
+        progress.operationDone();
+    }
+
+    private void removeFromOrganization(String login)
+            throws GithubApiException, IOException, InterruptedException {
+
+        try {
+            githubApi.removeMemberFromOrganization(organizationName, login);
+            snapshot.memberRemovedFromOrganization(login);
+            logger.log(String.format("[Removed member from org] '%s'", login));
+        } catch (RejectedOperationException e) {
+            logger.log(String.format("[WARNING] Could not remove member '%s' from organization '%s': %s",
+                    login, organizationName, e.getMessage()));
+            // Continue with next member
         }
+        progress.operationDone();
+    }
 
-        // Remove extra members
-        List<String> requiredStudentsLogins = requiredStudents.stream().map(Student::login).toList();
-        for (String existingStudentLogin : membersOrInvited)
-            if (!requiredStudentsLogins.contains(existingStudentLogin)) {
-                try {
-                    githubApi.removeStudentFromTeam(organizationName, team.slug(), existingStudentLogin);
-                    logger.log(
-                            format("[Removed student] '%s' from team '%s'", existingStudentLogin, team.displayName()));
-                } catch (RejectedOperationException e) {
-                    logger.log(format("[WARNING] Could not remove '%s' from team '%s': %s",
-                            existingStudentLogin, team.displayName(), e.getMessage()));
-                    // Continue with next member
-                }
-            }
+    private void deleteTeams(List<Team> teams, List<GroupTeam> groupTeams)
+            throws GithubApiException, IOException, InterruptedException {
+
+        // The children of the parent team are deleted along with it
+        var deletedWithParent = new HashSet<String>();
+        var parentTeam = findParentTeamToDelete(teams);
+        if (parentTeam.isPresent()) {
+            githubApi.deleteTeam(organizationName, parentTeam.get().slug());
+            teams.stream()
+                    .filter(team -> team.isChildOf(parentTeam.get()))
+                    .forEach(team -> deletedWithParent.add(team.slug()));
+            logger.log("[Deleted team] " + parentTeam.get().displayName());
+        }
+        var scheduler = new OperationScheduler(concurrency);
+        for (var team : groupTeams)
+            scheduler.submit(OperationClass.DELETE, () -> {
+                if (!deletedWithParent.contains(team.slug()))
+                    githubApi.deleteTeam(organizationName, team.slug());
+                snapshot.teamDeleted(team.slug());
+                logger.log("[Deleted team] " + team.displayName());
+                progress.operationDone();
+                progress.teamDone();
+            });
+        scheduler.run();
+    }
+
+    // The members and invitations of the team, from the snapshot if it can be trusted or else read from GitHub
+    private TeamSnapshot readTeamState(GroupTeam team, PendingInvitations invitations)
+            throws GithubApiException, IOException, InterruptedException {
+
+        var trusted = findTrustedState(team);
+        if (trusted.isPresent())
+            return trusted.get();
+
+        var readTeam = SyncPhaseEvent.begin("read team", team.slug());
+        var members = githubApi.getTeamMembers(organizationName, team.slug());
+        readTeam.end(1);
+        snapshot.teamRead(team.displayName(), team.slug(), members, invitations.of(team.slug()), Instant.now());
+        return snapshot.team(team.slug()).orElseThrow();
+    }
+
+    // The logins (in lower case) of the members of the team, from the snapshot if it can be trusted
+    private Set<String> readTeamMembers(GroupTeam team)
+            throws GithubApiException, IOException, InterruptedException {
+
+        var trusted = findTrustedState(team);
+        Collection<String> members = trusted.isPresent() ? trusted.get().members()
+                : githubApi.getTeamMembers(organizationName, team.slug()).keySet();
+        Set<String> logins = new HashSet<>();
+        members.forEach(login -> logins.add(login.toLowerCase(Locale.ROOT)));
+        return logins;
+    }
+
+    private Optional<TeamSnapshot> findTrustedState(GroupTeam team) {
+        return snapshot.team(team.slug())
+                .filter(state -> !state.readAt().isBefore(snapshotTrustedSince));
     }
 
     // Only return the teams in the organization that correspond to students groups
     private List<GroupTeam> getGroupTeams()
             throws GithubApiException, IOException, InterruptedException {
 
-        return githubApi.getTeams(organizationName).stream()
+        return toGroupTeams(githubApi.getTeams(organizationName));
+    }
+
+    private static List<GroupTeam> toGroupTeams(List<Team> teams) {
+        return teams.stream()
                 .filter(team -> isGroupTeam(team.displayName()))
                 .map(team -> new GroupTeam(team.displayName(), team.slug(), toGroup(team.displayName())))
                 .toList();
     }
 
-    private void lookForNewTeams(List<String> requiredGroups, List<GroupTeam> existingTeams)
+    private Optional<Team> findOrCreateParentTeam(List<Team> teams)
+            throws GithubApiException, IOException, InterruptedException {
+
+        if (parentTeamName == null)
+            return Optional.empty();
+
+        var parentTeam = findTeam(teams, parentTeamName);
+        if (parentTeam.isPresent())
+            return parentTeam;
+
+        githubApi.createTeam(organizationName, parentTeamName);
+        logger.log(format("[Created team] '%s'", parentTeamName));
+
+        // Its id is needed to create the children
+        return findTeam(githubApi.getTeams(organizationName), parentTeamName);
+    }
+
+    // The parent team is deleted (instead of its children one by one) only if all its children are group teams
+    private Optional<Team> findParentTeamToDelete(List<Team> teams) {
+        if (parentTeamName == null)
+            return Optional.empty();
+
+        return findTeam(teams, parentTeamName)
+                .filter(parent -> teams.stream()
+                        .filter(team -> team.isChildOf(parent))
+                        .allMatch(team -> isGroupTeam(team.displayName())));
+    }
+
+    private static Optional<Team> findTeam(List<Team> teams, String displayName) {
+        return teams.stream().filter(team -> team.displayName().equals(displayName)).findFirst();
+    }
+
+    private void lookForNewTeams(List<String> requiredGroups, List<GroupTeam> existingTeams,
+            Optional<Team> parentTeam)
             throws GithubApiException, IOException, InterruptedException {
 
         List<String> teamsToCreate = requiredGroups.stream()
@@ -194,38 +945,113 @@ public final class Organization {
                         .noneMatch(existingTeam -> existingTeam.displayName().equals(teamName)))
                 .toList();
 
-        for (String team : teamsToCreate) {
-            githubApi.createTeam(organizationName, team);
-            logger.log(format("[Created team] '%s'", team));
-        }
+        var scheduler = new OperationScheduler(concurrency);
+        for (String team : teamsToCreate)
+            scheduler.submit(OperationClass.CREATE_TEAM, () -> {
+                var slug = parentTeam.isPresent()
+                        ? githubApi.createTeam(organizationName, team, parentTeam.get().id())
+                        : githubApi.createTeam(organizationName, team);
+                slug.ifPresent(created -> snapshot.teamCreated(team, created, Instant.now()));
+                logger.log(format("[Created team] '%s'", team));
+            });
+        scheduler.run();
     }
 
-    private void lookForTeamsToRemove(List<String> requiredGroups, List<GroupTeam> existingTeams)
+    // Moves under the parent team the group teams that are still needed and are not already its children
+    private void lookForTeamsToMove(List<String> requiredGroups, List<Team> teams, Team parentTeam)
             throws GithubApiException, IOException, InterruptedException {
 
-        List<GroupTeam> teamsToRemove = existingTeams.stream()
-                .filter(team -> requiredGroups.stream().noneMatch(team::isSameGroup))
+        List<Team> teamsToMove = teams.stream()
+                .filter(team -> isGroupTeam(team.displayName()))
+                .filter(team -> requiredGroups.contains(toGroup(team.displayName())))
+                .filter(team -> !team.isChildOf(parentTeam))
                 .toList();
 
-        for (var team : teamsToRemove) {
-            githubApi.deleteTeam(organizationName, team.slug());
-            logger.log(format("[Removed team] '%s'", team.displayName()));
+        for (var team : teamsToMove) {
+            githubApi.setParentTeam(organizationName, team.slug(), parentTeam.id());
+            logger.log(format("[Moved team] '%s' under '%s'", team.displayName(), parentTeam.displayName()));
         }
     }
 
 }
 
 /**
- * Auxiliary record to represent teams that correspond to student groups.
+ * Auxiliary record with an invitation to send in a sync, and when it was queued (Instant.MAX if it was not).
+ */
+record TeamInvitation(GroupTeam team, Student student, Instant queuedAt, Runnable done) {
+}
+
+/**
+ * Auxiliary record with the changes to make in the members of a group team.
  *
  * Includes:
- * - displayName: the display name of the team in GitHub (e.g., "group 01")
- * - slug: the unique identifier of the team in GitHub
- * - group: the group name extracted from the team name (e.g., "01")
+ * - invitations: the students of the group that are neither members nor invited
+ * - removals: the members (or invited users) that are not students of the group
+ * - renamed: the students of the group that are members with another login (the same GitHub id), which are kept
  */
-record GroupTeam(String displayName, String slug, String group) {
+record MembershipChanges(GroupTeam team, List<Student> invitations, List<String> removals,
+        Map<Student, String> renamed) {
+
+    /**
+     * Compares the students of the group with the state of the team. The members are matched to the students by
+     * login and, for the students with a GitHub id, also by id (given by idOf, 0 if unknown), so a student whose
+     * account has been renamed is neither removed nor invited again.
+     */
+    static MembershipChanges of(GroupTeam team, List<Student> requiredStudents, TeamSnapshot state,
+            ToLongFunction<String> idOf) {
+
+        var studentsById = new LongIntMap(requiredStudents.size());
+        Set<String> requiredStudentsLogins = new HashSet<>();
+        for (int i = 0; i < requiredStudents.size(); i++) {
+            var student = requiredStudents.get(i);
+            requiredStudentsLogins.add(student.login());
+            if (student.hasGithubId())
+                studentsById.put(student.githubId(), i);
+        }
+
+        Map<Student, String> renamed = new LinkedHashMap<>();
+        List<String> removals = new ArrayList<>();
+        for (var login : state.members()) {
+            if (requiredStudentsLogins.contains(login))
+                continue;
+            int student = studentsById.get(idOf.applyAsLong(login));
+            if (student != LongIntMap.MISSING)
+                renamed.putIfAbsent(requiredStudents.get(student), login);
+            else
+                removals.add(login);
+        }
+        for (var login : state.pending())
+            if (!requiredStudentsLogins.contains(login) && !state.members().contains(login))
+                removals.add(login);
+
+        var invitations = requiredStudents.stream()
+                .filter(student -> !state.members().contains(student.login())
+                        && !state.pending().contains(student.login()) && !renamed.containsKey(student))
+                .toList();
+
+        return new MembershipChanges(team, invitations, removals, renamed);
+    }
+
+    /**
+     * Returns only the changes of the given logins (in lower case).
+     */
+    MembershipChanges onlyOf(Set<String> logins) {
+        return new MembershipChanges(team,
+                invitations.stream().filter(student -> logins.contains(student.login().toLowerCase(Locale.ROOT)))
+                        .toList(),
+                removals.stream().filter(login -> logins.contains(login.toLowerCase(Locale.ROOT))).toList(),
+                renamed);
+    }
+
+    MembershipChanges withoutInvitations(List<Student> students) {
+        if (students.isEmpty())
+            return this;
+
+        return new MembershipChanges(team,
+                invitations.stream().filter(student -> !students.contains(student)).toList(), removals, renamed);
+    }
 
-    boolean isSameGroup(String otherGroup) {
-        return this.group.equals(otherGroup);
+    int size() {
+        return invitations.size() + removals.size();
     }
 }
@@ -0,0 +1,62 @@
+package es.uniovi.raul.teams.organization;
+
+import java.io.IOException;
+import java.util.*;
+
+import es.uniovi.raul.teams.github.GithubApi;
+import es.uniovi.raul.teams.github.GithubApi.*;
+import es.uniovi.raul.teams.github.Invitation;
+
+/**
+ * Index of the logins with a pending invitation to each team, by team slug.
+ *
+ * The index is built from the organization-wide list of invitations instead of reading the invitations of
+ * every team. As GitHub does not include the invited teams in that list, the teams of each invitation must
+ * be asked for separately. When that would take more calls than reading the invitations team by team
+ * (many pending invitations and few teams), the per-team reads are used instead.
+ */
+final class PendingInvitations {
+
+    private final Map<String, List<String>> loginsByTeam = new HashMap<>();
+
+    private PendingInvitations() {
+    }
+
+    /**
+     * Reads the pending invitations of the given teams with the minimum number of calls.
+     */
+    static PendingInvitations read(GithubApi githubApi, String organizationName, List<GroupTeam> teams)
+            throws GithubApiException, IOException, InterruptedException {
+
+        var index = new PendingInvitations();
+        if (teams.isEmpty())
+            return index;
+
+        List<Invitation> teamInvitations = githubApi.getOrganizationInvitations(organizationName).stream()
+                .filter(invitation -> invitation.teamCount() > 0)
+                .toList();
+
+        if (teamInvitations.size() <= teams.size()) {
+            for (var invitation : teamInvitations)
+                for (var teamSlug : githubApi.getInvitationTeams(organizationName, invitation.id()))
+                    index.add(teamSlug, invitation.login());
+        } else {
+            for (var team : teams)
+                for (var login : githubApi.getTeamInvitations(organizationName, team.slug()))
+                    index.add(team.slug(), login);
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the logins with a pending invitation to the team (empty if there are none).
+     */
+    List<String> of(String teamSlug) {
+        return loginsByTeam.getOrDefault(teamSlug, List.of());
+    }
+
+    private void add(String teamSlug, String login) {
+        loginsByTeam.computeIfAbsent(teamSlug, slug -> new ArrayList<>()).add(login);
+    }
+}
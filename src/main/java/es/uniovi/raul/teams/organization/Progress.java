@@ -0,0 +1,48 @@
+package es.uniovi.raul.teams.organization;
+
+/**
+ * Receives the progress of a long operation of {@link Organization} (a sync or a clean), as it finds the work to do.
+ */
+public interface Progress {
+
+    /**
+     * Progress that is not shown anywhere.
+     */
+    Progress NONE = new Progress() {
+        @Override
+        public void start(String phase, int teams, int operations) {
+        }
+
+        @Override
+        public void operationsFound(int operations) {
+        }
+
+        @Override
+        public void operationDone() {
+        }
+
+        @Override
+        public void teamDone() {
+        }
+
+        @Override
+        public void finish() {
+        }
+    };
+
+    /**
+     * The work is known: a number of changes (operations) to make in a number of teams.
+     */
+    void start(String phase, int teams, int operations);
+
+    /**
+     * More operations to make have been found after the start (e.g., the changes of a team that has just been read).
+     */
+    void operationsFound(int operations);
+
+    void operationDone();
+
+    void teamDone();
+
+    void finish();
+}
@@ -0,0 +1,45 @@
+package es.uniovi.raul.teams.organization;
+
+/**
+ * One of the parts in which the groups of an organization are divided to sync them in several processes.
+ *
+ * Each group belongs to exactly one shard, decided by its name alone, so the teams of groups that are no longer in
+ * the roster (to delete) are also handled by a single shard.
+ *
+ * @param index Index of the shard, from 0 to count - 1
+ * @param count Number of shards
+ */
+public record Shard(int index, int count) {
+
+    public Shard {
+
+        if (count < 1)
+            throw new IllegalArgumentException("Count must be at least 1.");
+
+        if (index < 0 || index >= count)
+            throw new IllegalArgumentException("Index must be between 0 and count - 1.");
+    }
+
+    /**
+     * Parses a shard written as "index/count" (e.g., "0/4").
+     */
+    public static Shard parse(String text) {
+        if (text == null || !text.matches("\\d+/\\d+"))
+            throw new IllegalArgumentException("Shard must be written as index/count (e.g., 0/4): " + text);
+
+        String[] parts = text.split("/");
+        return new Shard(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    /**
+     * Determines whether the group belongs to this shard. The hash of a string is the same in every JVM.
+     */
+    public boolean owns(String group) {
+        return Math.floorMod(group.hashCode(), count) == index;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,92 @@
+package es.uniovi.raul.teams.organization;
+
+import static java.lang.String.*;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+import es.uniovi.raul.teams.roster.Student;
+import es.uniovi.raul.teams.snapshot.*;
+
+/**
+ * Report of the state of the group teams compared with the roster, made only from a saved {@link OrganizationSnapshot}
+ * (no calls to GitHub).
+ *
+ * It shows:
+ * - For each group, the number of members that have accepted their invitation and the number of pending invitations.
+ * - The students with a pending invitation.
+ * - The students in the roster that are neither members nor invited to the team of their group.
+ * - The members (or invited users) of a group team that are not in the roster for that group (stale members).
+ */
+public final class StatusReport {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    /**
+     * Prints the report.
+     *
+     * @param snapshot the last known state of the organization
+     * @param roster   the students that should be in the teams
+     * @param logger   where to print the report
+     */
+    public static void print(OrganizationSnapshot snapshot, List<Student> roster, Logger logger) {
+
+        var teamsByGroup = new TreeMap<String, TeamSnapshot>();
+        for (var team : snapshot.teams())
+            if (TeamNaming.isGroupTeam(team.displayName()))
+                teamsByGroup.put(TeamNaming.toGroup(team.displayName()), team);
+
+        var groups = new TreeSet<>(teamsByGroup.keySet());
+        roster.forEach(student -> groups.add(student.group()));
+
+        logger.log(format("State of the organization '%s'%s", snapshot.organization(), readInterval(snapshot)));
+        logger.log("");
+        logger.log(format("%-16s %8s %8s", "Group", "Accepted", "Pending"));
+        for (var group : groups) {
+            var team = Optional.ofNullable(teamsByGroup.get(group));
+            logger.log(format("%-16s %8s %8s", group,
+                    team.map(t -> String.valueOf(t.members().size())).orElse("-"),
+                    team.map(t -> String.valueOf(t.pending().size())).orElse("-")));
+        }
+        logger.log("");
+
+        var rosterLogins = new HashMap<String, Set<String>>(); // group -> logins
+        for (var student : roster) {
+            rosterLogins.computeIfAbsent(student.group(), group -> new HashSet<>()).add(student.login());
+
+            var team = teamsByGroup.get(student.group());
+            if (team == null || !team.isMemberOrInvited(student.login()))
+                logger.log(format("[Not in GitHub] '%s' (%s) in group '%s'", student.name(), student.login(),
+                        student.group()));
+            else if (team.pending().contains(student.login()))
+                logger.log(format("[Pending invitation] '%s' (%s) in group '%s'", student.name(), student.login(),
+                        student.group()));
+        }
+
+        for (var entry : teamsByGroup.entrySet()) {
+            var required = rosterLogins.getOrDefault(entry.getKey(), Set.of());
+            var team = entry.getValue();
+            for (var login : team.members())
+                if (!required.contains(login))
+                    logger.log(format("[Not in roster] '%s' is a member of team '%s'", login, team.displayName()));
+            for (var login : team.pending())
+                if (!required.contains(login))
+                    logger.log(format("[Not in roster] '%s' is invited to team '%s'", login, team.displayName()));
+        }
+    }
+
+    // " (teams read between <oldest> and <newest>)"
+    private static String readInterval(OrganizationSnapshot snapshot) {
+        var times = snapshot.teams().stream().map(TeamSnapshot::readAt).sorted().toList();
+        if (times.isEmpty())
+            return " (no teams have been read yet)";
+
+        return format(" (teams read between %s and %s)", formatTime(times.get(0)),
+                formatTime(times.get(times.size() - 1)));
+    }
+
+    private static String formatTime(Instant instant) {
+        return TIME_FORMAT.format(instant.atZone(ZoneId.systemDefault()));
+    }
+}
@@ -0,0 +1,44 @@
+package es.uniovi.raul.teams.organization;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event of a phase of a sync, a clean or a grant (e.g., reading the state of the teams), or of a
+ * phase for a single team. Together with the GitHub calls made in it, it shows where the time of a slow run goes.
+ */
+@Name("es.uniovi.raul.teams.SyncPhase")
+@Label("Sync Phase")
+@Category({ "Teams", "Organization" })
+@Description("A phase of the update of an organization")
+final class SyncPhaseEvent extends Event {
+
+    @Label("Phase")
+    private String phase;
+
+    @Label("Team")
+    @Description("Slug of the team, if the phase is of a single team")
+    private String team;
+
+    @Label("Operations")
+    @Description("Changes made (or teams read) in the phase")
+    private int operations;
+
+    /**
+     * Creates the event of a phase and starts timing it.
+     */
+    static SyncPhaseEvent begin(String phase, String team) {
+        var event = new SyncPhaseEvent();
+        event.phase = phase;
+        event.team = team;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the phase with the number of operations made in it and commits the event (if it is being recorded).
+     */
+    void end(int operationCount) {
+        operations = operationCount;
+        commit();
+    }
+}
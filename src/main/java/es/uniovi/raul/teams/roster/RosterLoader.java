@@ -4,6 +4,7 @@ import static java.lang.String.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.apache.commons.csv.*;
 
@@ -16,10 +17,54 @@ import org.apache.commons.csv.*;
  * The fileds are as follows:
  * - The "identifier" column contains the roster ID, which is in the format "student name (group)". For example: "John Doe (01)" or "Izquierdo Castanedo, Raúl (i02)".
  * - The "github_username" column contains the student's GitHub username, which is used to link the student to their GitHub account and repositories.
- * - The "github_id" and "name" columns are ignored by this loader.
+ * - The "github_id" column contains the numeric id of the student's GitHub account, which identifies it even after being renamed. It may be empty (a value that is not a number is ignored with a warning).
+ * - The "name" column is ignored by this loader.
  */
 public final class RosterLoader {
 
+    /**
+     * Loads several rosters (e.g., of different courses that share the organization) in parallel and merges them.
+     * <p>
+     * A student that appears in several rosters (same GitHub username, ignoring case) is included only once. If those
+     * rosters assign the student to different groups, the rosters cannot be merged and an exception listing all the
+     * conflicts is thrown.
+     *
+     * @param rosterFiles paths of the CSV files
+     * @return the students of all the rosters, without duplicates
+     * @throws IOException if a file cannot be read
+     * @throws InvalidRosterFormatException if a file is not a valid roster or the rosters have conflicting groups
+     * @throws InterruptedException if the loading is interrupted
+     */
+    public static List<Student> loadAll(List<String> rosterFiles)
+            throws IOException, InvalidRosterFormatException, InterruptedException {
+
+        if (rosterFiles.size() == 1)
+            return load(rosterFiles.get(0));
+
+        List<Future<List<Student>>> rosters = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String rosterFile : rosterFiles)
+                rosters.add(executor.submit(() -> load(rosterFile)));
+        }
+
+        Map<String, Student> studentsByLogin = new LinkedHashMap<>();
+        List<String> conflicts = new ArrayList<>();
+        for (int i = 0; i < rosters.size(); i++) {
+            for (Student student : getRoster(rosters.get(i))) {
+                var previous = studentsByLogin.putIfAbsent(student.login().toLowerCase(Locale.ROOT), student);
+                if (previous != null && !previous.group().equals(student.group()))
+                    conflicts.add(format("'%s' is in group '%s' and in group '%s' (in '%s')", student.login(),
+                            previous.group(), student.group(), rosterFiles.get(i)));
+            }
+        }
+
+        if (!conflicts.isEmpty())
+            throw new InvalidRosterFormatException(
+                    "The rosters assign students to different groups: " + join("; ", conflicts));
+
+        return new ArrayList<>(studentsByLogin.values());
+    }
+
     /**
      * Loads the roster from a CSV file path.
      *
@@ -66,7 +111,11 @@ public final class RosterLoader {
                     var studentName = RosterNaming.extractStudentName(rosterId);
                     var group = RosterNaming.extractGroup(rosterId);
 
-                    roster.add(new Student(studentName, group, rosterId, githubUsername.get()));
+                    var githubId = findValue(csvRecord, "github_id")
+                            .map(value -> parseGithubId(value, csvRecord))
+                            .orElse(Student.UNKNOWN_ID);
+
+                    roster.add(new Student(studentName, group, rosterId, githubUsername.get(), githubId));
 
                 } catch (IllegalArgumentException e) {
                     throw new InvalidRosterFormatException(
@@ -83,6 +132,31 @@ public final class RosterLoader {
         return roster;
     }
 
+    // The id is only used to follow renamed accounts, so an invalid one must not make the whole roster invalid
+    private static long parseGithubId(String value, CSVRecord csvRecord) {
+        String id = value.strip();
+        if (!id.matches("\\d{1,18}")) {
+            System.err.printf("[WARNING] Record #%d: '%s' -> the GitHub id is not a number and is ignored: %s%n",
+                    csvRecord.getRecordNumber(), join(", ", csvRecord), value);
+            return Student.UNKNOWN_ID;
+        }
+        return Long.parseLong(id);
+    }
+
+    // Returns the result of a load made in another thread, with the exception it threw (if any)
+    private static List<Student> getRoster(Future<List<Student>> roster)
+            throws IOException, InvalidRosterFormatException, InterruptedException {
+        try {
+            return roster.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException)
+                throw ioException;
+            if (e.getCause() instanceof InvalidRosterFormatException formatException)
+                throw formatException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     // Checks that the header is exactly this four columnos (no more, no less): "identifier","github_username","github_id","name"
     private static void validateHeader(CSVParser parser) throws InvalidRosterFormatException {
         if (parser.getHeaderMap().size() != 4)
@@ -4,18 +4,24 @@ package es.uniovi.raul.teams.roster;
  * Stores the information of a student.
  *
  * Example:
- * new Student("Smith, John", "01", "12345", "john-smith72")
+ * new Student("Smith, John", "01", "Smith, John (01)", "john-smith72", 5012345)
  * - name: "Smith, John"
  * - group: "01"
  * - rosterId: "Smith, John (01)"
  * - login: "john-smith72"
+ * - githubId: 5012345
  *
  * @param name            The name of the student
  * @param group           The group of the student
  * @param rosterId        The unique identifier for the student in the roster
  * @param login  The GitHub username of the student
+ * @param githubId The numeric id of the GitHub account, which (unlike the login) does not change if the account is
+ *                 renamed. {@link #UNKNOWN_ID} if the roster does not have it.
  */
-public record Student(String name, String group, String rosterId, String login) {
+public record Student(String name, String group, String rosterId, String login, long githubId) {
+
+    public static final long UNKNOWN_ID = 0;
+
     public Student {
 
         if (name == null || name.isBlank())
@@ -30,6 +36,17 @@ public record Student(String name, String group, String rosterId, String login)
         if (login == null || login.isBlank())
             throw new IllegalArgumentException("GitHub username cannot be null or blank.");
 
+        if (githubId < 0)
+            throw new IllegalArgumentException("GitHub id cannot be negative.");
+
+    }
+
+    public Student(String name, String group, String rosterId, String login) {
+        this(name, group, rosterId, login, UNKNOWN_ID);
+    }
+
+    public boolean hasGithubId() {
+        return githubId != UNKNOWN_ID;
     }
 
 }
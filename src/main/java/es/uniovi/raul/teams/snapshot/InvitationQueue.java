@@ -0,0 +1,238 @@
+package es.uniovi.raul.teams.snapshot;
+
+import static java.lang.String.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.BiPredicate;
+
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.*;
+
+/**
+ * Invitations to teams that could not be sent because the organization reached the limit of invitations that GitHub
+ * allows in 24 hours, so they are sent by later syncs, the ones that have waited longer first.
+ *
+ * The limit is a rolling window: once reached, the next invitation can be sent 24 hours after the oldest one sent in
+ * the window. Hence the queue also remembers when the last invitations were sent. It is saved as a JSON file:
+ * {"invitations":[{"team":"group-a","login":"alice","queuedAt":1767225600}],"sentAt":[1767139200],
+ *  "limitReachedAt":1767225600}
+ *
+ * where the instants are in seconds since the epoch, and "limitReachedAt" is missing if invitations can be sent.
+ */
+public final class InvitationQueue {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration LIMIT_WINDOW = Duration.ofHours(24);
+
+    private final Map<String, Instant> queued = new LinkedHashMap<>(); // By "team/login", in the order queued
+    private final Deque<Instant> sentAt = new ArrayDeque<>(); // Oldest first, within the window
+    private Instant limitReachedAt; // null if invitations can be sent
+
+    /**
+     * Default file of the queue of an organization: the state file with the '.invitations' suffix.
+     */
+    public static Path defaultFile(Path stateFile) {
+        return stateFile.resolveSibling(stateFile.getFileName() + ".invitations");
+    }
+
+    /**
+     * Loads the queue from the file, or returns an empty one if the file does not exist.
+     *
+     * @throws IOException if the file cannot be read or its format is not valid
+     */
+    public static InvitationQueue load(Path file) throws IOException {
+        var queue = new InvitationQueue();
+        if (!Files.exists(file))
+            return queue;
+
+        JsonNode root = MAPPER.readTree(file.toFile());
+        if (!root.path("invitations").isArray() || !root.path("sentAt").isArray())
+            throw new IOException(format("'%s' is not a valid invitation queue.", file));
+
+        for (JsonNode invitation : root.get("invitations")) {
+            if (!invitation.path("team").isTextual() || !invitation.path("login").isTextual()
+                    || !invitation.path("queuedAt").isNumber())
+                throw new IOException(format("'%s' is not a valid invitation queue. Invalid invitation: %s",
+                        file, invitation));
+
+            queue.enqueue(invitation.get("team").asText(), invitation.get("login").asText(),
+                    Instant.ofEpochSecond(invitation.get("queuedAt").asLong()));
+        }
+        for (JsonNode sent : root.get("sentAt"))
+            queue.sentAt.add(Instant.ofEpochSecond(sent.asLong()));
+        if (root.path("limitReachedAt").isNumber())
+            queue.limitReachedAt = Instant.ofEpochSecond(root.get("limitReachedAt").asLong());
+        return queue;
+    }
+
+    /**
+     * Saves the queue to the file, replacing it atomically.
+     */
+    public synchronized void save(Path file) throws IOException {
+
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode invitations = root.putArray("invitations");
+        queued.forEach((key, queuedAt) -> {
+            int separator = key.indexOf('/');
+            invitations.addObject()
+                    .put("team", key.substring(0, separator))
+                    .put("login", key.substring(separator + 1))
+                    .put("queuedAt", queuedAt.getEpochSecond());
+        });
+        ArrayNode sent = root.putArray("sentAt");
+        sentAt.forEach(instant -> sent.add(instant.getEpochSecond()));
+        if (limitReachedAt != null)
+            root.put("limitReachedAt", limitReachedAt.getEpochSecond());
+
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), ".teams-", ".tmp");
+        try {
+            MAPPER.writeValue(temporary.toFile(), root);
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Queues the invitation of the login to the team, unless it is already queued (it keeps its place).
+     */
+    public synchronized void enqueue(String teamSlug, String login, Instant now) {
+        if (teamSlug == null || teamSlug.isBlank())
+            throw new IllegalArgumentException("Team cannot be null or blank.");
+        if (login == null || login.isBlank())
+            throw new IllegalArgumentException("Login cannot be null or blank.");
+        if (now == null)
+            throw new IllegalArgumentException("Instant cannot be null.");
+
+        queued.putIfAbsent(key(teamSlug, login), now);
+    }
+
+    /**
+     * Returns when the invitation was queued, or empty if it is not queued.
+     */
+    public synchronized Optional<Instant> queuedAt(String teamSlug, String login) {
+        return Optional.ofNullable(queued.get(key(teamSlug, login)));
+    }
+
+    /**
+     * Returns when the oldest invitation to the team in the queue was queued, or empty if there is none.
+     */
+    public synchronized Optional<Instant> oldestQueuedAt(String teamSlug) {
+        return queued.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(teamSlug + "/"))
+                .map(Map.Entry::getValue)
+                .min(Comparator.naturalOrder());
+    }
+
+    /**
+     * Leaves in the queue only the invitations that are still needed (e.g., the student is still in the group).
+     */
+    public synchronized void retain(BiPredicate<String, String> stillNeeded) {
+        queued.keySet().removeIf(key -> {
+            int separator = key.indexOf('/');
+            return !stillNeeded.test(key.substring(0, separator), key.substring(separator + 1));
+        });
+    }
+
+    /**
+     * Records that an invitation has been sent: it is no longer queued, and the limit has not been reached.
+     */
+    public synchronized void sent(String teamSlug, String login, Instant now) {
+        queued.remove(key(teamSlug, login));
+        limitReachedAt = null;
+
+        sentAt.add(now);
+        while (!sentAt.isEmpty() && !sentAt.peekFirst().isAfter(now.minus(LIMIT_WINDOW)))
+            sentAt.removeFirst();
+    }
+
+    /**
+     * Records that GitHub has rejected an invitation because the limit has been reached.
+     */
+    public synchronized void limitReached(Instant now) {
+        if (limitReachedAt == null)
+            limitReachedAt = now;
+    }
+
+    /**
+     * Returns when the next invitation can be sent, or empty if the limit has not been reached.
+     */
+    public synchronized Optional<Instant> nextAttempt() {
+        if (limitReachedAt == null)
+            return Optional.empty();
+
+        // The oldest invitation sent in the window that ended with the limit leaves it first
+        var windowStart = limitReachedAt.minus(LIMIT_WINDOW);
+        return Optional.of(sentAt.stream()
+                .filter(instant -> instant.isAfter(windowStart))
+                .findFirst()
+                .orElse(limitReachedAt)
+                .plus(LIMIT_WINDOW));
+    }
+
+    /**
+     * Determines whether invitations can be sent now (if they are going to be rejected, it is better to not try).
+     */
+    public synchronized boolean canSend(Instant now) {
+        return nextAttempt().map(next -> !now.isBefore(next)).orElse(true);
+    }
+
+    /**
+     * Determines whether there are queued invitations that can be sent now.
+     */
+    public synchronized boolean isDue(Instant now) {
+        return !queued.isEmpty() && canSend(now);
+    }
+
+    /**
+     * Applies the changes made to a copy of the queue since it was copied (e.g., by a worker process that synced
+     * some of the groups): its invitations that were sent or dropped are removed, the new ones are queued, and the
+     * sent invitations and reached limit are taken into account for the limit of the organization.
+     *
+     * @param base    the queue as it was when it was copied
+     * @param changed the copy, after the changes
+     */
+    public synchronized void merge(InvitationQueue base, InvitationQueue changed) {
+        if (base == null || changed == null)
+            throw new IllegalArgumentException("Queues cannot be null.");
+
+        synchronized (changed) {
+            base.queued.keySet().stream()
+                    .filter(key -> !changed.queued.containsKey(key))
+                    .forEach(queued::remove);
+            changed.queued.forEach((key, queuedAt) -> {
+                if (!base.queued.containsKey(key))
+                    queued.putIfAbsent(key, queuedAt);
+            });
+
+            var lastSent = base.sentAt.peekLast();
+            List<Instant> merged = new ArrayList<>(sentAt);
+            changed.sentAt.stream()
+                    .filter(instant -> lastSent == null || instant.isAfter(lastSent))
+                    .forEach(merged::add);
+            Collections.sort(merged);
+            sentAt.clear();
+            sentAt.addAll(merged);
+
+            // A limit reached by any copy holds for the whole organization. Otherwise, if the copy could send again,
+            // the limit is over unless another copy has reached it
+            if (changed.limitReachedAt != null && !changed.limitReachedAt.equals(base.limitReachedAt)) {
+                if (limitReachedAt == null || limitReachedAt.isBefore(changed.limitReachedAt))
+                    limitReachedAt = changed.limitReachedAt;
+            } else if (changed.limitReachedAt == null && Objects.equals(limitReachedAt, base.limitReachedAt))
+                limitReachedAt = null;
+        }
+    }
+
+    public synchronized int size() {
+        return queued.size();
+    }
+
+    private static String key(String teamSlug, String login) {
+        return teamSlug + "/" + login;
+    }
+}
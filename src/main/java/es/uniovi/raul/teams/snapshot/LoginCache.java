@@ -0,0 +1,121 @@
+package es.uniovi.raul.teams.snapshot;
+
+import static java.lang.String.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.*;
+
+/**
+ * Remembers which GitHub logins exist and which do not, so the logins of the roster are not looked up again in every
+ * run. What is known about a login expires after a time, as a student can create the missing account (or delete it).
+ *
+ * Logins are case-insensitive, as in GitHub. It is saved as a JSON file:
+ * {"logins":{"alice":{"exists":true,"checkedAt":1767225600}}}
+ *
+ * where "checkedAt" is in seconds since the epoch.
+ */
+public final class LoginCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private record Entry(boolean exists, Instant checkedAt) {
+    }
+
+    private final Duration timeToLive;
+    private final Map<String, Entry> logins = new TreeMap<>(); // By login in lowercase
+
+    public LoginCache(Duration timeToLive) {
+        if (timeToLive == null || timeToLive.isNegative())
+            throw new IllegalArgumentException("Time to live cannot be null or negative.");
+
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Default file of the cache: '.teams-logins.json' in the given directory (it is shared by all organizations).
+     */
+    public static Path defaultFile(Path directory) {
+        return directory.resolve(".teams-logins.json");
+    }
+
+    /**
+     * Loads the cache from the file, or returns an empty one if the file does not exist.
+     *
+     * @throws IOException if the file cannot be read or its format is not valid
+     */
+    public static LoginCache load(Path file, Duration timeToLive) throws IOException {
+        var cache = new LoginCache(timeToLive);
+        if (!Files.exists(file))
+            return cache;
+
+        JsonNode root = MAPPER.readTree(file.toFile());
+        if (!root.path("logins").isObject())
+            throw new IOException(format("'%s' is not a valid login cache.", file));
+
+        var fields = root.get("logins").fields();
+        while (fields.hasNext()) {
+            var field = fields.next();
+            JsonNode entry = field.getValue();
+            if (!entry.path("exists").isBoolean() || !entry.path("checkedAt").isNumber())
+                throw new IOException(format("'%s' is not a valid login cache. Invalid login: %s", file, field));
+
+            cache.checked(field.getKey(), entry.get("exists").asBoolean(),
+                    Instant.ofEpochSecond(entry.get("checkedAt").asLong()));
+        }
+        return cache;
+    }
+
+    /**
+     * Saves the cache to the file, replacing it atomically. Expired logins are not saved.
+     */
+    public synchronized void save(Path file, Instant now) throws IOException {
+
+        ObjectNode root = MAPPER.createObjectNode();
+        ObjectNode loginsNode = root.putObject("logins");
+        logins.forEach((login, entry) -> {
+            if (isValid(entry, now))
+                loginsNode.putObject(login)
+                        .put("exists", entry.exists())
+                        .put("checkedAt", entry.checkedAt().getEpochSecond());
+        });
+
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), ".teams-", ".tmp");
+        try {
+            MAPPER.writeValue(temporary.toFile(), root);
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Returns whether the login exists, or empty if it is not known (never checked or expired).
+     */
+    public synchronized Optional<Boolean> exists(String login, Instant now) {
+        return Optional.ofNullable(logins.get(login.toLowerCase(Locale.ROOT)))
+                .filter(entry -> isValid(entry, now))
+                .map(Entry::exists);
+    }
+
+    /**
+     * Records whether the login exists, as checked at the given instant.
+     */
+    public synchronized void checked(String login, boolean exists, Instant checkedAt) {
+        if (login == null || login.isBlank())
+            throw new IllegalArgumentException("Login cannot be null or blank.");
+        if (checkedAt == null)
+            throw new IllegalArgumentException("Instant cannot be null.");
+
+        logins.put(login.toLowerCase(Locale.ROOT), new Entry(exists, checkedAt));
+    }
+
+    private boolean isValid(Entry entry, Instant now) {
+        return entry.checkedAt().plus(timeToLive).isAfter(now);
+    }
+}
@@ -0,0 +1,163 @@
+package es.uniovi.raul.teams.snapshot;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Last known state of the group teams of an organization: their members and pending invitations, and the GitHub id
+ * of the members (which identifies them even after renaming their account).
+ *
+ * It is fed with what {@code Organization} reads from GitHub and with the changes it makes, so after a sync it
+ * reflects the organization without having to read it again. It can be saved to a file with {@link SnapshotStore}.
+ *
+ * All the methods are thread-safe.
+ */
+public final class OrganizationSnapshot {
+
+    private final String organization;
+    private final Map<String, TeamSnapshot> teams = new TreeMap<>();
+    private final Map<String, Long> userIds = new HashMap<>(); // By login
+
+    public OrganizationSnapshot(String organization) {
+        if (organization == null || organization.isBlank())
+            throw new IllegalArgumentException("Organization cannot be null or blank.");
+
+        this.organization = organization;
+    }
+
+    public String organization() {
+        return organization;
+    }
+
+    /**
+     * Returns the teams in the snapshot, sorted by slug.
+     */
+    public synchronized List<TeamSnapshot> teams() {
+        return List.copyOf(teams.values());
+    }
+
+    public synchronized Optional<TeamSnapshot> team(String slug) {
+        return Optional.ofNullable(teams.get(slug));
+    }
+
+    /**
+     * Whether no team has been observed yet.
+     */
+    public synchronized boolean isEmpty() {
+        return teams.isEmpty();
+    }
+
+    /**
+     * Returns the GitHub id of the login, if it has been seen as a member of a team.
+     */
+    public synchronized OptionalLong userId(String login) {
+        Long id = userIds.get(login);
+        return id != null ? OptionalLong.of(id) : OptionalLong.empty();
+    }
+
+    /**
+     * Returns the known GitHub ids, by login.
+     */
+    public synchronized Map<String, Long> userIds() {
+        return Map.copyOf(userIds);
+    }
+
+    /**
+     * Records the GitHub id of a login (ids that are not positive are unknown and ignored).
+     */
+    public synchronized void userIdRead(String login, long id) {
+        if (id > 0)
+            userIds.put(login, id);
+    }
+
+    /**
+     * Records the members (with their GitHub ids) and pending invitations of a team just read from GitHub.
+     */
+    public synchronized void teamRead(String displayName, String slug, Map<String, Long> members,
+            Collection<String> pending, Instant readAt) {
+
+        members.forEach(this::userIdRead);
+        teamRead(displayName, slug, members.keySet(), pending, readAt);
+    }
+
+    /**
+     * Records the members and pending invitations of a team just read from GitHub.
+     */
+    public synchronized void teamRead(String displayName, String slug, Collection<String> members,
+            Collection<String> pending, Instant readAt) {
+
+        teams.put(slug, new TeamSnapshot(displayName, slug, new HashSet<>(members), new HashSet<>(pending), readAt));
+    }
+
+    /**
+     * Records a team just created in GitHub (a new team has neither members nor invitations).
+     */
+    public synchronized void teamCreated(String displayName, String slug, Instant createdAt) {
+        teamRead(displayName, slug, Set.of(), Set.of(), createdAt);
+    }
+
+    /**
+     * Records that a team no longer exists.
+     */
+    public synchronized void teamDeleted(String slug) {
+        teams.remove(slug);
+    }
+
+    /**
+     * Removes the teams that are not in the given list of slugs (they have been deleted by someone else).
+     */
+    public synchronized void retainTeams(Collection<String> existingSlugs) {
+        teams.keySet().retainAll(new HashSet<>(existingSlugs));
+    }
+
+    /**
+     * Records that a login has been invited to a team. If it is already a member, nothing changes.
+     */
+    public synchronized void memberInvited(String slug, String login) {
+        var team = teams.get(slug);
+        if (team == null || team.members().contains(login))
+            return;
+
+        var pending = new HashSet<>(team.pending());
+        pending.add(login);
+        teams.put(slug, new TeamSnapshot(team.displayName(), slug, team.members(), pending, team.readAt()));
+    }
+
+    /**
+     * Records that a login has accepted the invitation to a team (or has been added to it directly).
+     */
+    public synchronized void memberAdded(String slug, String login) {
+        var team = teams.get(slug);
+        if (team == null)
+            return;
+
+        var members = new HashSet<>(team.members());
+        members.add(login);
+        var pending = new HashSet<>(team.pending());
+        pending.remove(login);
+        teams.put(slug, new TeamSnapshot(team.displayName(), slug, members, pending, team.readAt()));
+    }
+
+    /**
+     * Records that a login is no longer a member of a team nor has a pending invitation to it.
+     */
+    public synchronized void memberRemoved(String slug, String login) {
+        var team = teams.get(slug);
+        if (team == null || !team.isMemberOrInvited(login))
+            return;
+
+        var members = new HashSet<>(team.members());
+        members.remove(login);
+        var pending = new HashSet<>(team.pending());
+        pending.remove(login);
+        teams.put(slug, new TeamSnapshot(team.displayName(), slug, members, pending, team.readAt()));
+    }
+
+    /**
+     * Records that a login has left the organization (and therefore all its teams).
+     */
+    public synchronized void memberRemovedFromOrganization(String login) {
+        for (var slug : List.copyOf(teams.keySet()))
+            memberRemoved(slug, login);
+    }
+}
@@ -0,0 +1,97 @@
+package es.uniovi.raul.teams.snapshot;
+
+import static java.lang.String.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.*;
+
+/**
+ * Saves and loads an {@link OrganizationSnapshot} as a compact JSON file.
+ *
+ * Format:
+ * {"organization":"org","teams":[{"name":"group 01","slug":"group-01","readAt":1767225600,"members":["alice"],"pending":["bob"]}],
+ *  "ids":{"alice":1001}}
+ *
+ * where "readAt" is in seconds since the epoch, and "ids" has the GitHub id of the members (missing in older files).
+ */
+public final class SnapshotStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Default file for the snapshot of an organization: '.teams-&lt;organization&gt;.json' in the working directory.
+     */
+    public static Path defaultFile(String organization) {
+        return Path.of(".teams-" + organization + ".json");
+    }
+
+    /**
+     * Loads the snapshot of the organization from the file.
+     *
+     * @return the snapshot, or empty if the file does not exist or belongs to another organization
+     * @throws IOException if the file cannot be read or its format is not valid
+     */
+    public static Optional<OrganizationSnapshot> load(Path file, String organization) throws IOException {
+
+        if (!Files.exists(file))
+            return Optional.empty();
+
+        JsonNode root = MAPPER.readTree(file.toFile());
+        if (!root.path("organization").isTextual() || !root.path("teams").isArray())
+            throw new IOException(format("'%s' is not a valid state file.", file));
+
+        if (!root.get("organization").asText().equals(organization))
+            return Optional.empty();
+
+        var snapshot = new OrganizationSnapshot(organization);
+        for (JsonNode team : root.get("teams")) {
+            if (!team.path("name").isTextual() || !team.path("slug").isTextual() || !team.path("readAt").isNumber())
+                throw new IOException(format("'%s' is not a valid state file. Invalid team: %s", file, team));
+
+            snapshot.teamRead(team.get("name").asText(), team.get("slug").asText(), logins(team.path("members")),
+                    logins(team.path("pending")), Instant.ofEpochSecond(team.get("readAt").asLong()));
+        }
+        root.path("ids").fields().forEachRemaining(id -> snapshot.userIdRead(id.getKey(), id.getValue().asLong()));
+        return Optional.of(snapshot);
+    }
+
+    /**
+     * Saves the snapshot to the file, replacing it atomically (a reader never sees a half-written file).
+     */
+    public static void save(OrganizationSnapshot snapshot, Path file) throws IOException {
+
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("organization", snapshot.organization());
+        ArrayNode teams = root.putArray("teams");
+        for (var team : snapshot.teams()) {
+            ObjectNode node = teams.addObject();
+            node.put("name", team.displayName());
+            node.put("slug", team.slug());
+            node.put("readAt", team.readAt().getEpochSecond());
+            team.members().forEach(node.putArray("members")::add);
+            team.pending().forEach(node.putArray("pending")::add);
+        }
+        ObjectNode ids = root.putObject("ids");
+        new TreeMap<>(snapshot.userIds()).forEach(ids::put);
+
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), ".teams-", ".tmp");
+        try {
+            MAPPER.writeValue(temporary.toFile(), root);
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static List<String> logins(JsonNode array) {
+        List<String> logins = new ArrayList<>();
+        array.forEach(node -> logins.add(node.asText()));
+        return logins;
+    }
+}
@@ -0,0 +1,39 @@
+package es.uniovi.raul.teams.snapshot;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * State of a group team as it was last observed in GitHub (plus the changes made by this tool afterwards).
+ *
+ * @param displayName the display name of the team (e.g., "group 01")
+ * @param slug        the unique identifier (slug) of the team
+ * @param members     logins of the members that have accepted their invitation
+ * @param pending     logins with a pending invitation to the team
+ * @param readAt      when the members and invitations of the team were read from GitHub
+ */
+public record TeamSnapshot(String displayName, String slug, Set<String> members, Set<String> pending,
+        Instant readAt) {
+
+    public TeamSnapshot {
+
+        if (displayName == null || displayName.isBlank())
+            throw new IllegalArgumentException("Display name cannot be null or blank.");
+
+        if (slug == null || slug.isBlank())
+            throw new IllegalArgumentException("Slug cannot be null or blank.");
+
+        if (readAt == null)
+            throw new IllegalArgumentException("Read time cannot be null.");
+
+        members = Collections.unmodifiableSet(new TreeSet<>(members));
+        pending = Collections.unmodifiableSet(new TreeSet<>(pending));
+    }
+
+    /**
+     * Whether the login is a member of the team or has a pending invitation to it.
+     */
+    public boolean isMemberOrInvited(String login) {
+        return members.contains(login) || pending.contains(login);
+    }
+}
@@ -0,0 +1,108 @@
+package es.uniovi.raul.teams.webhook;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import es.uniovi.raul.teams.organization.TeamNaming;
+import es.uniovi.raul.teams.snapshot.OrganizationSnapshot;
+
+/**
+ * Applies GitHub webhook events to an {@link OrganizationSnapshot}, so it reflects the changes made by others
+ * (students accepting invitations, owners editing teams in the web, etc.).
+ *
+ * Handled events:
+ * - "membership" (added, removed): a user joins or leaves a team.
+ * - "team" (created, deleted, edited): group teams that appear or disappear. A renamed team is dropped from the
+ *   snapshot, so it is read again in the next sync.
+ * - "organization" (member_removed): the user leaves all the teams.
+ *
+ * GitHub sends no event when a team invitation is created, cancelled or expires, so pending invitations made outside
+ * this tool are only known after reading the team again.
+ */
+final class SnapshotUpdater {
+
+    private final OrganizationSnapshot snapshot;
+
+    SnapshotUpdater(OrganizationSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Applies the event to the snapshot.
+     *
+     * @param event   the value of the 'X-GitHub-Event' header
+     * @param payload the body of the event
+     * @return whether the event has been applied (false if it is not relevant for the group teams)
+     */
+    boolean apply(String event, JsonNode payload) {
+
+        if (!payload.path("organization").path("login").asText().equals(snapshot.organization()))
+            return false;
+
+        String action = payload.path("action").asText();
+        return switch (event) {
+            case "membership" -> applyMembership(action, payload);
+            case "team" -> applyTeam(action, payload);
+            case "organization" -> applyOrganization(action, payload);
+            default -> false;
+        };
+    }
+
+    private boolean applyMembership(String action, JsonNode payload) {
+        String slug = payload.path("team").path("slug").asText();
+        String login = payload.path("member").path("login").asText();
+        if (slug.isEmpty() || login.isEmpty() || snapshot.team(slug).isEmpty())
+            return false;
+
+        switch (action) {
+            case "added" -> {
+                snapshot.memberAdded(slug, login);
+                snapshot.userIdRead(login, payload.path("member").path("id").asLong());
+            }
+            case "removed" -> snapshot.memberRemoved(slug, login);
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean applyTeam(String action, JsonNode payload) {
+        String slug = payload.path("team").path("slug").asText();
+        String name = payload.path("team").path("name").asText();
+        if (slug.isEmpty() || name.isEmpty())
+            return false;
+
+        switch (action) {
+            case "created" -> {
+                if (!TeamNaming.isGroupTeam(name))
+                    return false;
+                snapshot.teamCreated(name, slug, Instant.now());
+            }
+            case "deleted" -> snapshot.teamDeleted(slug);
+            case "edited" -> {
+                // The slug in the payload is the new one; the old one is found by the previous name
+                String previousName = payload.path("changes").path("name").path("from").asText();
+                if (previousName.isEmpty())
+                    return false;
+                snapshot.teams().stream()
+                        .filter(team -> team.displayName().equals(previousName))
+                        .forEach(team -> snapshot.teamDeleted(team.slug()));
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean applyOrganization(String action, JsonNode payload) {
+        String login = payload.path("membership").path("user").path("login").asText();
+        if (!"member_removed".equals(action) || login.isEmpty())
+            return false;
+
+        snapshot.memberRemovedFromOrganization(login);
+        return true;
+    }
+}
@@ -0,0 +1,150 @@
+package es.uniovi.raul.teams.webhook;
+
+import static java.lang.String.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.HexFormat;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.*;
+import com.sun.net.httpserver.*;
+
+import es.uniovi.raul.teams.organization.Logger;
+import es.uniovi.raul.teams.snapshot.OrganizationSnapshot;
+
+/**
+ * Embedded HTTP endpoint that receives the webhook events of the organization (POST /webhook) and applies them to
+ * an {@link OrganizationSnapshot} shared with {@code Organization}.
+ * <p>
+ * Every request must be signed by GitHub with the webhook secret ('X-Hub-Signature-256' header); unsigned or wrongly
+ * signed requests are rejected with 401. Events are applied one at a time, in the order they arrive.
+ * <p>
+ * In GitHub, the webhook must be configured in the organization with content type 'application/json' and the
+ * events 'Memberships', 'Teams' and 'Organizations'.
+ */
+public final class WebhookReceiver implements AutoCloseable {
+
+    private static final String PATH = "/webhook";
+    private static final String HMAC = "HmacSHA256";
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_NO_CONTENT = 204;
+    private static final int STATUS_BAD_REQUEST = 400;
+    private static final int STATUS_UNAUTHORIZED = 401;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final SecretKeySpec key;
+    private final SnapshotUpdater updater;
+    private final Logger logger;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong appliedEvents = new AtomicLong();
+
+    /**
+     * Creates the receiver listening on the given port (0 to use any free port). It does not accept events until
+     * {@link #start()} is called.
+     */
+    public WebhookReceiver(int port, String secret, OrganizationSnapshot snapshot, Logger logger) throws IOException {
+        if (secret == null || secret.isBlank())
+            throw new IllegalArgumentException("Webhook secret cannot be null or blank.");
+        if (snapshot == null)
+            throw new IllegalArgumentException("Snapshot cannot be null.");
+        if (logger == null)
+            throw new IllegalArgumentException("Logger cannot be null.");
+
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC);
+        this.updater = new SnapshotUpdater(snapshot);
+        this.logger = logger;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the receiver is listening on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of events that have changed the snapshot since the receiver was created.
+     */
+    public long getAppliedEvents() {
+        return appliedEvents.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(STATUS_METHOD_NOT_ALLOWED, -1);
+                return;
+            }
+
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (!isSignedByGithub(body, exchange.getRequestHeaders().getFirst("X-Hub-Signature-256"))) {
+                logger.log("[WARNING] Webhook request rejected: invalid signature");
+                exchange.sendResponseHeaders(STATUS_UNAUTHORIZED, -1);
+                return;
+            }
+
+            String event = exchange.getRequestHeaders().getFirst("X-GitHub-Event");
+            if (event == null || "ping".equals(event)) {
+                exchange.sendResponseHeaders(STATUS_OK, -1);
+                return;
+            }
+
+            JsonNode payload;
+            try {
+                payload = mapper.readTree(body);
+            } catch (JsonProcessingException e) {
+                exchange.sendResponseHeaders(STATUS_BAD_REQUEST, -1);
+                return;
+            }
+
+            if (updater.apply(event, payload)) {
+                appliedEvents.incrementAndGet();
+                logger.log(format("[Webhook] %s %s", event, payload.path("action").asText()));
+            }
+            exchange.sendResponseHeaders(STATUS_NO_CONTENT, -1);
+        }
+    }
+
+    // The header has the format "sha256=<hex of the HMAC-SHA256 of the body>"
+    private boolean isSignedByGithub(byte[] body, String signatureHeader) {
+        if (signatureHeader == null || !signatureHeader.startsWith("sha256="))
+            return false;
+
+        try {
+            var mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            byte[] expected = mac.doFinal(body);
+            byte[] received = HexFormat.of().parseHex(signatureHeader.substring("sha256=".length()));
+            return MessageDigest.isEqual(expected, received); // Constant time comparison
+        } catch (IllegalArgumentException e) {
+            return false; // Not a hexadecimal value
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available in this JVM", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package es.uniovi.raul.teams.github;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+    private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(8);
+
+    @Test
+    void limit_grows_up_to_the_maximum_while_latency_is_stable() throws Exception {
+        assertEquals(1, limiter.getLimit());
+
+        answer(200);
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void limit_is_halved_when_throttled() throws Exception {
+        answer(200);
+
+        limiter.release(limiter.acquire(), true, null);
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void requests_in_flight_when_throttled_only_reduce_the_limit_once() throws Exception {
+        answer(200);
+
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+        limiter.release(first, true, null);
+        limiter.release(second, true, null);
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void limit_is_reduced_on_a_latency_spike() throws Exception {
+        answer(200);
+
+        int before = limiter.getLimit();
+
+        long acquiredAt = limiter.acquire();
+        Thread.sleep(100); // Answers so far took microseconds
+        limiter.release(acquiredAt, false, null);
+
+        assertTrue(limiter.getLimit() < before);
+    }
+
+    @Test
+    void retry_after_pauses_the_requests() throws Exception {
+        limiter.release(limiter.acquire(), true, Duration.ofMillis(200));
+
+        long start = System.nanoTime();
+        limiter.acquire();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 150);
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private void answer(int requests) throws InterruptedException {
+        for (int i = 0; i < requests; i++)
+            limiter.release(limiter.acquire(), false, null);
+    }
+}
@@ -0,0 +1,82 @@
+package es.uniovi.raul.teams.github;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GithubApiCachingDecoratorTest {
+
+    @Mock
+    private GithubApi github;
+
+    @Test
+    void reads_are_cached_until_a_write_changes_them() throws Exception {
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("alice", 1001L));
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of("bob", 1002L));
+        var cache = new GithubApiCachingDecorator(github, Duration.ofMinutes(1), 100);
+
+        cache.getTeams("org");
+        cache.getTeams("org");
+        cache.getTeamMembers("org", "group-a");
+        cache.getTeamMembers("org", "group-b");
+        cache.inviteStudentToTeam("org", "group-a", "carol"); // Only changes group-a
+        cache.getTeamMembers("org", "group-a");
+        cache.getTeamMembers("org", "group-b");
+        cache.createTeam("org", "group C");
+        cache.getTeams("org");
+
+        verify(github, times(2)).getTeams("org");
+        verify(github, times(2)).getTeamMembers("org", "group-a");
+        verify(github, times(1)).getTeamMembers("org", "group-b");
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void identical_reads_at_the_same_time_are_sent_once() throws Exception {
+        var release = new CountDownLatch(1);
+        when(github.getTeamInvitations("org", "group-a")).thenAnswer(invocation -> {
+            release.await();
+            return List.of("alice");
+        });
+        var cache = new GithubApiCachingDecorator(github, Duration.ZERO, 100);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<String>>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                reads.add(executor.submit(() -> cache.getTeamInvitations("org", "group-a")));
+            while (cache.getHits() < 7)
+                Thread.sleep(5);
+            release.countDown();
+            for (var read : reads)
+                assertEquals(List.of("alice"), read.get());
+        }
+
+        verify(github, times(1)).getTeamInvitations("org", "group-a");
+    }
+
+    @Test
+    void errors_are_not_cached_and_old_entries_are_dropped() throws Exception {
+        when(github.getTeamMembers("org", "group-a"))
+                .thenThrow(new GithubApi.RejectedOperationException("Not now"))
+                .thenReturn(Map.of("alice", 1001L));
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of("bob", 1002L));
+        var cache = new GithubApiCachingDecorator(github, Duration.ofMinutes(1), 1);
+
+        assertThrows(GithubApi.RejectedOperationException.class, () -> cache.getTeamMembers("org", "group-a"));
+        assertEquals(Map.of("alice", 1001L), cache.getTeamMembers("org", "group-a"));
+        cache.getTeamMembers("org", "group-b"); // Drops group-a
+        cache.getTeamMembers("org", "group-a");
+
+        verify(github, times(3)).getTeamMembers("org", "group-a");
+    }
+}
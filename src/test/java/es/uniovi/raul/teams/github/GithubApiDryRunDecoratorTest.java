@@ -0,0 +1,96 @@
+package es.uniovi.raul.teams.github;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GithubApiDryRunDecoratorTest {
+
+    @Mock
+    private GithubApi github;
+
+    @Test
+    void created_teams_are_seen_by_later_reads() throws Exception {
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+        var dryRun = new GithubApiDryRunDecorator(github);
+
+        assertEquals(Optional.of("group-b"), dryRun.createTeam("org", "group B"));
+        dryRun.inviteStudentToTeam("org", "group-b", "carol");
+
+        assertEquals(List.of("group-a", "group-b"), dryRun.getTeams("org").stream().map(Team::slug).toList());
+        assertEquals(Map.of(), dryRun.getTeamMembers("org", "group-b"));
+        assertEquals(List.of("carol"), dryRun.getTeamInvitations("org", "group-b"));
+        verify(github).getTeams("org");
+        verifyNoMoreInteractions(github);
+    }
+
+    @Test
+    void deleted_teams_and_removed_members_are_not_read() throws Exception {
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a"), new Team("group B", "group-b")));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        var dryRun = new GithubApiDryRunDecorator(github);
+
+        dryRun.deleteTeam("org", "group-b");
+        dryRun.removeStudentFromTeam("org", "group-a", "bob");
+
+        assertEquals(List.of("group-a"), dryRun.getTeams("org").stream().map(Team::slug).toList());
+        assertEquals(Map.of("alice", 1001L), dryRun.getTeamMembers("org", "group-a"));
+    }
+
+    @Test
+    void children_of_a_created_parent_are_nested_under_it() throws Exception {
+        when(github.getTeams("org")).thenReturn(List.of());
+        var dryRun = new GithubApiDryRunDecorator(github);
+
+        dryRun.createTeam("org", "Course 2026");
+        long parentId = dryRun.getTeams("org").get(0).id();
+        dryRun.createTeam("org", "group A", parentId);
+
+        var child = dryRun.getTeams("org").stream().filter(team -> "group-a".equals(team.slug())).findFirst();
+        assertEquals(Optional.of("course-2026"), child.map(Team::parentSlug));
+    }
+
+    @Test
+    void simulated_invitations_are_seen_in_the_invitations_of_the_organization() throws Exception {
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of(new Invitation(7, "carol", 1)));
+        when(github.getInvitationTeams("org", 7)).thenReturn(List.of("group-b"));
+        var dryRun = new GithubApiDryRunDecorator(github);
+
+        dryRun.inviteStudentToTeam("org", "group-a", "alice");
+        dryRun.inviteStudentToTeam("org", "group-b", "alice");
+        dryRun.removeStudentFromTeam("org", "group-b", "carol");
+
+        var invitations = dryRun.getOrganizationInvitations("org");
+        assertEquals(List.of("carol", "alice"), invitations.stream().map(Invitation::login).toList());
+        var alice = invitations.get(1);
+        assertEquals(2, alice.teamCount());
+        assertEquals(List.of("group-a", "group-b"), dryRun.getInvitationTeams("org", alice.id()));
+        assertEquals(List.of(), dryRun.getInvitationTeams("org", 7)); // Removed from the team
+    }
+
+    @Test
+    void estimates_the_calls_per_endpoint() throws Exception {
+        when(github.getTeams("org")).thenReturn(List.of());
+        var dryRun = new GithubApiDryRunDecorator(github);
+
+        dryRun.getTeams("org");
+        dryRun.createTeam("org", "group A");
+        dryRun.inviteStudentToTeam("org", "group-a", "alice");
+        dryRun.inviteStudentToTeam("org", "group-a", "bob");
+
+        var estimate = dryRun.estimateCost(2, OptionalInt.of(3));
+        assertEquals(Map.of("GET /orgs/{org}/teams", 1, "POST /orgs/{org}/teams", 1,
+                "PUT /orgs/{org}/teams/{team}/memberships/{user}", 2), estimate.callsPerEndpoint());
+        assertEquals(4, estimate.calls());
+        assertTrue(estimate.wallTime().compareTo(Duration.ofSeconds(2)) >= 0); // 3 writes within 80 per minute
+        assertTrue(estimate.exceedsRateLimit());
+    }
+}
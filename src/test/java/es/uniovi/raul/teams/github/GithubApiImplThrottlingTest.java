@@ -0,0 +1,102 @@
+package es.uniovi.raul.teams.github;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Sends requests to a local server that throttles the first one (by default, with a secondary rate limit).
+ */
+class GithubApiImplThrottlingTest {
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final Map<String, String> throttlingHeaders = new HashMap<>(Map.of("Retry-After", "1"));
+    private HttpServer server;
+    private URI apiUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                if (received.incrementAndGet() == 1) {
+                    throttlingHeaders.forEach(exchange.getResponseHeaders()::add);
+                    exchange.sendResponseHeaders(403, -1);
+                } else
+                    exchange.sendResponseHeaders(204, -1);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        apiUrl = URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void throttled_request_is_sent_again_after_retry_after() throws Exception {
+        var github = new GithubApiImpl("token", transport(4));
+
+        long start = System.nanoTime();
+        github.grantRepositoryToTeam("org", "team", "repo", RepositoryPermission.PUSH);
+
+        assertEquals(2, received.get());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 900);
+    }
+
+    @Test
+    void throttled_request_is_sent_again_without_concurrency_limit() throws Exception {
+        var github = new GithubApiImpl("token", transport(1));
+
+        github.grantRepositoryToTeam("org", "team", "repo", RepositoryPermission.PUSH);
+
+        assertEquals(2, received.get());
+    }
+
+    @Test
+    void request_is_sent_again_when_the_used_up_rate_limit_is_reset_soon() throws Exception {
+        throttlingHeaders.clear();
+        throttlingHeaders.put("X-RateLimit-Remaining", "0");
+        throttlingHeaders.put("X-RateLimit-Reset", String.valueOf(Instant.now().getEpochSecond() + 1));
+        var github = new GithubApiImpl("token", transport(4));
+
+        github.grantRepositoryToTeam("org", "team", "repo", RepositoryPermission.PUSH);
+
+        assertEquals(2, received.get());
+        assertEquals(OptionalInt.of(2), github.getConcurrencyLimit()); // Not reduced
+    }
+
+    @Test
+    void fails_at_once_when_the_used_up_rate_limit_is_reset_much_later() {
+        var reset = Instant.now().plus(Duration.ofMinutes(45));
+        throttlingHeaders.clear();
+        throttlingHeaders.put("X-RateLimit-Remaining", "0");
+        throttlingHeaders.put("X-RateLimit-Reset", String.valueOf(reset.getEpochSecond()));
+        var github = new GithubApiImpl("token", transport(4));
+
+        var e = assertThrows(GithubApi.RejectedOperationException.class,
+                () -> github.grantRepositoryToTeam("org", "team", "repo", RepositoryPermission.PUSH));
+
+        assertEquals(1, received.get());
+        assertTrue(e.getMessage().contains(Instant.ofEpochSecond(reset.getEpochSecond()).toString()), e.getMessage());
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private Transport transport(int maxConcurrency) {
+        return new Transport(Transport.DEFAULT_CONNECT_TIMEOUT, Transport.DEFAULT_REQUEST_TIMEOUT, false, false, null,
+                maxConcurrency, apiUrl);
+    }
+}
@@ -0,0 +1,118 @@
+package es.uniovi.raul.teams.github;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.net.*;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.zip.*;
+
+import org.junit.jupiter.api.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Reads the teams from a local server that answers with the given encoding and body, after the given delay.
+ */
+class GithubApiImplTransportTest {
+
+    private static final String TEAMS = "[{\"name\":\"group A\",\"slug\":\"group-a\",\"id\":7,\"parent\":null}]";
+
+    private String contentEncoding;
+    private byte[] body;
+    private long delayMillis;
+    private HttpServer server;
+    private URI apiUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                Thread.sleep(delayMillis);
+                if (contentEncoding != null)
+                    exchange.getResponseHeaders().add("Content-Encoding", contentEncoding);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        apiUrl = URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void gzip_response_is_decoded() throws Exception {
+        answer("gzip", compress(new ByteArrayOutputStream(), GZIPOutputStream::new));
+
+        assertEquals(List.of(new Team("group A", "group-a", 7, null)), github().getTeams("org"));
+    }
+
+    @Test
+    void deflate_response_is_decoded() throws Exception {
+        answer("deflate", compress(new ByteArrayOutputStream(), DeflaterOutputStream::new));
+
+        assertEquals(List.of(new Team("group A", "group-a", 7, null)), github().getTeams("org"));
+    }
+
+    @Test
+    void unknown_encoding_fails() {
+        answer("br", TEAMS.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> github().getTeams("org"));
+    }
+
+    @Test
+    void corrupt_body_fails() {
+        answer("gzip", TEAMS.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> github().getTeams("org"));
+    }
+
+    @Test
+    void request_fails_after_the_request_timeout() {
+        answer(null, TEAMS.getBytes(StandardCharsets.UTF_8));
+        delayMillis = 3_000;
+        var github = new GithubApiImpl("token", new Transport(Transport.DEFAULT_CONNECT_TIMEOUT,
+                Duration.ofMillis(200), false, true, null, 1, apiUrl));
+
+        long start = System.nanoTime();
+        assertThrows(HttpTimeoutException.class, () -> github.getTeams("org"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < delayMillis);
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private interface Compressor {
+        OutputStream wrap(OutputStream out) throws IOException;
+    }
+
+    private void answer(String contentEncoding, byte[] body) {
+        this.contentEncoding = contentEncoding;
+        this.body = body;
+    }
+
+    private static byte[] compress(ByteArrayOutputStream bytes, Compressor compressor) throws IOException {
+        try (var out = compressor.wrap(bytes)) {
+            out.write(TEAMS.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private GithubApiImpl github() {
+        return new GithubApiImpl("token", new Transport(Transport.DEFAULT_CONNECT_TIMEOUT,
+                Transport.DEFAULT_REQUEST_TIMEOUT, false, true, null, 1, apiUrl));
+    }
+}
@@ -0,0 +1,83 @@
+package es.uniovi.raul.teams.github;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import es.uniovi.raul.teams.github.GithubApi.*;
+
+@ExtendWith(MockitoExtension.class)
+class GithubApiRecordReplayTest {
+
+    @Mock
+    private GithubApi github;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replays_the_recorded_responses_in_order() throws Exception {
+        var teams = List.of(new Team("course", "course", 7, null), new Team("group A", "group-a", 8, "course"));
+        when(github.getTeams("org")).thenReturn(teams);
+        when(github.getTeamMembers("org", "group-a"))
+                .thenReturn(Map.of("alice", 1001L))
+                .thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of(new Invitation(1, "carol", 1)));
+        when(github.createTeam("org", "group B", 7)).thenReturn(Optional.of("group-b"));
+
+        var trace = dir.resolve("trace.ndjson");
+        try (var recorder = new GithubApiRecordingDecorator(github, trace)) {
+            recorder.getTeams("org");
+            recorder.getTeamMembers("org", "group-a");
+            recorder.getTeamMembers("org", "group-a");
+            recorder.getOrganizationInvitations("org");
+            recorder.createTeam("org", "group B", 7);
+            recorder.inviteStudentToTeam("org", "group-b", "dave");
+        }
+        assertEquals(6, Files.readAllLines(trace).size());
+
+        var replayer = new GithubApiReplayer(trace, false);
+        assertEquals(teams, replayer.getTeams("org"));
+        assertEquals(Map.of("alice", 1001L), replayer.getTeamMembers("org", "group-a"));
+        assertEquals(Map.of("alice", 1001L, "bob", 1002L), replayer.getTeamMembers("org", "group-a"));
+        assertEquals(List.of(new Invitation(1, "carol", 1)), replayer.getOrganizationInvitations("org"));
+        assertEquals(Optional.of("group-b"), replayer.createTeam("org", "group B", 7));
+        assertEquals(1, replayer.getUnusedCalls()); // The invitation
+    }
+
+    @Test
+    void replays_the_recorded_errors() throws Exception {
+        when(github.getTeams("org")).thenThrow(new UnexpectedFormatException("bad format"));
+        doThrow(new RejectedOperationException("not allowed")).when(github).deleteTeam("org", "group-a");
+
+        var trace = dir.resolve("trace.ndjson");
+        try (var recorder = new GithubApiRecordingDecorator(github, trace)) {
+            assertThrows(UnexpectedFormatException.class, () -> recorder.getTeams("org"));
+            assertThrows(RejectedOperationException.class, () -> recorder.deleteTeam("org", "group-a"));
+        }
+
+        var replayer = new GithubApiReplayer(trace, false);
+        var formatError = assertThrows(UnexpectedFormatException.class, () -> replayer.getTeams("org"));
+        assertEquals("bad format", formatError.getMessage());
+        assertThrows(RejectedOperationException.class, () -> replayer.deleteTeam("org", "group-a"));
+    }
+
+    @Test
+    void rejects_calls_that_were_not_recorded() throws Exception {
+        var trace = Files.writeString(dir.resolve("trace.ndjson"),
+                "{\"op\":\"getTeams\",\"args\":[\"org\"],\"micros\":10,\"result\":[]}\n");
+
+        var replayer = new GithubApiReplayer(trace, true);
+        assertEquals(List.of(), replayer.getTeams("org"));
+        assertThrows(RejectedOperationException.class, () -> replayer.getTeams("org"));
+        assertThrows(RejectedOperationException.class, () -> replayer.getTeamMembers("org", "group-a"));
+    }
+}
@@ -0,0 +1,125 @@
+package es.uniovi.raul.teams.github;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.*;
+import java.net.http.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Sends requests to a local server whose first response is slow.
+ */
+class RequestHedgerTest {
+
+    private static final long SLOW_MILLIS = 3_000;
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private HttpServer server;
+    private HttpRequest request;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                int number = received.incrementAndGet();
+                if (number == 1)
+                    Thread.sleep(SLOW_MILLIS);
+                byte[] body = ("response " + number).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + "/")).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void slow_request_is_answered_by_the_hedge() throws Exception {
+        var hedger = new RequestHedger(new Hedging(Duration.ofMillis(100), 1));
+
+        long start = System.nanoTime();
+        var response = hedger.send(client, request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("response 2", response.body());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < SLOW_MILLIS);
+        assertEquals(1, hedger.getHedgedRequests());
+    }
+
+    @Test
+    void no_hedge_without_budget() throws Exception {
+        var hedger = new RequestHedger(new Hedging(Duration.ofMillis(100), 0.5)); // 1 hedge every 2 requests
+
+        var response = hedger.send(client, request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("response 1", response.body());
+        assertEquals(0, hedger.getHedgedRequests());
+    }
+
+    @Test
+    void hedge_takes_a_place_of_the_limiter_and_frees_it() throws Exception {
+        var limiter = new ConcurrencyLimiter(2);
+        limiter.release(limiter.acquire(), false, null); // The limit grows to 2
+        var hedger = new RequestHedger(new Hedging(Duration.ofMillis(100), 1), limiter);
+
+        limiter.acquire(); // The place of the request hedged
+        var response = hedger.send(client, request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("response 2", response.body());
+        assertEquals(1, hedger.getHedgedRequests());
+        assertTrue(limiter.tryAcquire().isPresent());
+        assertTrue(limiter.tryAcquire().isEmpty());
+    }
+
+    @Test
+    void no_hedge_when_the_limiter_has_no_free_place() throws Exception {
+        var limiter = new ConcurrencyLimiter(2);
+        var hedger = new RequestHedger(new Hedging(Duration.ofMillis(100), 1), limiter);
+
+        limiter.acquire(); // The only place (the limit starts at 1)
+        var response = hedger.send(client, request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("response 1", response.body());
+        assertEquals(0, hedger.getHedgedRequests());
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    void no_hedge_while_the_limiter_is_paused_by_throttling() throws Exception {
+        var limiter = new ConcurrencyLimiter(2);
+        limiter.release(limiter.acquire(), true, Duration.ofMinutes(1));
+        var hedger = new RequestHedger(new Hedging(Duration.ofMillis(100), 1), limiter);
+
+        var response = hedger.send(client, request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("response 1", response.body());
+        assertEquals(0, hedger.getHedgedRequests());
+    }
+
+    @Test
+    void no_hedge_at_p95_until_there_are_enough_latencies() throws Exception {
+        var hedger = new RequestHedger(Hedging.atP95(1));
+
+        var response = hedger.send(client, request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("response 1", response.body());
+        assertEquals(0, hedger.getHedgedRequests());
+    }
+}
@@ -0,0 +1,44 @@
+package es.uniovi.raul.teams.main;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the packaged JAR with the AppCDS archive built by the 'cds' profile (mvn -Pcds verify).
+ */
+class CdsArchiveIT {
+
+    private static final File DIR = new File(System.getProperty("teams.dir", "target"));
+    private static final String JAVA = System.getProperty("teams.java", "java");
+
+    @Test
+    void archive_is_mapped_and_used_for_application_classes() throws Exception {
+
+        assertTrue(new File(DIR, "teams.jsa").isFile(), "The archive has not been created");
+
+        // -Xshare:on makes the JVM fail if the archive cannot be used
+        var output = run(JAVA, "-Xshare:on", "-XX:SharedArchiveFile=teams.jsa", "-Xlog:class+load=info",
+                "-jar", "teams.jar", "--help");
+
+        // Note: picocli is compiled for Java 5 and the JDK cannot archive classes that old, so they are still loaded from the JAR
+        assertTrue(output.contains("Usage: teams"), output);
+        assertTrue(output.contains("es.uniovi.raul.teams.cli.Arguments source: shared objects file (top)"), output);
+        assertTrue(output.contains("es.uniovi.raul.teams.cli.ArgumentsParser source: shared objects file (top)"), output);
+    }
+
+    private static String run(String... command) throws Exception {
+        var process = new ProcessBuilder(List.of(command))
+                .directory(DIR)
+                .redirectErrorStream(true)
+                .start();
+
+        var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return output;
+    }
+}
@@ -0,0 +1,73 @@
+package es.uniovi.raul.teams.main;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import es.uniovi.raul.teams.cli.ArgumentsParser;
+import es.uniovi.raul.teams.organization.Shard;
+import es.uniovi.raul.teams.snapshot.*;
+
+/**
+ * How the coordinator of '--workers' launches each worker and merges the state it saw.
+ */
+class MainTest {
+
+    private static final Instant READ_AT = Instant.ofEpochSecond(1_767_225_600);
+
+    // "A" and "C" belong to the second of two shards, and "B" to the first
+    private static final Shard SHARD = new Shard(1, 2);
+
+    @Test
+    void worker_command_has_the_options_of_its_shard_instead_of_the_ones_of_the_coordinator() {
+        String[] args = { "roster.csv", "-tsecret", "-o", "org", "--workers", "2", "--state-file", "state.json",
+                "--jfr", "run.jfr", "--dry-run" };
+        var arguments = ArgumentsParser.parse(args).orElseThrow();
+        var stateFile = Main.shardStateFile(Path.of("state.json"), SHARD);
+
+        var command = Main.workerCommand(arguments, args, SHARD, stateFile);
+
+        assertEquals(Main.class.getName(), command.get(3));
+        assertEquals(List.of("roster.csv", "--dry-run", "-o", "org", "--shard", "1/2",
+                "--state-file", "state.json.shard-1", "--jfr", "run.shard-1.jfr"),
+                command.subList(4, command.size()));
+        assertTrue(command.stream().noneMatch(arg -> arg.contains("secret")), command.toString());
+    }
+
+    @Test
+    void token_given_as_a_separate_value_is_not_in_the_worker_command() {
+        String[] args = { "roster.csv", "-t", "secret", "-o", "org", "--workers", "2" };
+        var arguments = ArgumentsParser.parse(args).orElseThrow();
+
+        var command = Main.workerCommand(arguments, args, SHARD, Path.of("state.json.shard-1"));
+
+        assertTrue(command.stream().noneMatch(arg -> arg.contains("secret") || arg.equals("--workers")),
+                command.toString());
+    }
+
+    @Test
+    void merge_replaces_only_the_teams_of_the_groups_of_the_shard() {
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", List.of("alice"), List.of(), READ_AT);
+        snapshot.teamRead("group B", "group-b", List.of("bob"), List.of(), READ_AT);
+        snapshot.teamRead("group E", "group-e", List.of("eve"), List.of(), READ_AT); // Deleted by the worker
+        snapshot.teamRead("teachers", "teachers", List.of("raul"), List.of(), READ_AT);
+
+        var shardSnapshot = new OrganizationSnapshot("org");
+        shardSnapshot.teamRead("group A", "group-a", List.of("alice"), List.of("erin"), READ_AT.plusSeconds(60));
+        shardSnapshot.teamRead("group B", "group-b", List.of(), List.of(), READ_AT.plusSeconds(60)); // Other shard
+        shardSnapshot.teamRead("group C", "group-c", List.of(), List.of("carol"), READ_AT.plusSeconds(60));
+
+        Main.mergeShard(snapshot, shardSnapshot, SHARD);
+
+        assertEquals(Set.of("erin"), snapshot.team("group-a").orElseThrow().pending());
+        assertEquals(Set.of("bob"), snapshot.team("group-b").orElseThrow().members());
+        assertEquals(Set.of("carol"), snapshot.team("group-c").orElseThrow().pending());
+        assertTrue(snapshot.team("group-e").isEmpty());
+        assertTrue(snapshot.team("teachers").isPresent());
+    }
+}
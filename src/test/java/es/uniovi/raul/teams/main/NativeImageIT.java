@@ -0,0 +1,45 @@
+package es.uniovi.raul.teams.main;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the native executable built by the 'native' profile (mvn -Pnative verify).
+ *
+ * If the reflection metadata of 'Arguments' were missing, picocli would fail to build the command (or the usage
+ * would not show the options).
+ */
+class NativeImageIT {
+
+    private static final File DIR = new File(System.getProperty("teams.dir", "target"));
+
+    @Test
+    void executable_parses_the_command_line_model() throws Exception {
+
+        var executable = new File(DIR, System.getProperty("os.name").startsWith("Windows") ? "teams.exe" : "teams");
+        assertTrue(executable.canExecute(), "The native executable has not been created");
+
+        var output = run(executable.getAbsolutePath(), "--help");
+
+        assertTrue(output.contains("Usage: teams"), output);
+        assertTrue(output.contains("--dry-run"), output);
+        assertTrue(output.contains("--clean"), output);
+        assertFalse(output.contains("Exception"), output);
+    }
+
+    private static String run(String... command) throws Exception {
+        var process = new ProcessBuilder(List.of(command))
+                .directory(DIR)
+                .redirectErrorStream(true)
+                .start();
+
+        var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return output;
+    }
+}
@@ -0,0 +1,138 @@
+package es.uniovi.raul.teams.main;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.*;
+
+import es.uniovi.raul.teams.cli.ArgumentsParser;
+import es.uniovi.raul.teams.organization.Shard;
+
+/**
+ * Runs real worker processes against a local stand-in of the GitHub API that keeps the teams in memory.
+ */
+class ShardCoordinatorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private final Map<String, String> teams = new ConcurrentHashMap<>(); // Name by slug
+    private final Map<String, Integer> createdTeams = new ConcurrentHashMap<>(); // Times each team was created
+    private final List<String> invitations = new CopyOnWriteArrayList<>(); // "slug/login"
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/orgs/org/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void workers_sync_each_group_once() throws Exception {
+        var roster = dir.resolve("roster.csv");
+        Files.writeString(roster, """
+                identifier,github_username,github_id,name
+                "Alice (A)",alice,1,Alice
+                "Bob (B)",bob,2,Bob
+                "Carol (C)",carol,3,Carol
+                "Dave (D)",dave,4,Dave
+                "Erin (A)",erin,5,Erin
+                """);
+
+        var output = new ByteArrayOutputStream();
+        var coordinator = new ShardCoordinator(2, shard -> launchWorker(shard, roster), new PrintStream(output, true));
+        var succeeded = coordinator.run();
+
+        assertEquals(List.of(new Shard(0, 2), new Shard(1, 2)), succeeded, output.toString());
+        assertEquals(Map.of("group-a", 1, "group-b", 1, "group-c", 1, "group-d", 1), createdTeams);
+        assertEquals(Set.of("group-a/alice", "group-a/erin", "group-b/bob", "group-c/carol", "group-d/dave"),
+                new HashSet<>(invitations));
+        assertEquals(5, invitations.size());
+        assertTrue(output.toString().contains("[worker 1/2]"), output.toString());
+        assertTrue(output.toString().contains("[worker 2/2]"), output.toString());
+    }
+
+    @Test
+    void failed_workers_are_not_returned() throws Exception {
+        var coordinator = new ShardCoordinator(2,
+                shard -> new ProcessBuilder("sh", "-c", "echo failing; exit " + shard.index())
+                        .redirectErrorStream(true).start(),
+                new PrintStream(new ByteArrayOutputStream(), true));
+
+        assertEquals(List.of(new Shard(0, 2)), coordinator.run());
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private Process launchWorker(Shard shard, Path roster) throws IOException {
+        var builder = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"), Main.class.getName(),
+                roster.toString(), "-o", "org", "--shard", shard.toString(), "--no-login-check", "--http1",
+                "--api-url", "http://localhost:" + server.getAddress().getPort(),
+                "--state-file", dir.resolve("state.json.shard-" + shard.index()).toString())
+                .directory(dir.toFile())
+                .redirectErrorStream(true);
+        builder.environment().put(ArgumentsParser.WORKER_TOKEN, "token-" + shard.index());
+        return builder.start();
+    }
+
+    // GET and POST /orgs/org/teams, GET of members and invitations (none) and PUT of memberships
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if ("/orgs/org/teams".equals(path) && "GET".equals(method)) {
+                ArrayNode array = MAPPER.createArrayNode();
+                teams.forEach((slug, name) -> array.addObject().put("name", name).put("slug", slug)
+                        .put("id", Math.abs(slug.hashCode())));
+                respond(exchange, 200, array.toString());
+
+            } else if ("/orgs/org/teams".equals(path)) {
+                String name = MAPPER.readTree(exchange.getRequestBody()).get("name").asText();
+                String slug = name.toLowerCase(Locale.ROOT).replace(' ', '-');
+                if (teams.putIfAbsent(slug, name) != null) {
+                    respond(exchange, 422, "{}");
+                    return;
+                }
+                createdTeams.merge(slug, 1, Integer::sum);
+                respond(exchange, 201, MAPPER.createObjectNode().put("slug", slug).toString());
+
+            } else if (path.endsWith("/members") || path.endsWith("/invitations"))
+                respond(exchange, 200, "[]");
+
+            else if (path.contains("/memberships/") && "PUT".equals(method)) {
+                String[] parts = path.split("/");
+                invitations.add(parts[4] + "/" + parts[6]);
+                respond(exchange, 200, "{\"state\":\"pending\"}");
+
+            } else
+                respond(exchange, 404, "{}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
@@ -0,0 +1,65 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.OptionalInt;
+
+import org.junit.jupiter.api.Test;
+
+class ConsoleProgressTest {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+
+    private String[] lines() {
+        return output.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    @Test
+    void prints_progress_lines_when_not_in_place() {
+        var progress = new ConsoleProgress(out, false, Duration.ZERO, () -> OptionalInt.of(4321));
+
+        progress.start("Sync", 2, 3);
+        progress.operationDone();
+        progress.log("[Invited student] 'Alice' to team 'group A'");
+        progress.finish();
+
+        var lines = lines();
+        assertEquals(4, lines.length);
+        assertTrue(lines[1].startsWith("[Progress] Sync: teams 0/2, operations 1/3, "));
+        assertTrue(lines[1].contains("rate limit 4321"));
+        assertEquals("[Invited student] 'Alice' to team 'group A'", lines[2]);
+        assertTrue(lines[3].startsWith("[Progress] Sync: teams 0/2, operations 1/3"));
+    }
+
+    @Test
+    void only_prints_messages_when_not_running() {
+        var progress = new ConsoleProgress(out, true, Duration.ZERO, OptionalInt::empty);
+
+        progress.log("No group teams found in the organization.");
+        progress.finish();
+
+        assertArrayEquals(new String[] { "No group teams found in the organization." }, lines());
+    }
+
+    @Test
+    void rewrites_the_status_line_in_place() {
+        var progress = new ConsoleProgress(out, true, Duration.ofHours(1), OptionalInt::empty);
+
+        progress.start("Clean", 1, 1);
+        progress.log("[Deleted team] group A");
+        progress.operationDone();
+        progress.teamDone();
+        progress.finish();
+
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("\r\033[K[Deleted team] group A\n"));
+        String lastStatus = text.substring(text.lastIndexOf("\r\033[K") + "\r\033[K".length());
+        assertTrue(lastStatus.startsWith("[Progress] Clean: teams 1/1, operations 1/1, "));
+        assertTrue(lastStatus.endsWith("\n"));
+        assertFalse(text.contains("rate limit"));
+    }
+}
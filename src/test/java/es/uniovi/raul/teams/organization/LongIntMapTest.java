@@ -0,0 +1,32 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntMapTest {
+
+    @Test
+    void finds_the_stored_keys_after_growing() {
+        var map = new LongIntMap(2);
+        for (int i = 0; i < 1000; i++)
+            map.put(1_000_000L + i, i); // Consecutive, like GitHub ids
+
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, map.get(1_000_000L + i));
+        assertEquals(LongIntMap.MISSING, map.get(999_999L));
+        assertEquals(LongIntMap.MISSING, map.get(0));
+    }
+
+    @Test
+    void put_replaces_the_value_of_an_existing_key() {
+        var map = new LongIntMap(4);
+        map.put(42, 1);
+        map.put(42, 2);
+
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(42));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+    }
+}
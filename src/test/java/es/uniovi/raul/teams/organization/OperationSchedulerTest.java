@@ -0,0 +1,128 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import es.uniovi.raul.teams.organization.OperationScheduler.OperationClass;
+
+class OperationSchedulerTest {
+
+    @Test
+    void runs_the_operations_by_priority() throws Exception {
+        var scheduler = new OperationScheduler(1);
+        List<String> done = new ArrayList<>();
+
+        scheduler.submit(OperationClass.DELETE, () -> done.add("delete"));
+        scheduler.submit(OperationClass.REMOVE_MEMBER, () -> done.add("remove"));
+        scheduler.submit(OperationClass.INVITE, () -> done.add("invite 1"));
+        scheduler.submit(OperationClass.CREATE_TEAM, () -> done.add("create"));
+        scheduler.submit(OperationClass.INVITE, () -> done.add("invite 2"));
+        scheduler.run();
+
+        assertEquals(List.of("create", "invite 1", "invite 2", "remove", "delete"), done);
+    }
+
+    @Test
+    void lower_classes_only_use_their_share_while_a_higher_class_has_work() throws Exception {
+        var scheduler = new OperationScheduler(4);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var deleted = new CountDownLatch(20);
+
+        scheduler.submit(OperationClass.INVITE, deleted::await); // Running until all the deletions are made
+        for (int i = 0; i < 20; i++)
+            scheduler.submit(OperationClass.DELETE, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                deleted.countDown();
+            });
+        scheduler.run();
+
+        assertEquals(1, maxRunning.get()); // A quarter of 4
+    }
+
+    @Test
+    void lower_classes_use_all_the_slots_once_no_higher_class_has_work() throws Exception {
+        var scheduler = new OperationScheduler(4);
+        var allRunning = new CountDownLatch(4);
+
+        scheduler.submit(OperationClass.INVITE, () -> {
+        });
+        for (int i = 0; i < 4; i++)
+            scheduler.submit(OperationClass.REMOVE_MEMBER, () -> {
+                allRunning.countDown();
+                if (!allRunning.await(5, TimeUnit.SECONDS))
+                    throw new IOException("The removals were not made at the same time");
+            });
+
+        scheduler.run();
+    }
+
+    @Test
+    void stops_at_the_first_failure() {
+        var scheduler = new OperationScheduler(1);
+        List<String> done = new ArrayList<>();
+
+        scheduler.submit(OperationClass.INVITE, () -> {
+            throw new IOException("Connection reset");
+        });
+        scheduler.submit(OperationClass.REMOVE_MEMBER, () -> done.add("remove"));
+
+        var e = assertThrows(IOException.class, scheduler::run);
+        assertEquals("Connection reset", e.getMessage());
+        assertTrue(done.isEmpty());
+    }
+
+    @Test
+    void operations_put_while_running_are_made_at_once() throws Exception {
+        var scheduler = new OperationScheduler(2, 10);
+        var firstDone = new CountDownLatch(1);
+        scheduler.start();
+
+        scheduler.put(OperationClass.INVITE, firstDone::countDown);
+        // Made before run() is called, while more operations could still come
+        assertTrue(firstDone.await(5, TimeUnit.SECONDS));
+
+        scheduler.put(OperationClass.INVITE, () -> {
+        });
+        scheduler.run();
+    }
+
+    @Test
+    void put_waits_while_the_pending_operations_are_at_capacity() throws Exception {
+        var scheduler = new OperationScheduler(1, 2);
+        var release = new CountDownLatch(1);
+        var maxPending = new AtomicInteger();
+        var put = new AtomicInteger();
+        var done = new AtomicInteger();
+        scheduler.start();
+
+        scheduler.put(OperationClass.INVITE, release::await); // Keeps the only worker busy
+        var producer = Thread.startVirtualThread(() -> {
+            try {
+                for (int i = 0; i < 10; i++) {
+                    scheduler.put(OperationClass.INVITE, done::incrementAndGet);
+                    maxPending.accumulateAndGet(put.incrementAndGet() - done.get(), Math::max);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread.sleep(100);
+        assertEquals(2, put.get()); // The producer waits for room
+        release.countDown();
+        producer.join();
+        scheduler.run();
+
+        assertEquals(10, done.get());
+        assertTrue(maxPending.get() <= 3, "Not done: " + maxPending.get()); // Two pending and one running
+    }
+}
@@ -29,10 +29,9 @@ class OrganizationDeleteGroupTeamsTest {
                 new Team("group B", "group-b"),
                 new Team("some other", "other")));
 
-        when(github.getTeamMembers("org", "group-a")).thenReturn(List.of());
-        when(github.getTeamMembers("org", "group-b")).thenReturn(List.of());
-        when(github.getTeamInvitations("org", "group-a")).thenReturn(List.of());
-        when(github.getTeamInvitations("org", "group-b")).thenReturn(List.of());
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
 
         var organization = new Organization("org", github);
         organization.deleteGroupTeams();
@@ -40,8 +39,7 @@ class OrganizationDeleteGroupTeamsTest {
         verify(github, times(1)).getTeams("org");
         verify(github, times(1)).getTeamMembers("org", "group-a");
         verify(github, times(1)).getTeamMembers("org", "group-b");
-        verify(github, times(1)).getTeamInvitations("org", "group-a");
-        verify(github, times(1)).getTeamInvitations("org", "group-b");
+        verify(github, times(1)).getOrganizationInvitations("org");
         verify(github, times(1)).deleteTeam("org", "group-a");
         verify(github, times(1)).deleteTeam("org", "group-b");
 
@@ -81,11 +79,14 @@ class OrganizationDeleteGroupTeamsTest {
                 new Team("group A", "group-a"),
                 new Team("group B", "group-b")));
 
-        when(github.getTeamMembers("org", "group-a")).thenReturn(List.of("alice", "bob"));
-        when(github.getTeamMembers("org", "group-b")).thenReturn(List.of("carol"));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of("carol", 1003L));
 
-        when(github.getTeamInvitations("org", "group-a")).thenReturn(List.of("david"));
-        when(github.getTeamInvitations("org", "group-b")).thenReturn(List.of());
+        // david is invited to group A; erin is invited to a non-group team and must be preserved
+        when(github.getOrganizationInvitations("org"))
+                .thenReturn(List.of(new Invitation(1, "david", 1), new Invitation(2, "erin", 1)));
+        when(github.getInvitationTeams("org", 1)).thenReturn(List.of("group-a"));
+        when(github.getInvitationTeams("org", 2)).thenReturn(List.of("other"));
 
         var organization = new Organization("org", github);
         organization.deleteGroupTeams();
@@ -95,6 +96,7 @@ class OrganizationDeleteGroupTeamsTest {
         verify(github).removeMemberFromOrganization("org", "bob");
         verify(github).removeMemberFromOrganization("org", "carol");
         verify(github).removeMemberFromOrganization("org", "david");
+        verify(github, never()).removeMemberFromOrganization("org", "erin");
 
         // Finally, delete both teams
         verify(github).deleteTeam("org", "group-a");
@@ -110,8 +112,8 @@ class OrganizationDeleteGroupTeamsTest {
         when(github.getTeams("org")).thenReturn(List.of(
                 new Team("group A", "group-a")));
 
-        when(github.getTeamMembers("org", "group-a")).thenReturn(List.of("owner", "student"));
-        when(github.getTeamInvitations("org", "group-a")).thenReturn(List.of());
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("owner", 1004L, "student", 1005L));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
 
         // Simulate failure removing org owner, success for student
         doThrow(new GithubApi.RejectedOperationException("Cannot remove organization owner"))
@@ -129,4 +131,55 @@ class OrganizationDeleteGroupTeamsTest {
 
         verifyNoMoreInteractions(github);
     }
+
+    @Test
+    void deletes_parent_team_with_its_group_teams()
+            throws GithubApi.GithubApiException, IOException, InterruptedException {
+
+        var course = new Team("course", "course", 7, null);
+        when(github.getTeams("org")).thenReturn(List.of(
+                course,
+                new Team("group A", "group-a", 8, "course"),
+                new Team("group B", "group-b", 9, "course"),
+                new Team("group C", "group-c", 10, null))); // Not nested: deleted on its own
+
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of());
+        when(github.getTeamMembers("org", "group-c")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        var organization = new Organization("org", github);
+        organization.useParentTeam("course");
+        organization.deleteGroupTeams();
+
+        verify(github, times(1)).getTeams("org");
+        verify(github, times(3)).getTeamMembers(eq("org"), anyString());
+        verify(github, times(1)).getOrganizationInvitations("org");
+        verify(github, times(1)).deleteTeam("org", "course");
+        verify(github, times(1)).deleteTeam("org", "group-c");
+
+        verifyNoMoreInteractions(github);
+    }
+
+    @Test
+    void keeps_parent_team_with_other_children()
+            throws GithubApi.GithubApiException, IOException, InterruptedException {
+
+        var course = new Team("course", "course", 7, null);
+        when(github.getTeams("org")).thenReturn(List.of(
+                course,
+                new Team("group A", "group-a", 8, "course"),
+                new Team("teachers", "teachers", 9, "course")));
+
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        var organization = new Organization("org", github);
+        organization.useParentTeam("course");
+        organization.deleteGroupTeams();
+
+        verify(github, never()).deleteTeam("org", "course");
+        verify(github, never()).deleteTeam("org", "teachers");
+        verify(github, times(1)).deleteTeam("org", "group-a");
+    }
 }
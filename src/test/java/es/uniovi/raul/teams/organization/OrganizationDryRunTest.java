@@ -0,0 +1,76 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import es.uniovi.raul.teams.github.*;
+import es.uniovi.raul.teams.roster.Student;
+
+/**
+ * Several syncs in dry-run on the same decorator, each one reading the state left by the previous ones.
+ */
+@ExtendWith(MockitoExtension.class)
+class OrganizationDryRunTest {
+
+    private static final String INVITE = "PUT /orgs/{org}/teams/{team}/memberships/{user}";
+    private static final String REMOVE = "DELETE /orgs/{org}/teams/{team}/memberships/{user}";
+
+    @Mock
+    private GithubApi github;
+
+    @Mock
+    private Logger logger;
+
+    private GithubApiDryRunDecorator dryRun;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(github.getTeams("org"))
+                .thenReturn(List.of(new Team("group A", "group-a"), new Team("group B", "group-b")));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+        dryRun = new GithubApiDryRunDecorator(github);
+    }
+
+    @Test
+    void simulated_invitations_are_not_sent_again() throws Exception {
+        var students = List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "B", "Bob (B)", "bob"));
+
+        new Organization("org", dryRun, logger).updateWith(students);
+        new Organization("org", dryRun, logger).updateWith(students);
+
+        assertEquals(2, calls(INVITE));
+        verify(github, never()).getInvitationTeams(anyString(), anyLong()); // The invitations are simulated
+    }
+
+    @Test
+    void simulated_invitations_of_students_removed_from_a_team_are_gone() throws Exception {
+        new Organization("org", dryRun, logger).updateWith(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "B", "Bob (B)", "bob")));
+        new Organization("org", dryRun, logger).updateWith(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Carol", "B", "Carol (B)", "carol")));
+
+        assertEquals(1, calls(REMOVE));
+        assertEquals(Set.of("alice", "carol"), new HashSet<>(
+                dryRun.getOrganizationInvitations("org").stream().map(Invitation::login).toList()));
+        assertFalse(dryRun.getTeamInvitations("org", "group-b").contains("bob"));
+    }
+
+    //# Auxiliary methods -----------------------------------
+
+    private int calls(String endpoint) {
+        return dryRun.estimateCost(1, OptionalInt.empty()).callsPerEndpoint().getOrDefault(endpoint, 0);
+    }
+}
@@ -0,0 +1,89 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import es.uniovi.raul.teams.github.*;
+import es.uniovi.raul.teams.roster.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrganizationExportMembershipsTest {
+
+    @Mock
+    private GithubApi github;
+
+    @Mock
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(github.getTeams("org")).thenReturn(List.of(
+                new Team("group A", "group-a"),
+                new Team("group B", "group-b"),
+                new Team("teachers", "teachers")));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of(new Invitation(7, "carol", 1)));
+        when(github.getInvitationTeams("org", 7)).thenReturn(List.of("group-b"));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of());
+    }
+
+    @Test
+    void members_and_invitations_are_exported_with_the_roster_columns() throws Exception {
+        var out = new StringWriter();
+        var organization = new Organization("org", github, logger);
+        organization.limitConcurrency(4);
+        try (var export = new MembershipExport(out, MembershipExport.Format.CSV)) {
+            organization.exportMemberships(export);
+        }
+
+        var lines = out.toString().lines().toList();
+        assertEquals("identifier,github_username,github_id,name", lines.get(0));
+        assertEquals(Set.of(
+                "alice (A),alice,1001,alice",
+                "bob (A),bob,1002,bob",
+                "carol (B),carol,,carol"), new HashSet<>(lines.subList(1, lines.size())));
+        assertEquals(4, lines.size());
+    }
+
+    @Test
+    void csv_export_is_read_as_a_roster() throws Exception {
+        var out = new StringWriter();
+        try (var export = new MembershipExport(out, MembershipExport.Format.CSV)) {
+            new Organization("org", github, logger).exportMemberships(export);
+        }
+
+        var students = RosterLoader.load(new StringReader(out.toString()));
+
+        assertEquals(Set.of(
+                new Student("alice", "A", "alice (A)", "alice", 1001),
+                new Student("bob", "A", "bob (A)", "bob", 1002),
+                new Student("carol", "B", "carol (B)", "carol", Student.UNKNOWN_ID)), new HashSet<>(students));
+    }
+
+    @Test
+    void ndjson_has_an_object_per_line() throws Exception {
+        var out = new StringWriter();
+        try (var export = new MembershipExport(out, MembershipExport.Format.NDJSON)) {
+            new Organization("org", github, logger).exportMemberships(export);
+            assertEquals(2, export.getTeams());
+            assertEquals(2, export.getMembers());
+            assertEquals(1, export.getInvitations());
+        }
+
+        assertTrue(out.toString().lines().anyMatch(line -> line.equals(
+                "{\"identifier\":\"carol (B)\",\"github_username\":\"carol\",\"github_id\":null,"
+                        + "\"name\":\"carol\",\"state\":\"invited\"}")), out.toString());
+        assertTrue(out.toString().lines().anyMatch(line -> line.equals(
+                "{\"identifier\":\"alice (A)\",\"github_username\":\"alice\",\"github_id\":1001,"
+                        + "\"name\":\"alice\",\"state\":\"member\"}")), out.toString());
+        assertEquals(3, out.toString().lines().count());
+    }
+}
@@ -0,0 +1,74 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import es.uniovi.raul.teams.github.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrganizationGrantRepositoriesTest {
+
+    @Mock
+    private GithubApi github;
+
+    @Mock
+    private Logger logger;
+
+    @Test
+    void grants_the_matching_repositories_not_granted_yet() throws Exception {
+        when(github.getRepositories("org")).thenReturn(List.of("lab-01", "lab-02", "solutions"));
+        when(github.getTeams("org")).thenReturn(List.of(
+                new Team("group A", "group-a"),
+                new Team("group B", "group-b"),
+                new Team("teachers", "teachers")));
+        when(github.getTeamRepositories("org", "group-a"))
+                .thenReturn(Map.of("lab-01", RepositoryPermission.PUSH, "lab-02", RepositoryPermission.PULL));
+        when(github.getTeamRepositories("org", "group-b")).thenReturn(Map.of());
+
+        var organization = new Organization("org", github, logger);
+        organization.limitConcurrency(4);
+        organization.grantRepositories(Pattern.compile("lab-.*"), RepositoryPermission.PUSH);
+
+        verify(github).grantRepositoryToTeam("org", "group-a", "lab-02", RepositoryPermission.PUSH);
+        verify(github).grantRepositoryToTeam("org", "group-b", "lab-01", RepositoryPermission.PUSH);
+        verify(github).grantRepositoryToTeam("org", "group-b", "lab-02", RepositoryPermission.PUSH);
+        verify(github).getRepositories("org");
+        verify(github).getTeams("org");
+        verify(github).getTeamRepositories("org", "group-a");
+        verify(github).getTeamRepositories("org", "group-b");
+        verifyNoMoreInteractions(github);
+    }
+
+    @Test
+    void higher_permissions_are_not_downgraded() throws Exception {
+        when(github.getRepositories("org")).thenReturn(List.of("lab-01", "lab-02"));
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+        when(github.getTeamRepositories("org", "group-a"))
+                .thenReturn(Map.of("lab-01", RepositoryPermission.ADMIN, "lab-02", RepositoryPermission.PUSH));
+
+        new Organization("org", github, logger).grantRepositories(Pattern.compile("lab-.*"),
+                RepositoryPermission.PULL);
+
+        verify(github, never()).grantRepositoryToTeam(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void nothing_is_read_from_the_teams_if_no_repository_matches() throws Exception {
+        when(github.getRepositories("org")).thenReturn(List.of("solutions"));
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+
+        new Organization("org", github, logger).grantRepositories(Pattern.compile("lab-.*"),
+                RepositoryPermission.PULL);
+
+        verify(github).getRepositories("org");
+        verify(github).getTeams("org");
+        verifyNoMoreInteractions(github);
+    }
+}
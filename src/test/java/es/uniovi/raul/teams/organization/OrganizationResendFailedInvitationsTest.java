@@ -0,0 +1,82 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import es.uniovi.raul.teams.github.*;
+import es.uniovi.raul.teams.roster.Student;
+
+@ExtendWith(MockitoExtension.class)
+class OrganizationResendFailedInvitationsTest {
+
+    private static final Instant FAILED_AT = Instant.parse("2026-09-01T10:00:00Z");
+
+    @Mock
+    private GithubApi github;
+
+    @Mock
+    private Logger logger;
+
+    @Test
+    void only_the_failed_invitations_of_the_roster_are_sent_again() throws Exception {
+        when(github.getFailedInvitations("org")).thenReturn(List.of(
+                new FailedInvitation(1, "Alice", FAILED_AT, "Invitation expired"),
+                new FailedInvitation(2, "bob", FAILED_AT, "Invitation expired"),
+                new FailedInvitation(3, "carol", FAILED_AT, "Invitation expired"),
+                new FailedInvitation(4, "mallory", FAILED_AT, "Invitation expired")));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of(new Invitation(5, "bob", 1)));
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("dave", 1001L));
+
+        var organization = new Organization("org", github, logger);
+        organization.limitConcurrency(4);
+        organization.resendFailedInvitations(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"), // Failed
+                new Student("Bob", "A", "Bob (A)", "bob"), // Failed, but invited again since
+                new Student("Carol", "C", "Carol (C)", "carol"), // Failed, but group C has no team
+                new Student("Dave", "A", "Dave (A)", "dave"))); // Not failed
+
+        verify(github).inviteStudentToTeam("org", "group-a", "alice");
+        verify(github).getFailedInvitations("org");
+        verify(github).getOrganizationInvitations("org");
+        verify(github).getTeams("org");
+        verify(github).getTeamMembers("org", "group-a");
+        verifyNoMoreInteractions(github);
+    }
+
+    @Test
+    void students_that_accepted_a_later_invitation_are_not_invited_again() throws Exception {
+        when(github.getFailedInvitations("org")).thenReturn(List.of(
+                new FailedInvitation(1, "alice", FAILED_AT, "Invitation expired"),
+                new FailedInvitation(2, "bob", FAILED_AT, "Invitation expired")));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("Alice", 1002L));
+
+        new Organization("org", github, logger).resendFailedInvitations(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"), // Failed, but a member since
+                new Student("Bob", "A", "Bob (A)", "bob"))); // Failed
+
+        verify(github).inviteStudentToTeam("org", "group-a", "bob");
+        verify(github, never()).inviteStudentToTeam("org", "group-a", "alice");
+        verify(github).getTeamMembers("org", "group-a");
+    }
+
+    @Test
+    void nothing_else_is_read_if_no_invitation_failed() throws Exception {
+        when(github.getFailedInvitations("org")).thenReturn(List.of());
+
+        new Organization("org", github, logger).resendFailedInvitations(
+                List.of(new Student("Alice", "A", "Alice (A)", "alice")));
+
+        verify(github).getFailedInvitations("org");
+        verifyNoMoreInteractions(github);
+    }
+}
@@ -0,0 +1,107 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import es.uniovi.raul.teams.github.*;
+import es.uniovi.raul.teams.roster.Student;
+import es.uniovi.raul.teams.snapshot.OrganizationSnapshot;
+
+@ExtendWith(MockitoExtension.class)
+class OrganizationSnapshotTest {
+
+    @Mock
+    private GithubApi github;
+
+    private final List<String> output = new ArrayList<>();
+
+    @Test
+    void update_records_the_resulting_state_of_the_teams() throws Exception {
+        var teamA = new Team("group A", "group-a");
+        var teamOld = new Team("group Z", "group-z");
+        when(github.getTeams("org")).thenReturn(List.of(teamA, teamOld)).thenReturn(List.of(teamA));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group Z", "group-z", List.of("zoe"), List.of(), Instant.EPOCH);
+        var organization = new Organization("org", github, output::add, snapshot);
+
+        organization.updateWith(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Carol", "A", "Carol (A)", "carol")));
+
+        var team = snapshot.team("group-a").orElseThrow();
+        assertEquals(Set.of("alice"), team.members());
+        assertEquals(Set.of("carol"), team.pending());
+        assertTrue(snapshot.team("group-z").isEmpty());
+    }
+
+    @Test
+    void refresh_reads_only_the_outdated_and_new_teams_and_drops_the_deleted_ones() throws Exception {
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", List.of("alice"), List.of(), Instant.now().minus(Duration.ofDays(2)));
+        snapshot.teamRead("group B", "group-b", List.of("bob"), List.of(), Instant.now());
+        snapshot.teamRead("group D", "group-d", List.of("dave"), List.of(), Instant.now()); // Deleted in GitHub
+
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a"),
+                new Team("group B", "group-b"), new Team("group C", "group-c"), new Team("teachers", "teachers")));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("alice", 1001L, "anne", 1003L));
+        when(github.getTeamMembers("org", "group-c")).thenReturn(Map.of("carol", 1004L));
+
+        var organization = new Organization("org", github, output::add, snapshot);
+        organization.limitReadConcurrency(4);
+        organization.refreshSnapshot(Duration.ofHours(1));
+
+        assertEquals(Set.of("alice", "anne"), snapshot.team("group-a").orElseThrow().members());
+        assertEquals(Set.of("carol"), snapshot.team("group-c").orElseThrow().members());
+        assertTrue(snapshot.team("group-d").isEmpty());
+        assertTrue(snapshot.team("teachers").isEmpty());
+        verify(github, never()).getTeamMembers("org", "group-b");
+        assertTrue(output.contains("[Refreshed] 2 team(s) read from GitHub"), output::toString);
+    }
+
+    @Test
+    void status_report_uses_only_the_snapshot() {
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", List.of("alice", "zoe"), List.of("bob"), Instant.now());
+
+        StatusReport.print(snapshot, List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "A", "Bob (A)", "bob"),
+                new Student("Carol", "B", "Carol (B)", "carol")), output::add);
+
+        assertTrue(output.stream().anyMatch(line -> line.matches("A\\s+2\\s+1")), output::toString);
+        assertTrue(output.stream().anyMatch(line -> line.matches("B\\s+-\\s+-")), output::toString);
+        assertTrue(output.contains("[Pending invitation] 'Bob' (bob) in group 'A'"), output::toString);
+        assertTrue(output.contains("[Not in GitHub] 'Carol' (carol) in group 'B'"), output::toString);
+        assertTrue(output.contains("[Not in roster] 'zoe' is a member of team 'group A'"), output::toString);
+        verifyNoInteractions(github);
+    }
+
+    @Test
+    void update_plans_from_the_snapshot_when_it_is_trusted() throws Exception {
+        var startedAt = Instant.now();
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", List.of("alice", "bob"), List.of(), Instant.now());
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+
+        var organization = new Organization("org", github, output::add, snapshot);
+        organization.trustSnapshotSince(startedAt);
+        organization.updateWith(List.of(new Student("Alice", "A", "Alice (A)", "alice")));
+
+        verify(github).removeStudentFromTeam("org", "group-a", "bob");
+        verify(github, never()).getTeamMembers(anyString(), anyString());
+        verify(github, never()).getOrganizationInvitations(anyString());
+        assertEquals(Set.of("alice"), snapshot.team("group-a").orElseThrow().members());
+    }
+}
@@ -1,9 +1,12 @@
 package es.uniovi.raul.teams.organization;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,8 +15,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import es.uniovi.raul.teams.github.GithubApi;
+import es.uniovi.raul.teams.github.Invitation;
 import es.uniovi.raul.teams.github.Team;
 import es.uniovi.raul.teams.roster.Student;
+import es.uniovi.raul.teams.snapshot.InvitationQueue;
 
 @ExtendWith(MockitoExtension.class)
 class OrganizationUpdateTeamMembersTest {
@@ -35,8 +40,8 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_emptyTeam_invitesAllStudents() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>());
-        when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of());
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of());
 
         final var students = List.of(
                 new Student("Alice", "A", "Alice (A)", "alice"),
@@ -52,8 +57,8 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_allStudentsAlreadyMembers_noChanges() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice", "bob")));
-        when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of());
 
         final var students = List.of(
                 new Student("Alice", "A", "Alice (A)", "alice"),
@@ -68,7 +73,9 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_allStudentsAlreadyInvited_noChanges() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of());
+        when(githubApi.getOrganizationInvitations("test-org"))
+                .thenReturn(List.of(new Invitation(1, "alice", 1), new Invitation(2, "bob", 1)));
         when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice", "bob")));
 
         final var students = List.of(
@@ -84,8 +91,9 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_mixedMembersAndInvitations_invitesOnlyMissing() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice")));
-        when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("bob")));
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of("alice", 1001L));
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of(new Invitation(1, "bob", 1)));
+        when(githubApi.getInvitationTeams("test-org", 1)).thenReturn(List.of("group-a"));
 
         final var students = List.of(
                 new Student("Alice", "A", "Alice (A)", "alice"),
@@ -103,8 +111,8 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_extraMembers_removesUnwantedMembers() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice", "bob")));
-        when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of());
 
         final var students = List.of(new Student("Alice", "A", "Alice (A)", "alice"));
         organization.updateWith(students);
@@ -118,7 +126,9 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_extraInvitations_removesUnwantedInvitations() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of());
+        when(githubApi.getOrganizationInvitations("test-org"))
+                .thenReturn(List.of(new Invitation(1, "alice", 1), new Invitation(2, "bob", 1)));
         when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice", "bob")));
 
         final var students = List.of(new Student("Alice", "A", "Alice (A)", "alice"));
@@ -133,8 +143,9 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_complexScenario_addsAndRemovesCorrectly() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice", "bob")));
-        when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("david")));
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of("alice", 1001L, "bob", 1002L));
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of(new Invitation(1, "david", 1)));
+        when(githubApi.getInvitationTeams("test-org", 1)).thenReturn(List.of("group-a"));
 
         final var students = List.of(
                 new Student("Alice", "A", "Alice (A)", "alice"),
@@ -153,10 +164,9 @@ class OrganizationUpdateTeamMembersTest {
         final var teamA = new Team("group A", "group-a");
         final var teamB = new Team("group B", "group-b");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(teamA, teamB));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice")));
-        when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>());
-        when(githubApi.getTeamMembers("test-org", "group-b")).thenReturn(new ArrayList<>());
-        when(githubApi.getTeamInvitations("test-org", "group-b")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of("alice", 1001L));
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of());
+        when(githubApi.getTeamMembers("test-org", "group-b")).thenReturn(Map.of());
 
         final var students = List.of(
                 new Student("Alice", "A", "Alice (A)", "alice"),
@@ -173,8 +183,8 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_noInvitations_someMembers_partialUpdate() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>(List.of("alice", "david")));
-        when(githubApi.getTeamInvitations("test-org", "group-a")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of("alice", 1001L, "david", 1003L));
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of());
 
         final var students = List.of(
                 new Student("Alice", "A", "Alice (A)", "alice"),
@@ -193,7 +203,9 @@ class OrganizationUpdateTeamMembersTest {
     void updateWith_someInvitations_noMembers_partialUpdate() throws Exception {
         final var existingTeam = new Team("group A", "group-a");
         when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
-        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(new ArrayList<>());
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of());
+        when(githubApi.getOrganizationInvitations("test-org"))
+                .thenReturn(List.of(new Invitation(1, "alice", 1), new Invitation(2, "david", 1)));
         when(githubApi.getTeamInvitations("test-org", "group-a"))
                 .thenReturn(new ArrayList<>(List.of("alice", "david")));
 
@@ -209,4 +221,89 @@ class OrganizationUpdateTeamMembersTest {
         verify(githubApi, never()).inviteStudentToTeam("test-org", "group-a", "alice");
         verify(githubApi, never()).removeStudentFromTeam("test-org", "group-a", "alice");
     }
+
+    @Test
+    void updateWith_invitationsReadOncePerOrganization_notPerTeam() throws Exception {
+        final var teamA = new Team("group A", "group-a");
+        final var teamB = new Team("group B", "group-b");
+        when(githubApi.getTeams("test-org")).thenReturn(List.of(teamA, teamB));
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of());
+        when(githubApi.getTeamMembers("test-org", "group-b")).thenReturn(Map.of());
+        // eve has an organization invitation without teams: it must not ask for its teams
+        when(githubApi.getOrganizationInvitations("test-org"))
+                .thenReturn(List.of(new Invitation(1, "bob", 1), new Invitation(2, "eve", 0)));
+        when(githubApi.getInvitationTeams("test-org", 1)).thenReturn(List.of("group-b"));
+
+        final var students = List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "B", "Bob (B)", "bob"));
+        organization.updateWith(students);
+
+        verify(githubApi).inviteStudentToTeam("test-org", "group-a", "alice");
+        verify(githubApi, never()).inviteStudentToTeam("test-org", "group-b", "bob");
+        verify(githubApi, never()).getInvitationTeams("test-org", 2);
+        verify(githubApi, never()).getTeamInvitations(anyString(), anyString());
+        verify(githubApi, never()).removeStudentFromTeam(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void updateWith_invitationLimitReached_queuesTheRestAndSendsThemFirstLater() throws Exception {
+        final var teamA = new Team("group A", "group-a");
+        when(githubApi.getTeams("test-org")).thenReturn(List.of(teamA));
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of());
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of());
+        lenient().doThrow(new GithubApi.InvitationLimitException("Over invitation rate limit"))
+                .when(githubApi).inviteStudentToTeam("test-org", "group-a", "bob");
+
+        var queue = new InvitationQueue();
+        organization.queueInvitationsIn(queue);
+        final var students = List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "A", "Bob (A)", "bob"),
+                new Student("Carol", "A", "Carol (A)", "carol"));
+        organization.updateWith(students);
+
+        // Carol is not even tried once the limit is reached
+        verify(githubApi).inviteStudentToTeam("test-org", "group-a", "alice");
+        verify(githubApi, never()).inviteStudentToTeam("test-org", "group-a", "carol");
+        assertEquals(2, queue.size());
+        assertFalse(queue.canSend(Instant.now()));
+
+        // A later sync, once the limit allows it, sends the queued invitations before the new ones
+        var later = new InvitationQueue();
+        later.enqueue("group-a", "carol", Instant.now().minusSeconds(60));
+        later.enqueue("group-a", "bob", Instant.now());
+        organization.queueInvitationsIn(later);
+        clearInvocations(githubApi);
+        lenient().doNothing().when(githubApi).inviteStudentToTeam("test-org", "group-a", "bob");
+
+        organization.updateWith(List.of(
+                new Student("Dave", "A", "Dave (A)", "dave"),
+                new Student("Bob", "A", "Bob (A)", "bob"),
+                new Student("Carol", "A", "Carol (A)", "carol")));
+
+        var inOrder = inOrder(githubApi);
+        inOrder.verify(githubApi).inviteStudentToTeam("test-org", "group-a", "carol");
+        inOrder.verify(githubApi).inviteStudentToTeam("test-org", "group-a", "bob");
+        inOrder.verify(githubApi).inviteStudentToTeam("test-org", "group-a", "dave");
+        assertEquals(0, later.size());
+    }
+
+    @Test
+    void updateWith_renamedAccount_isMatchedByGithubIdAndKept() throws Exception {
+        final var existingTeam = new Team("group A", "group-a");
+        when(githubApi.getTeams("test-org")).thenReturn(List.of(existingTeam));
+        when(githubApi.getTeamMembers("test-org", "group-a")).thenReturn(Map.of("alice-new", 101L, "eve", 105L));
+        when(githubApi.getOrganizationInvitations("test-org")).thenReturn(List.of());
+
+        final var students = List.of(
+                new Student("Alice", "A", "Alice (A)", "alice", 101),
+                new Student("Bob", "A", "Bob (A)", "bob", 102));
+        organization.updateWith(students);
+
+        verify(githubApi).inviteStudentToTeam("test-org", "group-a", "bob");
+        verify(githubApi).removeStudentFromTeam("test-org", "group-a", "eve");
+        verify(githubApi, never()).inviteStudentToTeam("test-org", "group-a", "alice");
+        verify(githubApi, never()).removeStudentFromTeam("test-org", "group-a", "alice-new");
+    }
 }
@@ -1,12 +1,12 @@
 package es.uniovi.raul.teams.organization;
 
 import static java.util.Optional.of;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.*;
+import java.util.*;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,6 +17,7 @@ import es.uniovi.raul.teams.github.GithubApi;
 import es.uniovi.raul.teams.github.GithubApi.UnexpectedFormatException;
 import es.uniovi.raul.teams.github.Team;
 import es.uniovi.raul.teams.roster.Student;
+import es.uniovi.raul.teams.snapshot.*;
 
 @ExtendWith(MockitoExtension.class)
 class OrganizationUpdateTest {
@@ -34,10 +35,9 @@ class OrganizationUpdateTest {
                 .thenReturn(List.of(
                         new Team("group A", "group-a"),
                         new Team("group B", "group-b")));
-        when(github.getTeamMembers("org", "group-a")).thenReturn(new ArrayList<>());
-        when(github.getTeamMembers("org", "group-b")).thenReturn(new ArrayList<>());
-        when(github.getTeamInvitations("org", "group-a")).thenReturn(new ArrayList<>());
-        when(github.getTeamInvitations("org", "group-b")).thenReturn(new ArrayList<>());
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of());
         when(github.createTeam("org", "group A")).thenReturn(of("group-a"));
         when(github.createTeam("org", "group B")).thenReturn(of("group-b"));
 
@@ -55,8 +55,7 @@ class OrganizationUpdateTest {
 
         verify(github, times(1)).getTeamMembers("org", "group-a");
         verify(github, times(1)).getTeamMembers("org", "group-b");
-        verify(github, times(1)).getTeamInvitations("org", "group-a");
-        verify(github, times(1)).getTeamInvitations("org", "group-b");
+        verify(github, times(1)).getOrganizationInvitations("org");
         verify(github, times(1)).inviteStudentToTeam("org", "group-a", "alice");
         verify(github, times(1)).inviteStudentToTeam("org", "group-a", "bob");
         verify(github, times(1)).inviteStudentToTeam("org", "group-b", "carol");
@@ -91,10 +90,9 @@ class OrganizationUpdateTest {
                 .thenReturn(List.of(teamA, teamB));
 
         // No members initially
-        when(github.getTeamMembers("org", "group-a")).thenReturn(new ArrayList<>());
-        when(github.getTeamMembers("org", "group-b")).thenReturn(new ArrayList<>());
-        when(github.getTeamInvitations("org", "group-a")).thenReturn(new ArrayList<>());
-        when(github.getTeamInvitations("org", "group-b")).thenReturn(new ArrayList<>());
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of());
 
         // Create B, keep A, delete C
         when(github.createTeam("org", "group B")).thenReturn(of("group-b"));
@@ -119,8 +117,7 @@ class OrganizationUpdateTest {
         // Member sync for A and B
         verify(github, times(1)).getTeamMembers("org", "group-a");
         verify(github, times(1)).getTeamMembers("org", "group-b");
-        verify(github, times(1)).getTeamInvitations("org", "group-a");
-        verify(github, times(1)).getTeamInvitations("org", "group-b");
+        verify(github, times(1)).getOrganizationInvitations("org");
         verify(github, times(1)).inviteStudentToTeam("org", "group-a", "alice");
         verify(github, times(1)).inviteStudentToTeam("org", "group-b", "bob");
 
@@ -141,10 +138,9 @@ class OrganizationUpdateTest {
                 .thenReturn(List.of(teamA, teamB));
 
         // Initial members: A has bob (to remove), B has carol (kept)
-        when(github.getTeamMembers("org", "group-a")).thenReturn(new ArrayList<>(List.of("bob")));
-        when(github.getTeamMembers("org", "group-b")).thenReturn(new ArrayList<>(List.of("carol")));
-        when(github.getTeamInvitations("org", "group-a")).thenReturn(new ArrayList<>());
-        when(github.getTeamInvitations("org", "group-b")).thenReturn(new ArrayList<>());
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("bob", 1001L));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of("carol", 1002L));
 
         var organization = new Organization("org", github);
         // Desired: A -> alice, B -> carol
@@ -164,12 +160,159 @@ class OrganizationUpdateTest {
         // Member sync: add alice to A, remove bob from A; B unchanged
         verify(github, times(1)).getTeamMembers("org", "group-a");
         verify(github, times(1)).getTeamMembers("org", "group-b");
-        verify(github, times(1)).getTeamInvitations("org", "group-a");
-        verify(github, times(1)).getTeamInvitations("org", "group-b");
+        verify(github, times(1)).getOrganizationInvitations("org");
         verify(github, times(1)).inviteStudentToTeam("org", "group-a", "alice");
         verify(github, times(1)).removeStudentFromTeam("org", "group-a", "bob");
 
         verify(github, never()).inviteStudentToTeam("org", "group-b", "carol");
         verifyNoMoreInteractions(github);
     }
+
+    @Test
+    void update_with_parent_team_creates_it_and_nests_new_group_teams()
+            throws GithubApi.GithubApiException, IOException, InterruptedException {
+
+        var course = new Team("course", "course", 7, null);
+        var teamA = new Team("group A", "group-a", 8, "course");
+
+        when(github.getTeams("org"))
+                .thenReturn(List.of()) // Before creating the parent team
+                .thenReturn(List.of(course)) // After creating it
+                .thenReturn(List.of(course, teamA)); // Member sync
+        when(github.createTeam("org", "course")).thenReturn(of("course"));
+        when(github.createTeam("org", "group A", 7)).thenReturn(of("group-a"));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        var organization = new Organization("org", github);
+        organization.useParentTeam("course");
+        organization.updateWith(List.of(new Student("Alice", "A", "Alice (A)", "alice")));
+
+        verify(github, times(3)).getTeams("org");
+        verify(github, times(1)).createTeam("org", "course");
+        verify(github, times(1)).createTeam("org", "group A", 7);
+        verify(github, times(1)).getTeamMembers("org", "group-a");
+        verify(github, times(1)).getOrganizationInvitations("org");
+        verify(github, times(1)).inviteStudentToTeam("org", "group-a", "alice");
+
+        verifyNoMoreInteractions(github);
+    }
+
+    @Test
+    void update_with_parent_team_moves_existing_group_teams_under_it()
+            throws GithubApi.GithubApiException, IOException, InterruptedException {
+
+        var course = new Team("course", "course", 7, null);
+        var teamA = new Team("group A", "group-a", 8, null); // Flat: must be moved
+        var teamB = new Team("group B", "group-b", 9, "course"); // Already nested
+        var teamC = new Team("group C", "group-c", 10, null); // Not needed: deleted, not moved
+
+        when(github.getTeams("org"))
+                .thenReturn(List.of(course, teamA, teamB, teamC))
+                .thenReturn(List.of(course, teamA, teamB));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("alice", 1003L));
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of("bob", 1001L));
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        var organization = new Organization("org", github);
+        organization.useParentTeam("course");
+        organization.updateWith(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "B", "Bob (B)", "bob")));
+
+        verify(github, times(2)).getTeams("org");
+        verify(github, times(1)).deleteTeam("org", "group-c");
+        verify(github, times(1)).setParentTeam("org", "group-a", 7);
+        verify(github, times(1)).getTeamMembers("org", "group-a");
+        verify(github, times(1)).getTeamMembers("org", "group-b");
+        verify(github, times(1)).getOrganizationInvitations("org");
+
+        verifyNoMoreInteractions(github);
+    }
+
+    @Test
+    void update_leaves_out_students_whose_login_does_not_exist()
+            throws GithubApi.GithubApiException, IOException, InterruptedException {
+
+        var teamA = new Team("group A", "group-a");
+        var cache = new LoginCache(Duration.ofDays(1));
+        cache.checked("mallory", false, Instant.now()); // Known from a previous run: not looked up again
+
+        when(github.findExistingUsers(List.of("alice", "bobb"))).thenReturn(Set.of("alice"));
+        when(github.getTeams("org")).thenReturn(List.of(teamA));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        var organization = new Organization("org", github);
+        organization.checkLoginsWith(cache);
+        organization.updateWith(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "A", "Bob (A)", "bobb"),
+                new Student("Mallory", "A", "Mallory (A)", "mallory")));
+
+        verify(github, times(1)).findExistingUsers(List.of("alice", "bobb"));
+        verify(github, times(2)).getTeams("org");
+        verify(github, times(1)).getTeamMembers("org", "group-a");
+        verify(github, times(1)).getOrganizationInvitations("org");
+        verify(github, times(1)).inviteStudentToTeam("org", "group-a", "alice");
+        verifyNoMoreInteractions(github);
+
+        assertEquals(Optional.of(false), cache.exists("bobb", Instant.now()));
+    }
+
+    @Test
+    void only_the_chosen_groups_are_read_and_updated()
+            throws GithubApi.GithubApiException, IOException, InterruptedException {
+
+        when(github.getTeams("org")).thenReturn(List.of(
+                new Team("group A", "group-a"),
+                new Team("group B", "group-b"),
+                new Team("group C", "group-c")));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        var organization = new Organization("org", github);
+        organization.onlyGroups(Set.of("A", "C")::contains);
+        organization.onlyGroups(group -> !group.equals("C")); // Narrows the previous filter
+        organization.updateWith(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Carol", "B", "Carol (B)", "carol")));
+
+        verify(github, times(2)).getTeams("org");
+        verify(github).getOrganizationInvitations("org");
+        verify(github).getTeamMembers("org", "group-a");
+        verify(github).inviteStudentToTeam("org", "group-a", "alice");
+        verifyNoMoreInteractions(github); // Neither group B is read nor group C deleted
+    }
+
+    @Test
+    void only_the_changes_of_the_chosen_students_are_made()
+            throws GithubApi.GithubApiException, IOException, InterruptedException {
+
+        when(github.getTeams("org")).thenReturn(List.of(
+                new Team("group A", "group-a"),
+                new Team("group B", "group-b"),
+                new Team("group C", "group-c")));
+        when(github.getTeamMembers("org", "group-a")).thenReturn(Map.of("bob", 1001L, "dave", 1004L));
+        when(github.getTeamMembers("org", "group-b")).thenReturn(Map.of());
+        when(github.getOrganizationInvitations("org")).thenReturn(List.of());
+
+        // Bob was in group A the last time it was read, and now he is in group B
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", List.of("bob", "dave"), List.of(), Instant.now());
+        var organization = new Organization("org", github, message -> {
+        }, snapshot);
+        organization.onlyStudents(List.of("BOB"));
+        organization.updateWith(List.of(
+                new Student("Alice", "A", "Alice (A)", "alice"),
+                new Student("Bob", "B", "Bob (B)", "bob")));
+
+        verify(github, times(2)).getTeams("org");
+        verify(github).getOrganizationInvitations("org");
+        verify(github).getTeamMembers("org", "group-a");
+        verify(github).getTeamMembers("org", "group-b");
+        verify(github).inviteStudentToTeam("org", "group-b", "bob");
+        verify(github).removeStudentFromTeam("org", "group-a", "bob");
+        verifyNoMoreInteractions(github); // Alice is not invited, Dave is not removed and group C is not deleted
+    }
 }
@@ -0,0 +1,53 @@
+package es.uniovi.raul.teams.organization;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import es.uniovi.raul.teams.github.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+@ExtendWith(MockitoExtension.class)
+class SyncPhaseEventTest {
+
+    @Mock
+    private GithubApi github;
+
+    @Mock
+    private Logger logger;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void the_phases_of_a_grant_are_recorded() throws Exception {
+        when(github.getRepositories("org")).thenReturn(List.of("lab-01", "lab-02"));
+        when(github.getTeams("org")).thenReturn(List.of(new Team("group A", "group-a")));
+        when(github.getTeamRepositories("org", "group-a")).thenReturn(Map.of());
+
+        var file = dir.resolve("run.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("es.uniovi.raul.teams.SyncPhase");
+            recording.start();
+            new Organization("org", github, logger).grantRepositories(Pattern.compile("lab-.*"),
+                    RepositoryPermission.PULL);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Integer> operationsByPhase = new HashMap<>();
+        for (var event : RecordingFile.readAllEvents(file))
+            operationsByPhase.put(event.getString("phase"), event.getInt("operations"));
+        assertEquals(Map.of("read repositories", 1, "grant", 2), operationsByPhase);
+    }
+}
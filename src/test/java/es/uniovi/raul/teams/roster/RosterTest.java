@@ -4,11 +4,13 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.*;
 import java.util.List;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -36,12 +38,33 @@ class RosterTest {
         assertEquals("A", s1.group());
         assertEquals("John Doe (A)", s1.rosterId());
         assertEquals("johnd", s1.login());
+        assertEquals(1001, s1.githubId());
 
         Student s2 = students.get(1);
         assertEquals("Izquierdo Castanedo, Raúl", s2.name());
         assertEquals("i02", s2.group());
         assertEquals("Izquierdo Castanedo, Raúl (i02)", s2.rosterId());
         assertEquals("raulic", s2.login());
+        assertEquals(1002, s2.githubId());
+    }
+
+    @Test
+    void githubId_isOptional_andIgnoredIfNotANumber() throws Exception {
+        String csv = """
+                identifier,github_username,github_id,name
+                "John Doe (A)",johnd,,John Doe
+                """;
+        assertFalse(RosterLoader.load(readerOf(csv)).get(0).hasGithubId());
+
+        String invalid = """
+                identifier,github_username,github_id,name
+                "John Doe (A)",johnd,abc,John Doe
+                "Jane Roe (B)",janer,1002,Jane Roe
+                """;
+        var students = RosterLoader.load(readerOf(invalid));
+        assertEquals(2, students.size());
+        assertFalse(students.get(0).hasGithubId());
+        assertEquals(1002, students.get(1).githubId());
     }
 
     @Test
@@ -141,4 +164,65 @@ class RosterTest {
         }
 
     }
+
+    @Nested
+    class MultipleRosters {
+
+        @TempDir
+        Path dir;
+
+        private String write(String fileName, String csv) throws Exception {
+            return Files.writeString(dir.resolve(fileName), csv).toString();
+        }
+
+        @Test
+        void mergesRosters_andRemovesDuplicatedStudents() throws Exception {
+            String first = write("first.csv", """
+                    identifier,github_username,github_id,name
+                    "Alice (A)",alice,1,Alice
+                    "Bob (B)",bob,2,Bob
+                    """);
+            String second = write("second.csv", """
+                    identifier,github_username,github_id,name
+                    "Bob (B)",Bob,2,Bob
+                    "Carol (C)",carol,3,Carol
+                    """);
+
+            List<Student> students = RosterLoader.loadAll(List.of(first, second));
+
+            assertEquals(List.of("alice", "bob", "carol"), students.stream().map(Student::login).toList());
+        }
+
+        @Test
+        void studentInDifferentGroups_fails() throws Exception {
+            String first = write("first.csv", """
+                    identifier,github_username,github_id,name
+                    "Alice (A)",alice,1,Alice
+                    """);
+            String second = write("second.csv", """
+                    identifier,github_username,github_id,name
+                    "Alice (B)",alice,1,Alice
+                    """);
+
+            Exception ex = assertThrows(RosterLoader.InvalidRosterFormatException.class,
+                    () -> RosterLoader.loadAll(List.of(first, second)));
+            assertTrue(ex.getMessage().contains("'alice' is in group 'A' and in group 'B'"));
+        }
+
+        @Test
+        void invalidRoster_failsWithItsFileName() throws Exception {
+            String valid = write("valid.csv", """
+                    identifier,github_username,github_id,name
+                    "Alice (A)",alice,1,Alice
+                    """);
+            String invalid = write("invalid.csv", """
+                    foo,bar,baz,qux
+                    "Bob (B)",bob,2,Bob
+                    """);
+
+            Exception ex = assertThrows(RosterLoader.InvalidRosterFormatException.class,
+                    () -> RosterLoader.loadAll(List.of(valid, invalid)));
+            assertTrue(ex.getMessage().contains("invalid.csv"));
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package es.uniovi.raul.teams.snapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.*;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InvitationQueueTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1_767_225_600);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void saves_and_loads_the_queued_invitations() throws IOException {
+        var queue = new InvitationQueue();
+        queue.sent("group-a", "alice", NOW.minus(Duration.ofHours(2)));
+        queue.enqueue("group-a", "bob", NOW);
+        queue.enqueue("group-b", "carol", NOW);
+        queue.enqueue("group-a", "bob", NOW.plusSeconds(60)); // Keeps its place
+        queue.limitReached(NOW);
+
+        var file = InvitationQueue.defaultFile(dir.resolve("state.json"));
+        queue.save(file);
+        var loaded = InvitationQueue.load(file);
+
+        assertEquals(2, loaded.size());
+        assertEquals(Optional.of(NOW), loaded.queuedAt("group-a", "bob"));
+        assertEquals(Optional.empty(), loaded.queuedAt("group-a", "alice"));
+        assertEquals(queue.nextAttempt(), loaded.nextAttempt());
+    }
+
+    @Test
+    void invitations_can_be_sent_when_the_oldest_one_leaves_the_window() {
+        var queue = new InvitationQueue();
+        queue.sent("group-a", "alice", NOW.minus(Duration.ofHours(30))); // Out of the window
+        queue.sent("group-a", "bob", NOW.minus(Duration.ofHours(20)));
+        queue.sent("group-a", "carol", NOW.minus(Duration.ofHours(10)));
+        assertTrue(queue.canSend(NOW));
+
+        queue.limitReached(NOW);
+        queue.enqueue("group-a", "dave", NOW);
+
+        assertEquals(Optional.of(NOW.plus(Duration.ofHours(4))), queue.nextAttempt());
+        assertFalse(queue.isDue(NOW.plus(Duration.ofHours(3))));
+        assertTrue(queue.isDue(NOW.plus(Duration.ofHours(4))));
+
+        queue.sent("group-a", "dave", NOW.plus(Duration.ofHours(4)));
+        assertEquals(Optional.empty(), queue.nextAttempt());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void invitations_no_longer_needed_are_dropped() {
+        var queue = new InvitationQueue();
+        queue.enqueue("group-a", "alice", NOW);
+        queue.enqueue("group-b", "bob", NOW);
+
+        queue.retain((team, login) -> "alice".equals(login));
+
+        assertEquals(1, queue.size());
+        assertEquals(Optional.of(NOW), queue.queuedAt("group-a", "alice"));
+    }
+
+    @Test
+    void changes_of_the_copies_are_merged() throws IOException {
+        var queue = new InvitationQueue();
+        queue.enqueue("group-a", "alice", NOW);
+        queue.enqueue("group-b", "bob", NOW);
+        var file = dir.resolve("queue.json");
+        queue.save(file);
+        var base = InvitationQueue.load(file);
+        var first = InvitationQueue.load(file);
+        var second = InvitationQueue.load(file);
+
+        first.sent("group-a", "alice", NOW.plusSeconds(60));
+        first.enqueue("group-c", "carol", NOW.plusSeconds(120));
+        second.limitReached(NOW.plusSeconds(90));
+
+        queue.merge(base, first);
+        queue.merge(base, second);
+
+        assertEquals(Optional.empty(), queue.queuedAt("group-a", "alice"));
+        assertEquals(Optional.of(NOW), queue.queuedAt("group-b", "bob"));
+        assertEquals(Optional.of(NOW.plusSeconds(120)), queue.queuedAt("group-c", "carol"));
+        assertEquals(Optional.of(NOW.plusSeconds(60).plus(Duration.ofHours(24))), queue.nextAttempt());
+    }
+
+    @Test
+    void missing_file_is_empty_and_invalid_file_fails() throws IOException {
+        var file = dir.resolve("queue.json");
+        assertEquals(0, InvitationQueue.load(file).size());
+
+        Files.writeString(file, "{\"invitations\": {}}");
+        assertThrows(IOException.class, () -> InvitationQueue.load(file));
+    }
+}
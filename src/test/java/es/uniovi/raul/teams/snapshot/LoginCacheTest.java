@@ -0,0 +1,56 @@
+package es.uniovi.raul.teams.snapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.*;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoginCacheTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1_767_225_600);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void saves_and_loads_the_checked_logins() throws IOException {
+        var cache = new LoginCache(Duration.ofDays(1));
+        cache.checked("Alice", true, NOW);
+        cache.checked("bobb", false, NOW);
+
+        var file = LoginCache.defaultFile(dir);
+        cache.save(file, NOW);
+        var loaded = LoginCache.load(file, Duration.ofDays(1));
+
+        assertEquals(Optional.of(true), loaded.exists("alice", NOW)); // Case-insensitive
+        assertEquals(Optional.of(false), loaded.exists("bobb", NOW));
+        assertEquals(Optional.empty(), loaded.exists("carol", NOW));
+    }
+
+    @Test
+    void checked_logins_expire() throws IOException {
+        var cache = new LoginCache(Duration.ofHours(12));
+        cache.checked("bobb", false, NOW);
+
+        assertEquals(Optional.of(false), cache.exists("bobb", NOW.plus(Duration.ofHours(11))));
+        assertEquals(Optional.empty(), cache.exists("bobb", NOW.plus(Duration.ofHours(12))));
+
+        var file = LoginCache.defaultFile(dir);
+        cache.save(file, NOW.plus(Duration.ofDays(1)));
+        assertTrue(Files.readString(file).contains("\"logins\":{}"));
+    }
+
+    @Test
+    void missing_file_is_empty_and_invalid_file_fails() throws IOException {
+        var file = LoginCache.defaultFile(dir);
+        assertEquals(Optional.empty(), LoginCache.load(file, Duration.ofDays(1)).exists("alice", NOW));
+
+        Files.writeString(file, "{\"logins\": []}");
+        assertThrows(IOException.class, () -> LoginCache.load(file, Duration.ofDays(1)));
+    }
+}
@@ -0,0 +1,69 @@
+package es.uniovi.raul.teams.snapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void saves_and_loads_the_same_state() throws IOException {
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", Map.of("alice", 1001L, "bob", 1002L), List.of("carol"),
+                Instant.ofEpochSecond(1_767_225_600));
+        snapshot.teamCreated("group B", "group-b", Instant.ofEpochSecond(1_767_225_700));
+
+        var file = dir.resolve("state.json");
+        SnapshotStore.save(snapshot, file);
+        var loaded = SnapshotStore.load(file, "org").orElseThrow();
+
+        assertEquals(snapshot.teams(), loaded.teams());
+        assertEquals(Set.of("alice", "bob"), loaded.team("group-a").orElseThrow().members());
+        assertEquals(Set.of("carol"), loaded.team("group-a").orElseThrow().pending());
+        assertEquals(Map.of("alice", 1001L, "bob", 1002L), loaded.userIds());
+    }
+
+    @Test
+    void missing_file_or_other_organization_is_empty() throws IOException {
+        var file = dir.resolve("state.json");
+        assertTrue(SnapshotStore.load(file, "org").isEmpty());
+
+        SnapshotStore.save(new OrganizationSnapshot("other"), file);
+        assertTrue(SnapshotStore.load(file, "org").isEmpty());
+    }
+
+    @Test
+    void invalid_file_fails() throws IOException {
+        var file = dir.resolve("state.json");
+        Files.writeString(file, "{\"teams\": 3}");
+
+        assertThrows(IOException.class, () -> SnapshotStore.load(file, "org"));
+    }
+
+    @Test
+    void snapshot_applies_invitations_and_removals() {
+        var snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", List.of("alice"), List.of(), Instant.EPOCH);
+
+        snapshot.memberInvited("group-a", "bob");
+        snapshot.memberInvited("group-a", "alice"); // already a member: not pending
+        snapshot.memberAdded("group-a", "bob"); // accepted
+        snapshot.memberInvited("group-a", "carol");
+        snapshot.memberRemovedFromOrganization("alice");
+
+        var team = snapshot.team("group-a").orElseThrow();
+        assertEquals(Set.of("bob"), team.members());
+        assertEquals(Set.of("carol"), team.pending());
+    }
+}
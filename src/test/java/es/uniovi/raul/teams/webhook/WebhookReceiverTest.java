@@ -0,0 +1,93 @@
+package es.uniovi.raul.teams.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.*;
+
+import es.uniovi.raul.teams.snapshot.OrganizationSnapshot;
+
+/**
+ * Posts recorded webhook payloads (src/test/resources/webhooks) to a receiver listening on a local port.
+ */
+class WebhookReceiverTest {
+
+    private static final String SECRET = "It's a Secret to Everybody";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<String> output = new ArrayList<>();
+    private OrganizationSnapshot snapshot;
+    private WebhookReceiver receiver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        snapshot = new OrganizationSnapshot("org");
+        snapshot.teamRead("group A", "group-a", List.of("alice"), List.of("carol"), Instant.EPOCH);
+        snapshot.teamRead("group B", "group-b", List.of("bob"), List.of(), Instant.EPOCH);
+
+        receiver = new WebhookReceiver(0, SECRET, snapshot, output::add);
+        receiver.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.close();
+    }
+
+    @Test
+    void membership_events_update_the_team() throws Exception {
+        assertEquals(204, post("membership", "membership-added.json", SECRET));
+        assertEquals(204, post("membership", "membership-removed.json", SECRET));
+
+        var team = snapshot.team("group-a").orElseThrow();
+        assertEquals(Set.of("carol"), team.members());
+        assertEquals(Set.of(), team.pending());
+        assertEquals(2, receiver.getAppliedEvents());
+    }
+
+    @Test
+    void team_and_organization_events_update_the_snapshot() throws Exception {
+        assertEquals(204, post("organization", "organization-member-removed.json", SECRET));
+        assertEquals(Set.of(), snapshot.team("group-b").orElseThrow().members());
+
+        assertEquals(204, post("team", "team-deleted.json", SECRET));
+        assertTrue(snapshot.team("group-b").isEmpty());
+    }
+
+    @Test
+    void wrongly_signed_events_are_rejected() throws Exception {
+        assertEquals(401, post("membership", "membership-added.json", "another secret"));
+
+        assertEquals(Set.of("alice"), snapshot.team("group-a").orElseThrow().members());
+        assertEquals(0, receiver.getAppliedEvents());
+    }
+
+    private int post(String event, String payloadFile, String secret) throws Exception {
+        byte[] body;
+        try (InputStream in = getClass().getResourceAsStream("/webhooks/" + payloadFile)) {
+            body = in.readAllBytes();
+        }
+
+        var mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        var signature = "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + receiver.getPort() + "/webhook"))
+                .header("X-GitHub-Event", event)
+                .header("X-Hub-Signature-256", signature)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}